@@ -0,0 +1,252 @@
+package com.github.k_wall.benchmarks;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.k_wall.core.AlignmentMatcher;
+import com.github.k_wall.core.AlignmentResult;
+import com.github.k_wall.core.AlignmentVerdictCache;
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.DetailMode;
+import com.github.k_wall.core.ReportSink;
+import com.github.k_wall.core.SubtreeSummaryCache;
+import com.github.k_wall.core.TextReportWriter;
+import com.github.k_wall.core.TransitiveAlignmentAnalyzer;
+import com.github.k_wall.core.UnalignedPath;
+
+/**
+ * Measures the phases of the report separately over synthetic dependency graphs: classification of every artifact
+ * against the alignment pattern, the summary and both detail traversals, and rendering of the text report.  The
+ * summary is also measured against a subtree cache, empty and filled by an earlier build.
+ *
+ * <p>Run with <code>-prof gc</code> to report the allocation rate alongside the throughput.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlignmentReporterBenchmark
+{
+    @Param({"50"})
+    public int width;
+
+    @Param({"6"})
+    public int depth;
+
+    @Param({"3"})
+    public int fanout;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double sharingRatio;
+
+    @Param({"0.1"})
+    public double unalignedFraction;
+
+    private AlignmentMatcher alignmentMatcher;
+    private ArtifactGraph graph;
+    private boolean[] aligned;
+    private int[] alignedDirectDependencies;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        List<DependencyNode> directDependencies = SyntheticDependencyGraph.generate(width, depth, fanout,
+                                                                                    sharingRatio,
+                                                                                    unalignedFraction, 42L);
+        alignmentMatcher = AlignmentMatcher.compile(List.of(Pattern.compile(SyntheticDependencyGraph.ALIGNMENT_PATTERN)));
+        graph = ArtifactGraph.of(directDependencies, node -> true);
+        AlignmentResult result = new AlignmentResult(graph, new AlignmentVerdictCache(alignmentMatcher), null, null);
+        aligned = graph.classify(new AlignmentVerdictCache(alignmentMatcher));
+        alignedDirectDependencies = result.getAlignedDirectDependencies();
+    }
+
+    /**
+     * The alignment patterns to classify by: a regular expression, a literal, and an alternation of literals.
+     */
+    @State(Scope.Benchmark)
+    public static class Matching
+    {
+        @Param({"redhat-\\d+", "redhat-0", "redhat-0|myorg-0"})
+        public String alignmentPattern;
+
+        private AlignmentMatcher alignmentMatcher;
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            alignmentMatcher = AlignmentMatcher.compile(List.of(Pattern.compile(alignmentPattern)));
+        }
+    }
+
+    @Benchmark
+    public boolean[] classify(final Matching matching)
+    {
+        return graph.classify(new AlignmentVerdictCache(matching.alignmentMatcher));
+    }
+
+    @Benchmark
+    public int summary()
+    {
+        TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(graph, aligned);
+        int incompletelyAligned = 0;
+        for (int id : alignedDirectDependencies)
+        {
+            if (analyzer.hasUnalignedTransitives(id))
+            {
+                incompletelyAligned++;
+            }
+        }
+        return incompletelyAligned;
+    }
+
+    /**
+     * A subtree cache, in a directory of its own, either empty or filled by a build of the same graph.
+     */
+    @State(Scope.Benchmark)
+    public static class SubtreeCaching
+    {
+        @Param({"false", "true"})
+        public boolean filled;
+
+        private File directory;
+        private SubtreeSummaryCache cache;
+
+        @Setup(Level.Trial)
+        public void setUp(final AlignmentReporterBenchmark benchmark) throws IOException
+        {
+            directory = Files.createTempDirectory("subtree-cache").toFile();
+            if (filled)
+            {
+                SubtreeSummaryCache earlier = SubtreeSummaryCache.open(directory, "benchmark");
+                AlignmentResult result = new AlignmentResult(benchmark.graph,
+                                                             new AlignmentVerdictCache(benchmark.alignmentMatcher),
+                                                             null, earlier);
+                result.getIncompletelyAlignedDirectDependencies();
+                result.addSubtreeSummaries(earlier);
+                earlier.flush();
+            }
+            cache = SubtreeSummaryCache.open(directory, "benchmark");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            for (File file : directory.listFiles())
+            {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Benchmark
+    public int summaryWithSubtreeCache(final SubtreeCaching caching)
+    {
+        TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(graph, aligned,
+                                                                               id -> caching.cache.lookup(graph, id));
+        int incompletelyAligned = 0;
+        for (int id : alignedDirectDependencies)
+        {
+            if (analyzer.hasUnalignedTransitives(id))
+            {
+                incompletelyAligned++;
+            }
+        }
+        return incompletelyAligned;
+    }
+
+    @Benchmark
+    public List<UnalignedPath> allPaths()
+    {
+        TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(graph, aligned);
+        List<UnalignedPath> paths = new ArrayList<>();
+        for (int id : alignedDirectDependencies)
+        {
+            analyzer.collectUnalignedPaths(id, paths);
+        }
+        return paths;
+    }
+
+    @Benchmark
+    public List<UnalignedPath> shortestPaths()
+    {
+        TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(graph, aligned);
+        List<UnalignedPath> paths = new ArrayList<>();
+        for (int id : alignedDirectDependencies)
+        {
+            analyzer.collectShortestUnalignedPaths(id, paths);
+        }
+        return paths;
+    }
+
+    /**
+     * Renders the report to a writer that discards it.  A result's paths can be listed in only one detail mode, so
+     * each invocation renders a result prepared, summary and detail included, for it alone.
+     */
+    @State(Scope.Thread)
+    public static class Rendering
+    {
+        @Param({"SHORTEST_PATH", "ALL_PATHS"})
+        public DetailMode detailMode;
+
+        private AlignmentResult result;
+
+        @Setup(Level.Invocation)
+        public void setUp(final AlignmentReporterBenchmark benchmark)
+        {
+            result = new AlignmentResult(benchmark.graph, new AlignmentVerdictCache(benchmark.alignmentMatcher), null,
+                                         null);
+            result.getIncompletelyAlignedDirectDependencies();
+            result.getUnalignedPaths(detailMode);
+        }
+    }
+
+    @Benchmark
+    public void render(final Rendering rendering) throws IOException
+    {
+        try (ReportSink sink = ReportSink.toWriter(Writer.nullWriter()))
+        {
+            new TextReportWriter(sink, rendering.detailMode, false, 0).write(rendering.result);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.k_wall.benchmarks;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+
+/**
+ * Generates dependency graphs of a given shape, standing in for the graphs the dependency graph builder returns.
+ *
+ * <p>Aligned artifacts have versions satisfying {@link #ALIGNMENT_PATTERN}; unaligned ones do not.  Nodes that are
+ * shared between parents form diamonds, as a library depended upon by several others does in a real build.</p>
+ */
+final class SyntheticDependencyGraph
+{
+    static final String ALIGNMENT_PATTERN = "redhat-\\d+";
+
+    private static final DefaultArtifactHandler JAR_HANDLER = new DefaultArtifactHandler("jar");
+
+    private final Random random;
+    private final double sharingRatio;
+    private final double unalignedFraction;
+    private int artifactCount;
+
+    private SyntheticDependencyGraph(final long seed, final double sharingRatio, final double unalignedFraction)
+    {
+        this.random = new Random(seed);
+        this.sharingRatio = sharingRatio;
+        this.unalignedFraction = unalignedFraction;
+    }
+
+    /**
+     * Generates the direct dependencies of a synthetic project.
+     *
+     * @param width the number of direct dependencies
+     * @param depth the number of levels, including that of the direct dependencies
+     * @param fanout the number of children of each node above the last level
+     * @param sharingRatio the probability that a child is an existing node of its level rather than a new one
+     * @param unalignedFraction the probability that an artifact is unaligned
+     * @param seed the seed, so that every fork of a benchmark sees the same graph
+     * @return the direct dependency nodes
+     */
+    static List<DependencyNode> generate(final int width,
+                                         final int depth,
+                                         final int fanout,
+                                         final double sharingRatio,
+                                         final double unalignedFraction,
+                                         final long seed)
+    {
+        return new SyntheticDependencyGraph(seed, sharingRatio, unalignedFraction).generate(width, depth, fanout);
+    }
+
+    private List<DependencyNode> generate(final int width, final int depth, final int fanout)
+    {
+        List<DependencyNode> level = new ArrayList<>(width);
+        for (int i = 0; i < width; i++)
+        {
+            level.add(newNode());
+        }
+        List<DependencyNode> directDependencies = level;
+
+        for (int d = 1; d < depth; d++)
+        {
+            List<DependencyNode> nextLevel = new ArrayList<>();
+            for (DependencyNode parent : level)
+            {
+                List<DependencyNode> children = new ArrayList<>(fanout);
+                for (int i = 0; i < fanout; i++)
+                {
+                    DependencyNode child;
+                    if (!nextLevel.isEmpty() && random.nextDouble() < sharingRatio)
+                    {
+                        child = nextLevel.get(random.nextInt(nextLevel.size()));
+                    }
+                    else
+                    {
+                        child = newNode();
+                        nextLevel.add(child);
+                    }
+                    if (!children.contains(child))
+                    {
+                        children.add(child);
+                    }
+                }
+                ((DefaultDependencyNode) parent).setChildren(children);
+            }
+            level = nextLevel;
+        }
+
+        for (DependencyNode leaf : level)
+        {
+            ((DefaultDependencyNode) leaf).setChildren(Collections.emptyList());
+        }
+        return directDependencies;
+    }
+
+    private DependencyNode newNode()
+    {
+        int n = artifactCount++;
+        String version = "1." + (n % 7) + ".0";
+        if (random.nextDouble() >= unalignedFraction)
+        {
+            version += ".redhat-00001";
+        }
+        Artifact artifact = new DefaultArtifact("org.example.group" + (n % 31), "artifact-" + n, version,
+                                                Artifact.SCOPE_COMPILE, "jar", null, JAR_HANDLER);
+        return new DefaultDependencyNode(artifact);
+    }
+}
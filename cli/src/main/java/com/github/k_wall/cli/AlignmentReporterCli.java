@@ -0,0 +1,393 @@
+package com.github.k_wall.cli;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+
+import com.github.k_wall.core.AlignmentMatcher;
+import com.github.k_wall.core.AlignmentResult;
+import com.github.k_wall.core.AlignmentVerdictCache;
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.CompiledExcludeFilter;
+import com.github.k_wall.core.DetailMode;
+import com.github.k_wall.core.OutputFormat;
+import com.github.k_wall.core.ReportSink;
+import com.github.k_wall.core.ReportWriter;
+import com.github.k_wall.core.ScopeFilter;
+
+/**
+ * Reports upon the alignment of dependency trees exported by <code>dependency:tree</code>, without a Maven build.
+ *
+ * <p>The trees are analysed concurrently in the one JVM, sharing the alignment verdicts and the exclude filter, so a
+ * version or an artifact seen in many trees is tested once.  The reports are written in the order the trees are
+ * given, to the standard output or to a file for each tree.</p>
+ *
+ * <p>The command line is packaged apart from the plugin, but shares the analysis and the report writers of the core
+ * module with it, so the report of a tree is the same as the <code>report</code> goal's.</p>
+ */
+public final class AlignmentReporterCli
+{
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: AlignmentReporterCli [options] <tree>...",
+            "",
+            "Each <tree> is the output of dependency:tree with -DoutputType=tgf or -DoutputType=json.",
+            "",
+            "Options:",
+            "  --alignment-pattern <regex>  versions satisfying the pattern are aligned; may be repeated, and at",
+            "                               least one pattern must be given",
+            "  --excludes <patterns>        comma-separated [groupId]:[artifactId]:[type]:[version] patterns of",
+            "                               artifacts to omit, with their subtrees",
+            "  --scope <scope>              only consider dependencies in the scope",
+            "  --detail-mode <mode>         SHORTEST_PATH (the default) or ALL_PATHS",
+            "  --top-offenders <n>          rank that many unaligned transitive dependencies by reach",
+            "  --threads <n>                the number of trees to analyse at once, by default one per processor",
+            "  --output-format <format>     TEXT (the default) or JSON_LINES",
+            "  --output-dir <dir>           write the report of each tree to <dir>/<name>.txt, or .jsonl, rather",
+            "                               than to the standard output, <name> being the tree's path from the",
+            "                               directory holding every tree, with '_' for each separator",
+            "  --compress                   compress the reports written to the output directory with gzip",
+            "  --fail-on-unaligned          exit with status 1 if any tree has an unaligned dependency",
+            "",
+            "The exit status is 2 if the options are invalid or a tree cannot be read.");
+
+    private final List<String> alignmentPatterns = new ArrayList<>();
+    private String excludes;
+    private String scope;
+    private DetailMode detailMode = DetailMode.SHORTEST_PATH;
+    private int topOffenders;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private File outputDir;
+    private boolean compress;
+    private boolean failOnUnalignedDependencies;
+    private final List<File> trees = new ArrayList<>();
+    private List<String> outputNames;
+
+    private DependencyTreeReader reader;
+    private AlignmentVerdictCache verdictCache;
+
+    private AlignmentReporterCli()
+    {
+    }
+
+    public static void main(final String[] args)
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the command line.
+     *
+     * @param args the command line arguments
+     * @param out where the reports are written, unless an output directory is given
+     * @param err where failures and errors are written
+     * @return the exit status
+     */
+    static int run(final String[] args, final PrintStream out, final PrintStream err)
+    {
+        AlignmentReporterCli cli = new AlignmentReporterCli();
+        try
+        {
+            cli.parse(args);
+            cli.verdictCache = new AlignmentVerdictCache(AlignmentMatcher.compileSources(cli.alignmentPatterns));
+        }
+        catch (IllegalArgumentException e)
+        {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        cli.reader = new DependencyTreeReader(cli.createArtifactFilter());
+        return cli.analyseAll(out, err);
+    }
+
+    private void parse(final String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            switch (arg)
+            {
+                case "--alignment-pattern":
+                    alignmentPatterns.add(value(args, ++i, arg));
+                    break;
+                case "--excludes":
+                    excludes = value(args, ++i, arg);
+                    break;
+                case "--scope":
+                    scope = value(args, ++i, arg);
+                    break;
+                case "--detail-mode":
+                    detailMode = DetailMode.valueOf(value(args, ++i, arg));
+                    break;
+                case "--top-offenders":
+                    topOffenders = Integer.parseInt(value(args, ++i, arg));
+                    if (topOffenders < 1)
+                    {
+                        throw new IllegalArgumentException("--top-offenders must be at least 1");
+                    }
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value(args, ++i, arg));
+                    if (threads < 1)
+                    {
+                        throw new IllegalArgumentException("--threads must be at least 1");
+                    }
+                    break;
+                case "--output-format":
+                    outputFormat = OutputFormat.valueOf(value(args, ++i, arg));
+                    break;
+                case "--output-dir":
+                    outputDir = new File(value(args, ++i, arg));
+                    break;
+                case "--compress":
+                    compress = true;
+                    break;
+                case "--fail-on-unaligned":
+                    failOnUnalignedDependencies = true;
+                    break;
+                default:
+                    if (arg.startsWith("--"))
+                    {
+                        throw new IllegalArgumentException(String.format("Unknown option %s", arg));
+                    }
+                    trees.add(new File(arg));
+            }
+        }
+        if (alignmentPatterns.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one --alignment-pattern must be given");
+        }
+        if (trees.isEmpty())
+        {
+            throw new IllegalArgumentException("No dependency trees given");
+        }
+        if (outputDir != null)
+        {
+            outputNames = outputNames(trees);
+        }
+    }
+
+    /**
+     * Names the report of each tree after the tree's path from the deepest directory holding every tree, so that
+     * trees of the same name in different directories, as the trees of a fleet of repositories usually are, have
+     * reports of their own.
+     *
+     * @param trees the trees
+     * @return the name of each tree's report, without its extension, in the order the trees were given
+     * @throws IllegalArgumentException if two trees would still have reports of the same name
+     */
+    static List<String> outputNames(final List<File> trees)
+    {
+        List<Path> paths = trees.stream()
+                                .map(tree -> tree.toPath().toAbsolutePath().normalize())
+                                .collect(Collectors.toList());
+        Path common = paths.get(0).getParent();
+        while (common != null && !everyStartsWith(paths, common))
+        {
+            common = common.getParent();
+        }
+
+        List<String> names = new ArrayList<>();
+        Map<String, File> named = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++)
+        {
+            Path relative = common == null ? paths.get(i) : common.relativize(paths.get(i));
+            String name = relative.toString().replace(File.separatorChar, '_').replace(':', '_');
+            File clash = named.putIfAbsent(name, trees.get(i));
+            if (clash != null)
+            {
+                throw new IllegalArgumentException(String.format("%s and %s would both be reported to %s", clash,
+                                                                 trees.get(i), name));
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static boolean everyStartsWith(final List<Path> paths, final Path directory)
+    {
+        return paths.stream().allMatch(path -> path.startsWith(directory));
+    }
+
+    private static String value(final String[] args, final int index, final String option)
+    {
+        if (index >= args.length)
+        {
+            throw new IllegalArgumentException(String.format("Option %s needs a value", option));
+        }
+        return args[index];
+    }
+
+    private ArtifactFilter createArtifactFilter()
+    {
+        List<ArtifactFilter> filters = new ArrayList<>();
+        if (scope != null)
+        {
+            filters.add(new ScopeFilter(scope));
+        }
+        if (excludes != null)
+        {
+            filters.add(new CompiledExcludeFilter(Arrays.asList(excludes.split(","))));
+        }
+        return artifact -> filters.stream().allMatch(filter -> filter.include(artifact));
+    }
+
+    /**
+     * Analyses the trees, writing each outcome in the order the trees were given.  Trees are submitted no further
+     * ahead of the next to write than keeps the threads busy, which bounds the reports held in memory.
+     */
+    private int analyseAll(final PrintStream out, final PrintStream err)
+    {
+        int status = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, trees.size()));
+        try
+        {
+            int window = threads * 2;
+            Deque<Future<Outcome>> inFlight = new ArrayDeque<>(window);
+            int submitted = 0;
+            for (File tree : trees)
+            {
+                while (inFlight.size() < window && submitted < trees.size())
+                {
+                    int next = submitted++;
+                    inFlight.add(executor.submit(() -> analyse(next)));
+                }
+
+                Outcome outcome = await(inFlight.remove());
+                if (outcome.error != null)
+                {
+                    err.println(String.format("%s: %s", tree, outcome.error));
+                    status = 2;
+                    continue;
+                }
+                if (outcome.report != null)
+                {
+                    out.print(outcome.report);
+                }
+                if (outcome.failure != null)
+                {
+                    err.println(String.format("%s: %s", tree, outcome.failure));
+                    if (failOnUnalignedDependencies && status == 0)
+                    {
+                        status = 1;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return status;
+    }
+
+    private static Outcome await(final Future<Outcome> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return new Outcome(null, null, "Interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            return new Outcome(null, null, String.valueOf(e.getCause()));
+        }
+    }
+
+    private Outcome analyse(final int index)
+    {
+        File tree = trees.get(index);
+        try
+        {
+            DependencyNode root = reader.read(tree);
+            ArtifactGraph graph = ArtifactGraph.of(root.getChildren(), node -> true);
+            AlignmentResult result = new AlignmentResult(graph, verdictCache, null, null);
+
+            String report = null;
+            if (outputDir != null)
+            {
+                String extension = (outputFormat == OutputFormat.TEXT ? ".txt" : ".jsonl") + (compress ? ".gz" : "");
+                try (ReportSink sink = ReportSink.toFile(new File(outputDir, outputNames.get(index) + extension),
+                                                         false, compress))
+                {
+                    write(sink, tree, result);
+                }
+            }
+            else
+            {
+                StringWriter buffer = new StringWriter();
+                try (ReportSink sink = ReportSink.toWriter(buffer))
+                {
+                    write(sink, tree, result);
+                }
+                report = buffer.toString();
+            }
+            return new Outcome(report, AlignmentResult.describeUnaligned(Collections.singletonList(result)), null);
+        }
+        catch (IOException e)
+        {
+            return new Outcome(null, null, e.getMessage());
+        }
+    }
+
+    private void write(final ReportSink sink, final File tree, final AlignmentResult result) throws IOException
+    {
+        ReportWriter writer = ReportWriter.create(sink, outputFormat, detailMode, false, topOffenders);
+        writer.writeProjectTitle(tree.getPath());
+        writer.write(result);
+    }
+
+    private static final class Outcome
+    {
+        private final String report;
+        private final String failure;
+        private final String error;
+
+        private Outcome(final String report, final String failure, final String error)
+        {
+            this.report = report;
+            this.failure = failure;
+            this.error = error;
+        }
+    }
+}
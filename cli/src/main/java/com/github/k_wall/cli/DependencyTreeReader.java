@@ -0,0 +1,493 @@
+package com.github.k_wall.cli;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.ArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+
+/**
+ * Reads a dependency tree exported by <code>dependency:tree</code>, with an <code>outputType</code> of either
+ * <code>tgf</code> or <code>json</code>, back into {@link DependencyNode}s.  The format is recognised from the
+ * content of the file.
+ *
+ * <p>As when the tree is built by resolution, an artifact rejected by the artifact filter is omitted together with its
+ * subtree.  A reader may be shared between threads.</p>
+ */
+final class DependencyTreeReader
+{
+    private final ArtifactFilter artifactFilter;
+    private final ConcurrentMap<String, ArtifactHandler> artifactHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * @param artifactFilter selects the artifacts to include in the tree
+     */
+    DependencyTreeReader(final ArtifactFilter artifactFilter)
+    {
+        this.artifactFilter = artifactFilter;
+    }
+
+    /**
+     * @param file the exported tree
+     * @return the root of the tree, the project itself
+     * @throws IOException if the file cannot be read or is not an exported tree
+     */
+    DependencyNode read(final File file) throws IOException
+    {
+        String content;
+        try
+        {
+            content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new IOException(String.format("Cannot read dependency tree: %s", e), e);
+        }
+        try
+        {
+            return content.trim().startsWith("{") ? readJson(content) : readTgf(content);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException(String.format("Cannot read dependency tree: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Reads the trivial graph format, a list of nodes each labelled with its artifact, a <code>#</code> line, then a
+     * list of edges.  The first node is the root.
+     */
+    private DependencyNode readTgf(final String content)
+    {
+        Map<String, Artifact> artifacts = new LinkedHashMap<>();
+        Map<String, List<String>> children = new HashMap<>();
+        boolean edges = false;
+        for (String line : content.split("\r?\n"))
+        {
+            if (line.isBlank())
+            {
+                continue;
+            }
+            if (line.trim().equals("#"))
+            {
+                edges = true;
+                continue;
+            }
+
+            String[] fields = line.trim().split("\\s+");
+            if (!edges)
+            {
+                if (fields.length < 2)
+                {
+                    throw new IllegalArgumentException(String.format("malformed node '%s'", line));
+                }
+                artifacts.put(fields[0], parseArtifact(fields[1]));
+            }
+            else
+            {
+                if (fields.length < 2)
+                {
+                    throw new IllegalArgumentException(String.format("malformed edge '%s'", line));
+                }
+                children.computeIfAbsent(fields[0], from -> new ArrayList<>()).add(fields[1]);
+            }
+        }
+        if (artifacts.isEmpty())
+        {
+            throw new IllegalArgumentException("no nodes");
+        }
+
+        String root = artifacts.keySet().iterator().next();
+        return tgfNode(null, root, artifacts, children);
+    }
+
+    private DependencyNode tgfNode(final DependencyNode parent, final String id, final Map<String, Artifact> artifacts,
+                                   final Map<String, List<String>> children)
+    {
+        DefaultDependencyNode node = new DefaultDependencyNode(parent, artifacts.get(id), null, null, null);
+        List<DependencyNode> nodeChildren = new ArrayList<>();
+        for (String child : children.getOrDefault(id, Collections.emptyList()))
+        {
+            Artifact artifact = artifacts.get(child);
+            if (artifact == null)
+            {
+                throw new IllegalArgumentException(String.format("edge to unknown node %s", child));
+            }
+            if (artifactFilter.include(artifact))
+            {
+                nodeChildren.add(tgfNode(node, child, artifacts, children));
+            }
+        }
+        node.setChildren(nodeChildren);
+        return node;
+    }
+
+    /**
+     * Parses an artifact as written by {@link Artifact#toString()},
+     * <code>groupId:artifactId:type[:classifier]:version[:scope]</code>.  Of five fields, the last is taken to be
+     * the scope, as every artifact but the root has one.
+     */
+    private Artifact parseArtifact(final String label)
+    {
+        String[] fields = label.split(":");
+        switch (fields.length)
+        {
+            case 4:
+                return artifact(fields[0], fields[1], fields[2], null, fields[3], null);
+            case 5:
+                return artifact(fields[0], fields[1], fields[2], null, fields[3], fields[4]);
+            case 6:
+                return artifact(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+            default:
+                throw new IllegalArgumentException(String.format("malformed artifact '%s'", label));
+        }
+    }
+
+    private DependencyNode readJson(final String content)
+    {
+        JsonParser parser = new JsonParser(content);
+        Object root = parser.parseValue();
+        parser.expectEnd();
+        return jsonNode(null, root);
+    }
+
+    private DependencyNode jsonNode(final DependencyNode parent, final Object json)
+    {
+        if (!(json instanceof Map))
+        {
+            throw new IllegalArgumentException("expected a node object");
+        }
+        Map<?, ?> object = (Map<?, ?>) json;
+        DefaultDependencyNode node = new DefaultDependencyNode(parent, jsonArtifact(object), null, null, null);
+
+        List<DependencyNode> nodeChildren = new ArrayList<>();
+        Object children = object.get("children");
+        if (children instanceof List)
+        {
+            for (Object child : (List<?>) children)
+            {
+                if (!(child instanceof Map))
+                {
+                    throw new IllegalArgumentException("expected a node object");
+                }
+                if (artifactFilter.include(jsonArtifact((Map<?, ?>) child)))
+                {
+                    nodeChildren.add(jsonNode(node, child));
+                }
+            }
+        }
+        node.setChildren(nodeChildren);
+        return node;
+    }
+
+    private Artifact jsonArtifact(final Map<?, ?> object)
+    {
+        String groupId = jsonField(object, "groupId");
+        String artifactId = jsonField(object, "artifactId");
+        String version = jsonField(object, "version");
+        if (groupId == null || artifactId == null || version == null)
+        {
+            throw new IllegalArgumentException(String.format("node without coordinates %s", object.keySet()));
+        }
+        String type = jsonField(object, "type");
+        return artifact(groupId, artifactId, type == null ? "jar" : type, jsonField(object, "classifier"), version,
+                        jsonField(object, "scope"));
+    }
+
+    /**
+     * @return the field, or <code>null</code> if it is absent or empty, as <code>dependency:tree</code> writes an
+     * absent scope or classifier
+     */
+    private static String jsonField(final Map<?, ?> object, final String name)
+    {
+        Object value = object.get(name);
+        return value instanceof String && !((String) value).isEmpty() ? (String) value : null;
+    }
+
+    private Artifact artifact(final String groupId, final String artifactId, final String type,
+                              final String classifier, final String version, final String scope)
+    {
+        ArtifactHandler handler = artifactHandlers.computeIfAbsent(type, TypeHandler::new);
+        return new DefaultArtifact(groupId, artifactId, version, scope, type, classifier, handler);
+    }
+
+    /**
+     * Handles artifacts of a type as Maven does those of a type it knows nothing about, without Maven's own handler,
+     * which is part of <code>maven-core</code>.  The report reads nothing from it.
+     */
+    private static final class TypeHandler implements ArtifactHandler
+    {
+        private final String type;
+
+        private TypeHandler(final String type)
+        {
+            this.type = type;
+        }
+
+        @Override
+        public String getExtension()
+        {
+            return type;
+        }
+
+        @Override
+        public String getDirectory()
+        {
+            return getPackaging() + "s";
+        }
+
+        @Override
+        public String getClassifier()
+        {
+            return null;
+        }
+
+        @Override
+        public String getPackaging()
+        {
+            return type;
+        }
+
+        @Override
+        public boolean isIncludesDependencies()
+        {
+            return false;
+        }
+
+        @Override
+        public String getLanguage()
+        {
+            return "none";
+        }
+
+        @Override
+        public boolean isAddedToClasspath()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Parses as much JSON as <code>dependency:tree</code> writes: objects, arrays and strings.  Numbers and literals
+     * are kept as their text.
+     */
+    private static final class JsonParser
+    {
+        private final String text;
+        private int position;
+
+        private JsonParser(final String text)
+        {
+            this.text = text;
+        }
+
+        private Object parseValue()
+        {
+            skipWhitespace();
+            if (position == text.length())
+            {
+                throw new IllegalArgumentException("unexpected end of JSON");
+            }
+            char c = text.charAt(position);
+            switch (c)
+            {
+                case '{':
+                    return parseObject();
+                case '[':
+                    return parseArray();
+                case '"':
+                    return parseString();
+                default:
+                    int start = position;
+                    while (position < text.length() && ",}] \t\r\n".indexOf(text.charAt(position)) < 0)
+                    {
+                        position++;
+                    }
+                    if (start == position)
+                    {
+                        throw error("unexpected '" + c + "'");
+                    }
+                    return text.substring(start, position);
+            }
+        }
+
+        private Map<String, Object> parseObject()
+        {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}')
+            {
+                position++;
+                return object;
+            }
+            while (true)
+            {
+                skipWhitespace();
+                if (peek() != '"')
+                {
+                    throw error("expected a field name");
+                }
+                String name = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, parseValue());
+                skipWhitespace();
+                if (peek() == ',')
+                {
+                    position++;
+                    continue;
+                }
+                expect('}');
+                return object;
+            }
+        }
+
+        private List<Object> parseArray()
+        {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (peek() == ']')
+            {
+                position++;
+                return array;
+            }
+            while (true)
+            {
+                array.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',')
+                {
+                    position++;
+                    continue;
+                }
+                expect(']');
+                return array;
+            }
+        }
+
+        private String parseString()
+        {
+            StringBuilder builder = new StringBuilder();
+            position++;
+            while (true)
+            {
+                if (position >= text.length())
+                {
+                    throw new IllegalArgumentException("unterminated JSON string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"')
+                {
+                    return builder.toString();
+                }
+                if (c != '\\')
+                {
+                    builder.append(c);
+                    continue;
+                }
+                if (position >= text.length())
+                {
+                    throw new IllegalArgumentException("unterminated JSON string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped)
+                {
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                        {
+                            throw new IllegalArgumentException("unterminated JSON string");
+                        }
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        builder.append(escaped);
+                }
+            }
+        }
+
+        private void expect(final char c)
+        {
+            if (peek() != c)
+            {
+                throw error("expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private void expectEnd()
+        {
+            skipWhitespace();
+            if (position < text.length())
+            {
+                throw error("unexpected content after the tree");
+            }
+        }
+
+        private char peek()
+        {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private void skipWhitespace()
+        {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(final String message)
+        {
+            return new IllegalArgumentException(String.format("%s at offset %d of JSON", message, position));
+        }
+    }
+}
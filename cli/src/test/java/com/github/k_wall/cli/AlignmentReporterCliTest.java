@@ -0,0 +1,128 @@
+package com.github.k_wall.cli;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlignmentReporterCliTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void namesReportsAfterTheTreesInTheirOwnDirectory()
+    {
+        File directory = folder.getRoot();
+        assertEquals(Arrays.asList("first.json", "second.tgf"),
+                     AlignmentReporterCli.outputNames(Arrays.asList(new File(directory, "first.json"),
+                                                                    new File(directory, "second.tgf"))));
+    }
+
+    @Test
+    public void namesReportsOfTreesOfTheSameNameAfterTheirPaths()
+    {
+        File repos = new File(folder.getRoot(), "repos");
+        assertEquals(Arrays.asList("a_tree.json", "b_c_tree.json"),
+                     AlignmentReporterCli.outputNames(Arrays.asList(new File(repos, "a/tree.json"),
+                                                                    new File(repos, "b/c/tree.json"))));
+    }
+
+    @Test
+    public void rejectsTreesThatWouldShareAReport()
+    {
+        File repos = new File(folder.getRoot(), "repos");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> AlignmentReporterCli.outputNames(
+                Arrays.asList(new File(repos, "a_b.json"), new File(repos, "a/b.json"))));
+        assertEquals(String.format("%s and %s would both be reported to a_b.json",
+                                   new File(repos, "a_b.json"), new File(repos, "a/b.json")), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> AlignmentReporterCli.outputNames(
+                Arrays.asList(new File(repos, "a/tree.json"), new File(repos, "a/./tree.json"))));
+    }
+
+    @Test
+    public void writesAReportForEachTreeOfTheSameName() throws IOException
+    {
+        File first = tree("first/tree.tgf", "org.other:util:jar:1.0:compile");
+        File second = tree("second/tree.tgf", "org.other:util:jar:1.redhat-1:compile");
+        File outputDir = folder.newFolder("reports");
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = AlignmentReporterCli.run(new String[] {"--alignment-pattern", "redhat",
+                                                            "--output-dir", outputDir.getPath(),
+                                                            first.getPath(), second.getPath()},
+                                              new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"),
+                                              new PrintStream(err, true, "UTF-8"));
+        assertEquals(0, status);
+
+        String firstReport = read(new File(outputDir, "first_tree.tgf.txt"));
+        String secondReport = read(new File(outputDir, "second_tree.tgf.txt"));
+        assertTrue(firstReport, firstReport.contains(first.getPath()));
+        assertTrue(firstReport, firstReport.contains("Unaligned transitive - org.other:util:jar:1.0:compile"));
+        assertTrue(secondReport, secondReport.contains(second.getPath()));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").contains(first.getPath()));
+    }
+
+    @Test
+    public void rejectsTopOffendersBelowOne() throws IOException
+    {
+        File tree = tree("tree.tgf", "org.other:util:jar:1.0:compile");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = AlignmentReporterCli.run(new String[] {"--alignment-pattern", "redhat", "--top-offenders", "0",
+                                                            tree.getPath()},
+                                              new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+        assertEquals(2, status);
+        assertEquals("", out.toString("UTF-8"));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").startsWith("--top-offenders must be at least 1"));
+    }
+
+    private File tree(final String path, final String transitive) throws IOException
+    {
+        File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+        String content = String.join("\n",
+                                     "1 org.example:app:jar:1.0",
+                                     "2 org.example:lib:jar:2.redhat-1:compile",
+                                     "3 " + transitive,
+                                     "#",
+                                     "1 2 compile",
+                                     "2 3 compile");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(final File file) throws IOException
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
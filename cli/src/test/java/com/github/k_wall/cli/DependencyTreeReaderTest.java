@@ -0,0 +1,210 @@
+package com.github.k_wall.cli;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyTreeReaderTest
+{
+    private static final String TGF = String.join("\n",
+            "1 org.example:app:jar:1.0",
+            "2 org.example:lib:jar:2.0:compile",
+            "3 org.other:util:jar:tests:3.1:test",
+            "4 org.other:core:jar:4.0:runtime",
+            "#",
+            "1 2 compile",
+            "1 3 test",
+            "2 4 runtime");
+
+    private static final String JSON = String.join("\n",
+            "{",
+            "  \"groupId\": \"org.example\", \"artifactId\": \"app\", \"version\": \"1.0\", \"type\": \"jar\",",
+            "  \"scope\": \"\", \"classifier\": \"\", \"optional\": \"false\",",
+            "  \"children\": [",
+            "    {",
+            "      \"groupId\": \"org.example\", \"artifactId\": \"lib\", \"version\": \"2.0\", \"type\": \"jar\",",
+            "      \"scope\": \"compile\", \"classifier\": \"\", \"optional\": \"false\",",
+            "      \"children\": [",
+            "        {",
+            "          \"groupId\": \"org.other\", \"artifactId\": \"core\", \"version\": \"4.0\", \"type\": \"jar\",",
+            "          \"scope\": \"runtime\", \"classifier\": \"\", \"optional\": \"false\"",
+            "        }",
+            "      ]",
+            "    },",
+            "    {",
+            "      \"groupId\": \"org.other\", \"artifactId\": \"util\", \"version\": \"3.1\", \"type\": \"jar\",",
+            "      \"scope\": \"test\", \"classifier\": \"tests\", \"optional\": \"false\"",
+            "    }",
+            "  ]",
+            "}");
+
+    private static final String EXPECTED = "org.example:app:jar:1.0["
+                                           + "org.example:lib:jar:2.0:compile[org.other:core:jar:4.0:runtime], "
+                                           + "org.other:util:jar:tests:3.1:test]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTgf() throws IOException
+    {
+        assertEquals(EXPECTED, render(read(TGF)));
+    }
+
+    @Test
+    public void readsJson() throws IOException
+    {
+        assertEquals(EXPECTED, render(read(JSON)));
+    }
+
+    @Test
+    public void readsTgfWithWindowsLineEndingsAndBlankLines() throws IOException
+    {
+        assertEquals(EXPECTED, render(read("\r\n" + TGF.replace("\n", "\r\n\r\n") + "\r\n")));
+    }
+
+    @Test
+    public void readsJsonEscapes() throws IOException
+    {
+        DependencyNode root = read("{\"groupId\": \"org.ex\\u0061mple\", \"artifactId\": \"a\\\"b\", \"version\": \"1\"}");
+        assertEquals("org.example", root.getArtifact().getGroupId());
+        assertEquals("a\"b", root.getArtifact().getArtifactId());
+        assertEquals("jar", root.getArtifact().getType());
+    }
+
+    @Test
+    public void readsATgfNodeSharedBetweenParentsUnderEach() throws IOException
+    {
+        String tgf = String.join("\n",
+                                 "1 org.example:app:jar:1.0",
+                                 "2 org.example:a:jar:1.0:compile",
+                                 "3 org.example:b:jar:1.0:compile",
+                                 "4 org.other:shared:jar:2.0:compile",
+                                 "#",
+                                 "1 2 compile",
+                                 "1 3 compile",
+                                 "2 4 compile",
+                                 "3 4 compile");
+        assertEquals("org.example:app:jar:1.0[org.example:a:jar:1.0:compile[org.other:shared:jar:2.0:compile], "
+                     + "org.example:b:jar:1.0:compile[org.other:shared:jar:2.0:compile]]", render(read(tgf)));
+    }
+
+    @Test
+    public void readsJsonOutsideAscii() throws IOException
+    {
+        DependencyNode root = read("{\"groupId\": \"org.\u00e9xample\", \"artifactId\": \"caf\\u00e9\", "
+                                   + "\"version\": \"1\"}");
+        assertEquals("org.\u00e9xample", root.getArtifact().getGroupId());
+        assertEquals("caf\u00e9", root.getArtifact().getArtifactId());
+    }
+
+    @Test
+    public void omitsFilteredArtifactsWithTheirSubtrees() throws IOException
+    {
+        ArtifactFilter filter = artifact -> !artifact.getArtifactId().equals("lib");
+        String expected = "org.example:app:jar:1.0[org.other:util:jar:tests:3.1:test]";
+        assertEquals(expected, render(read(TGF, filter)));
+        assertEquals(expected, render(read(JSON, filter)));
+    }
+
+    @Test
+    public void rejectsMalformedTgf()
+    {
+        assertMalformed("1 org.example:app:jar:1.0\n2\n#\n", "malformed node '2'");
+        assertMalformed("1 org.example:app:jar:1.0\n#\n1\n", "malformed edge '1'");
+        assertMalformed("\n#\n", "no nodes");
+        assertMalformed("", "no nodes");
+        assertMalformed("1 org.example:app:jar:1.0\n#\n1 2\n", "edge to unknown node 2");
+        assertMalformed("1 org.example:app\n", "malformed artifact 'org.example:app'");
+        assertMalformed("1 a:b:c:d:e:f:g\n", "malformed artifact 'a:b:c:d:e:f:g'");
+    }
+
+    @Test
+    public void rejectsMalformedJson()
+    {
+        assertMalformed("{\"groupId\": \"g\", \"artifactId\": \"a\"}", "node without coordinates [groupId, artifactId]");
+        assertMalformed("{\"groupId\": \"g\", \"artifactId\": \"a\", \"version\": \"1\", \"children\": [\"x\"]}",
+                        "expected a node object");
+        assertMalformed("{\"groupId\": \"g", "unterminated JSON string");
+        assertMalformed("{\"groupId\": \"g\\u00", "unterminated JSON string");
+        assertMalformed("{\"groupId\": ", "unexpected end of JSON");
+        assertMalformed("{\"groupId\" \"g\"}", "expected ':' at offset 11 of JSON");
+        assertMalformed("{groupId: \"g\"}", "expected a field name at offset 1 of JSON");
+        assertMalformed("{\"groupId\": \"g\"", "expected '}' at offset 15 of JSON");
+        assertMalformed("{\"groupId\": \"g\", \"artifactId\": \"a\", \"version\": \"1\"} {}",
+                        "unexpected content after the tree at offset 52 of JSON");
+        assertMalformed("{\"children\": [,]}", "unexpected ',' at offset 14 of JSON");
+    }
+
+    @Test
+    public void reportsUnreadableFile()
+    {
+        File missing = new File(folder.getRoot(), "missing.tgf");
+        IOException e = assertThrows(IOException.class, () -> new DependencyTreeReader(artifact -> true).read(missing));
+        assertEquals(String.format("Cannot read dependency tree: java.nio.file.NoSuchFileException: %s", missing),
+                     e.getMessage());
+    }
+
+    private void assertMalformed(final String content, final String message)
+    {
+        IOException e = assertThrows(IOException.class, () -> read(content));
+        assertEquals("Cannot read dependency tree: " + message, e.getMessage());
+    }
+
+    private DependencyNode read(final String content) throws IOException
+    {
+        return read(content, artifact -> true);
+    }
+
+    private DependencyNode read(final String content, final ArtifactFilter filter) throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return new DependencyTreeReader(filter).read(file);
+    }
+
+    /**
+     * @return the node's artifact, followed by its children in brackets
+     */
+    private static String render(final DependencyNode node)
+    {
+        StringBuilder builder = new StringBuilder(node.getArtifact().toString());
+        if (!node.getChildren().isEmpty())
+        {
+            builder.append('[');
+            for (int i = 0; i < node.getChildren().size(); i++)
+            {
+                builder.append(i == 0 ? "" : ", ").append(render(node.getChildren().get(i)));
+            }
+            builder.append(']');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Tests whether a version satisfies any of the alignment patterns, a version satisfying a pattern if the pattern is
+ * found anywhere within it.
+ *
+ * <p>Alignment patterns are usually literals, or a few literals separated by <code>|</code>.  The literals of all
+ * such patterns are found together, in a single scan of the version with an Aho-Corasick automaton, or with
+ * {@link String#contains(CharSequence)} when there is only one.  Any other pattern is matched as a regular
+ * expression.</p>
+ */
+public final class AlignmentMatcher
+{
+    private final List<Pattern> patterns;
+    private final LiteralMatcher literals;
+    private final List<Pattern> regularExpressions = new ArrayList<>();
+
+    private AlignmentMatcher(final List<Pattern> patterns)
+    {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+
+        Set<String> allLiterals = new LinkedHashSet<>();
+        for (Pattern pattern : patterns)
+        {
+            List<String> alternatives = literalAlternatives(pattern);
+            if (alternatives != null)
+            {
+                allLiterals.addAll(alternatives);
+            }
+            else
+            {
+                regularExpressions.add(pattern);
+            }
+        }
+        literals = LiteralMatcher.of(allLiterals);
+    }
+
+    /**
+     * @param patterns the alignment patterns
+     * @return a matcher for the patterns
+     */
+    public static AlignmentMatcher compile(final List<Pattern> patterns)
+    {
+        return new AlignmentMatcher(patterns);
+    }
+
+    /**
+     * @param sources the alignment patterns, as regular expressions
+     * @return a matcher for the patterns
+     * @throws IllegalArgumentException if a pattern is not a valid regular expression
+     */
+    public static AlignmentMatcher compileSources(final List<String> sources)
+    {
+        List<Pattern> patterns = new ArrayList<>(sources.size());
+        for (String source : sources)
+        {
+            try
+            {
+                patterns.add(Pattern.compile(source));
+            }
+            catch (PatternSyntaxException e)
+            {
+                throw new IllegalArgumentException(String.format("Invalid alignment pattern: %s", source), e);
+            }
+        }
+        return compile(patterns);
+    }
+
+    /**
+     * @param version the version
+     * @return <code>true</code> if any of the patterns is found within the version
+     */
+    boolean matches(final String version)
+    {
+        if (literals != null && literals.matches(version))
+        {
+            return true;
+        }
+        for (Pattern pattern : regularExpressions)
+        {
+            if (pattern.matcher(version).find())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the patterns, each with its flags, one per line
+     */
+    @Override
+    public String toString()
+    {
+        return patterns.stream()
+                       .map(pattern -> pattern.pattern() + "/" + pattern.flags())
+                       .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Returns the literals a pattern is made of, if it is nothing but literals separated by <code>|</code>.  A
+     * metacharacter escaped with a backslash is taken literally; any other escape, and any unescaped metacharacter,
+     * makes the pattern a regular expression.
+     *
+     * @param pattern the pattern
+     * @return the literals, or <code>null</code> if the pattern is not made of literals alone
+     */
+    private static List<String> literalAlternatives(final Pattern pattern)
+    {
+        if (pattern.flags() != 0)
+        {
+            return null;
+        }
+
+        String regex = pattern.pattern();
+        List<String> alternatives = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++)
+        {
+            char c = regex.charAt(i);
+            if (c == '|')
+            {
+                alternatives.add(literal.toString());
+                literal.setLength(0);
+            }
+            else if (c == '\\')
+            {
+                if (++i == regex.length() || Character.isLetterOrDigit(regex.charAt(i)))
+                {
+                    return null;
+                }
+                literal.append(regex.charAt(i));
+            }
+            else if (".[]{}()*+?^$".indexOf(c) >= 0)
+            {
+                return null;
+            }
+            else
+            {
+                literal.append(c);
+            }
+        }
+        alternatives.add(literal.toString());
+        return alternatives;
+    }
+
+    /**
+     * Finds any of a set of literals within a string.
+     */
+    private interface LiteralMatcher
+    {
+        boolean matches(String s);
+
+        static LiteralMatcher of(final Set<String> literals)
+        {
+            if (literals.isEmpty())
+            {
+                return null;
+            }
+            if (literals.contains(""))
+            {
+                // the empty literal is found in every string
+                return s -> true;
+            }
+            if (literals.size() == 1)
+            {
+                String literal = literals.iterator().next();
+                return s -> s.contains(literal);
+            }
+            return new AhoCorasick(literals);
+        }
+    }
+
+    /**
+     * An Aho-Corasick automaton, with its failure links folded into a full transition table so that each character
+     * of the string costs a single table lookup.
+     */
+    private static final class AhoCorasick implements LiteralMatcher
+    {
+        private static final int ASCII = 128;
+
+        private final int[] asciiColumns = new int[ASCII];
+        private final Map<Character, Integer> otherColumns = new HashMap<>();
+        private final int[][] transitions;
+        private final boolean[] accepting;
+
+        private AhoCorasick(final Set<String> literals)
+        {
+            Arrays.fill(asciiColumns, -1);
+            int columns = 0;
+            for (String literal : literals)
+            {
+                for (int i = 0; i < literal.length(); i++)
+                {
+                    char c = literal.charAt(i);
+                    if (column(c) < 0)
+                    {
+                        if (c < ASCII)
+                        {
+                            asciiColumns[c] = columns++;
+                        }
+                        else
+                        {
+                            otherColumns.put(c, columns++);
+                        }
+                    }
+                }
+            }
+
+            // the trie of the literals, -1 marking a missing edge
+            List<int[]> trie = new ArrayList<>();
+            List<Boolean> ends = new ArrayList<>();
+            trie.add(newRow(columns));
+            ends.add(false);
+            for (String literal : literals)
+            {
+                int state = 0;
+                for (int i = 0; i < literal.length(); i++)
+                {
+                    int column = column(literal.charAt(i));
+                    if (trie.get(state)[column] < 0)
+                    {
+                        trie.get(state)[column] = trie.size();
+                        trie.add(newRow(columns));
+                        ends.add(false);
+                    }
+                    state = trie.get(state)[column];
+                }
+                ends.set(state, true);
+            }
+
+            transitions = trie.toArray(new int[0][]);
+            accepting = new boolean[transitions.length];
+            int[] failure = new int[transitions.length];
+            for (int state = 0; state < accepting.length; state++)
+            {
+                accepting[state] = ends.get(state);
+            }
+
+            // breadth first, so that a state's failure state is complete before the state itself
+            Queue<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty())
+            {
+                int state = queue.remove();
+                int[] row = transitions[state];
+                for (int column = 0; column < columns; column++)
+                {
+                    int next = row[column];
+                    if (next >= 0)
+                    {
+                        failure[next] = state == 0 ? 0 : transitions[failure[state]][column];
+                        accepting[next] |= accepting[failure[next]];
+                        queue.add(next);
+                    }
+                    else
+                    {
+                        row[column] = state == 0 ? 0 : transitions[failure[state]][column];
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean matches(final String s)
+        {
+            int state = 0;
+            for (int i = 0; i < s.length(); i++)
+            {
+                int column = column(s.charAt(i));
+                state = column < 0 ? 0 : transitions[state][column];
+                if (accepting[state])
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int column(final char c)
+        {
+            if (c < ASCII)
+            {
+                return asciiColumns[c];
+            }
+            Integer column = otherColumns.get(c);
+            return column != null ? column : -1;
+        }
+
+        private static int[] newRow(final int columns)
+        {
+            int[] row = new int[columns];
+            Arrays.fill(row, -1);
+            return row;
+        }
+    }
+}
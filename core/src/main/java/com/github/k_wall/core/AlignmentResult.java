@@ -0,0 +1,277 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The classification of the direct dependencies of an {@link ArtifactGraph}.  The direct dependencies are
+ * classified on construction; the summary and the detail are worked out when first asked for.
+ *
+ * <p>Given a pool, the subtrees of the aligned direct dependencies are analysed, and their detail and the blast radius
+ * index worked out, concurrently.  The results of each direct dependency are kept apart and combined in the order the
+ * direct dependencies were encountered, so the result is the same as if worked out sequentially.</p>
+ */
+public final class AlignmentResult
+{
+    private final ArtifactGraph graph;
+    private final int[] alignedDirectDependencies;
+    private final int[] sortedAlignedDirectDependencies;
+    private final int[] unalignedDirectDependencies;
+    private final TransitiveAlignmentAnalyzer analyzer;
+    private final ForkJoinPool pool;
+    private int[] incompletelyAlignedDirectDependencies;
+    private DetailMode detailMode;
+    private List<UnalignedPath> unalignedPaths;
+    private BlastRadiusIndex blastRadiusIndex;
+
+    /**
+     * @param graph the graph
+     * @param verdictCache the cache of alignment verdicts
+     * @param pool the pool to traverse the subtrees of the aligned direct dependencies in, or <code>null</code> to
+     * traverse them sequentially
+     * @param subtreeCache what earlier builds found of the subtrees of the graph, or <code>null</code>
+     */
+    public AlignmentResult(final ArtifactGraph graph, final AlignmentVerdictCache verdictCache, final ForkJoinPool pool,
+                           final SubtreeSummaryCache subtreeCache)
+    {
+        this.graph = graph;
+        this.pool = pool;
+        boolean[] aligned = graph.classify(verdictCache);
+
+        int[] direct = graph.getDirectDependencies();
+        alignedDirectDependencies = Arrays.stream(direct).filter(id -> aligned[id]).toArray();
+        unalignedDirectDependencies = Arrays.stream(direct).filter(id -> !aligned[id]).toArray();
+        sortedAlignedDirectDependencies = alignedDirectDependencies.clone();
+        graph.sortByArtifact(sortedAlignedDirectDependencies);
+        graph.sortByArtifact(unalignedDirectDependencies);
+
+        analyzer = new TransitiveAlignmentAnalyzer(graph, aligned,
+                                                   subtreeCache == null ? null : id -> subtreeCache.lookup(graph, id));
+    }
+
+    ArtifactGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return the aligned direct dependencies, in the order they were encountered
+     */
+    public int[] getAlignedDirectDependencies()
+    {
+        return alignedDirectDependencies.clone();
+    }
+
+    /**
+     * @return the aligned direct dependencies, sorted
+     */
+    int[] getSortedAlignedDirectDependencies()
+    {
+        return sortedAlignedDirectDependencies.clone();
+    }
+
+    /**
+     * @return the unaligned direct dependencies, sorted
+     */
+    public int[] getUnalignedDirectDependencies()
+    {
+        return unalignedDirectDependencies.clone();
+    }
+
+    /**
+     * @return the aligned direct dependencies with at least one unaligned transitive dependency, sorted
+     */
+    public int[] getIncompletelyAlignedDirectDependencies()
+    {
+        if (incompletelyAlignedDirectDependencies == null)
+        {
+            incompletelyAlignedDirectDependencies = overAlignedDirectDependencies(
+                    stream -> stream.filter(analyzer::hasUnalignedTransitives).toArray());
+            graph.sortByArtifact(incompletelyAlignedDirectDependencies);
+        }
+        return incompletelyAlignedDirectDependencies.clone();
+    }
+
+    /**
+     * @return <code>true</code> if any aligned direct dependency has an unaligned transitive dependency, looking no
+     * further than the first that does
+     */
+    public boolean hasIncompletelyAlignedDirectDependency()
+    {
+        if (incompletelyAlignedDirectDependencies != null)
+        {
+            return incompletelyAlignedDirectDependencies.length > 0;
+        }
+        return overAlignedDirectDependencies(stream -> stream.anyMatch(analyzer::hasUnalignedTransitives));
+    }
+
+    /**
+     * @return the index of the unaligned transitive dependencies by the aligned direct dependencies reaching them
+     */
+    public BlastRadiusIndex getBlastRadiusIndex()
+    {
+        if (blastRadiusIndex == null)
+        {
+            List<int[]> unalignedTransitives = mapAlignedDirectDependencies(analyzer::getUnalignedTransitives);
+            blastRadiusIndex = new BlastRadiusIndex(graph, alignedDirectDependencies, unalignedTransitives);
+        }
+        return blastRadiusIndex;
+    }
+
+    /**
+     * Returns the paths from the aligned direct dependencies to their unaligned transitive dependencies, sorted by
+     * transitive dependency.  The paths are worked out once, in the mode first asked for.
+     *
+     * @param mode how the paths are to be listed
+     * @return the paths
+     * @throws IllegalStateException if the paths have already been worked out in the other mode
+     */
+    public List<UnalignedPath> getUnalignedPaths(final DetailMode mode)
+    {
+        if (unalignedPaths == null)
+        {
+            // The direct dependencies are distinct, so each path is listed once.
+            List<UnalignedPath> paths = new ArrayList<>();
+            for (List<UnalignedPath> directPaths : mapAlignedDirectDependencies(id -> {
+                List<UnalignedPath> collected = new ArrayList<>();
+                if (mode == DetailMode.ALL_PATHS)
+                {
+                    analyzer.collectUnalignedPaths(id, collected);
+                }
+                else
+                {
+                    analyzer.collectShortestUnalignedPaths(id, collected);
+                }
+                return collected;
+            }))
+            {
+                paths.addAll(directPaths);
+            }
+            paths.sort(Comparator.comparingInt(path -> graph.getSortKey(path.getArtifact())));
+            detailMode = mode;
+            unalignedPaths = Collections.unmodifiableList(paths);
+        }
+        else if (mode != detailMode)
+        {
+            throw new IllegalStateException("Unaligned paths already listed in " + detailMode + " mode");
+        }
+        return unalignedPaths;
+    }
+
+    /**
+     * Adds what was found of each subtree analysed, rather than already known, to the cache.
+     *
+     * @param subtreeCache the cache
+     */
+    public void addSubtreeSummaries(final SubtreeSummaryCache subtreeCache)
+    {
+        for (int id = 0; id < graph.size(); id++)
+        {
+            Boolean unaligned = analyzer.getAnalysedVerdict(id);
+            if (unaligned != null)
+            {
+                subtreeCache.add(graph, id, unaligned);
+            }
+        }
+    }
+
+    /**
+     * Describes what is unaligned in the given results.  Where the results are those of several scopes of the same
+     * graph, a dependency is counted once however many scopes it appears in.
+     *
+     * @param results the results
+     * @return the description, or <code>null</code> if every dependency is aligned
+     */
+    public static String describeUnaligned(final Collection<AlignmentResult> results)
+    {
+        Set<String> unalignedDirect = new HashSet<>();
+        Set<String> unalignedTransitives = new HashSet<>();
+        for (AlignmentResult result : results)
+        {
+            ArtifactGraph resultGraph = result.getGraph();
+            Arrays.stream(result.getUnalignedDirectDependencies())
+                  .forEach(id -> unalignedDirect.add(resultGraph.getCoordinate(id)));
+            Arrays.stream(result.getIncompletelyAlignedDirectDependencies())
+                  .forEach(id -> unalignedTransitives.add(resultGraph.getCoordinate(id)));
+        }
+
+        StringBuilder failureMessages = new StringBuilder();
+
+        if (!unalignedDirect.isEmpty())
+        {
+            failureMessages.append(String.format("There %s %d unaligned direct dependenc%s",
+                                                 unalignedDirect.size() == 1 ? "is" : "are",
+                                                 unalignedDirect.size(),
+                                                 unalignedDirect.size() == 1 ? "y" : "ies"));
+        }
+
+        if (!unalignedTransitives.isEmpty())
+        {
+            failureMessages.append(failureMessages.length() > 0 ? " and there" : "There");
+
+            failureMessages.append(String.format(
+                    " %s %d aligned direct dependenc%s with at least one unaligned transitive dependency",
+                    unalignedTransitives.size() == 1 ? "is" : "are",
+                    unalignedTransitives.size(),
+                    unalignedTransitives.size() == 1 ? "y" : "ies"));
+        }
+        else if (failureMessages.length() > 0)
+        {
+            failureMessages.append(".");
+        }
+
+        return failureMessages.length() > 0 ? failureMessages.toString() : null;
+    }
+
+    /**
+     * Applies the task to each aligned direct dependency.
+     *
+     * @return the results, in the order the direct dependencies were encountered
+     */
+    private <T> List<T> mapAlignedDirectDependencies(final IntFunction<T> task)
+    {
+        return overAlignedDirectDependencies(stream -> stream.mapToObj(task).collect(Collectors.toList()));
+    }
+
+    /**
+     * Applies the operation to a stream of the aligned direct dependencies, in the order they were encountered.  Given
+     * a pool, the stream is parallel and the operation is applied in the pool; the tasks fill the analyzer's memo as
+     * they go.
+     */
+    private <T> T overAlignedDirectDependencies(final Function<IntStream, T> operation)
+    {
+        if (pool == null)
+        {
+            return operation.apply(IntStream.of(alignedDirectDependencies));
+        }
+        return pool.submit(() -> operation.apply(IntStream.of(alignedDirectDependencies).parallel())).join();
+    }
+}
@@ -0,0 +1,353 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What a report found unaligned, reduced to one entry for each unaligned direct dependency, incompletely aligned
+ * direct dependency and unaligned transitive path, so that the next report can list only what has changed.
+ *
+ * <p>The entries are held sorted in the order they are reported, by scope, kind and text, so two snapshots are compared
+ * in a single merge of their entries.  A path is compared without its path count, so a path is not taken to have
+ * changed merely because more routes lead along it.  Snapshots are written compressed.</p>
+ */
+public final class AlignmentSnapshot
+{
+    private static final int MAGIC = 0x414c4e43;
+
+    /**
+     * Separates the artifacts of the text of an unaligned transitive path, the unaligned artifact first.
+     */
+    static final String PATH_SEPARATOR = " <- ";
+
+    /**
+     * The kinds of entry, in the order they are reported.
+     */
+    enum Kind
+    {
+        UNALIGNED_DIRECT("Unaligned direct", "unalignedDirect"),
+        INCOMPLETELY_ALIGNED("Incompletely aligned", "incompletelyAligned"),
+        UNALIGNED_TRANSITIVE("Unaligned transitive", "unalignedTransitive");
+
+        private final String label;
+        private final String key;
+
+        Kind(final String label, final String key)
+        {
+            this.label = label;
+            this.key = key;
+        }
+
+        String getLabel()
+        {
+            return label;
+        }
+
+        /**
+         * @return the name of the kind in machine readable reports
+         */
+        String getKey()
+        {
+            return key;
+        }
+    }
+
+    /**
+     * An entry of a snapshot.
+     */
+    static final class Entry
+    {
+        private static final Comparator<Entry> REPORT_ORDER =
+                Comparator.comparing((Entry entry) -> entry.scope, Comparator.nullsFirst(Comparator.naturalOrder()))
+                          .thenComparing(entry -> entry.kind)
+                          .thenComparing(entry -> entry.text);
+
+        private final String scope;
+        private final Kind kind;
+        private final String text;
+
+        private Entry(final String scope, final Kind kind, final String text)
+        {
+            this.scope = scope;
+            this.kind = kind;
+            this.text = text;
+        }
+
+        /**
+         * @return the scope of the report the entry belongs to, or <code>null</code> if the report was not split by
+         * scope
+         */
+        String getScope()
+        {
+            return scope;
+        }
+
+        Kind getKind()
+        {
+            return kind;
+        }
+
+        String getText()
+        {
+            return text;
+        }
+    }
+
+    /**
+     * The entries added to and removed from a snapshot, each in the order they are reported: by scope, kind and
+     * text.
+     */
+    public static final class Delta
+    {
+        private final List<Entry> regressions;
+        private final List<Entry> fixes;
+
+        /**
+         * @param regressions the entries new since the baseline, in the order they are reported
+         * @param fixes the entries of the baseline since fixed, in the order they are reported
+         */
+        private Delta(final List<Entry> regressions, final List<Entry> fixes)
+        {
+            this.regressions = regressions;
+            this.fixes = fixes;
+        }
+
+        /**
+         * @return the entries that are new since the baseline
+         */
+        List<Entry> getRegressions()
+        {
+            return regressions;
+        }
+
+        /**
+         * @return the entries of the baseline that have since been fixed
+         */
+        List<Entry> getFixes()
+        {
+            return fixes;
+        }
+
+        /**
+         * @return a description of the regressions, or <code>null</code> if there are none
+         */
+        public String describeRegressions()
+        {
+            if (regressions.isEmpty())
+            {
+                return null;
+            }
+            return String.format("There %s %d alignment regression%s since the baseline",
+                                 regressions.size() == 1 ? "is" : "are",
+                                 regressions.size(),
+                                 regressions.size() == 1 ? "" : "s");
+        }
+    }
+
+    private final DetailMode detailMode;
+    private final Entry[] entries;
+
+    private AlignmentSnapshot(final DetailMode detailMode, final List<Entry> entries)
+    {
+        this.detailMode = detailMode;
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, Entry.REPORT_ORDER);
+
+        // an entry found in several modules or along several routes is kept once
+        int count = 0;
+        for (Entry entry : sorted)
+        {
+            if (count == 0 || Entry.REPORT_ORDER.compare(sorted[count - 1], entry) != 0)
+            {
+                sorted[count++] = entry;
+            }
+        }
+        this.entries = Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Takes a snapshot of the given results.
+     *
+     * @param results the results, by scope; the scope is <code>null</code> if the report is not split by scope
+     * @param detailMode the mode in which the paths are listed
+     * @return the snapshot
+     */
+    public static AlignmentSnapshot of(final Map<String, AlignmentResult> results, final DetailMode detailMode)
+    {
+        List<Entry> entries = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, AlignmentResult> scoped : results.entrySet())
+        {
+            String scope = scoped.getKey();
+            AlignmentResult result = scoped.getValue();
+            ArtifactGraph graph = result.getGraph();
+            for (int id : result.getUnalignedDirectDependencies())
+            {
+                entries.add(new Entry(scope, Kind.UNALIGNED_DIRECT, graph.getLabel(id)));
+            }
+            for (int id : result.getIncompletelyAlignedDirectDependencies())
+            {
+                entries.add(new Entry(scope, Kind.INCOMPLETELY_ALIGNED, graph.getLabel(id)));
+            }
+            for (UnalignedPath path : result.getUnalignedPaths(detailMode))
+            {
+                text.setLength(0);
+                path.appendTo(text, graph, PATH_SEPARATOR);
+                entries.add(new Entry(scope, Kind.UNALIGNED_TRANSITIVE, text.toString()));
+            }
+        }
+        return new AlignmentSnapshot(detailMode, entries);
+    }
+
+    /**
+     * @return the mode in which the paths of the snapshot were listed
+     */
+    public DetailMode getDetailMode()
+    {
+        return detailMode;
+    }
+
+    /**
+     * Compares this snapshot with an earlier one.
+     *
+     * @param baseline the earlier snapshot
+     * @return what is in this snapshot but not the baseline, and what is in the baseline but not this snapshot, each
+     * in the order they are reported
+     */
+    public Delta diff(final AlignmentSnapshot baseline)
+    {
+        List<Entry> regressions = new ArrayList<>();
+        List<Entry> fixes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < entries.length || j < baseline.entries.length)
+        {
+            int order;
+            if (i == entries.length)
+            {
+                order = 1;
+            }
+            else if (j == baseline.entries.length)
+            {
+                order = -1;
+            }
+            else
+            {
+                order = Entry.REPORT_ORDER.compare(entries[i], baseline.entries[j]);
+            }
+            if (order < 0)
+            {
+                regressions.add(entries[i++]);
+            }
+            else if (order > 0)
+            {
+                fixes.add(baseline.entries[j++]);
+            }
+            else
+            {
+                i++;
+                j++;
+            }
+        }
+        return new Delta(regressions, fixes);
+    }
+
+    /**
+     * @param file the file to write the snapshot to
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(final File file) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+        {
+            Files.createDirectories(parent.toPath());
+        }
+        try (OutputStream stream = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+             DataOutputStream out = new DataOutputStream(stream))
+        {
+            out.writeInt(MAGIC);
+            out.writeUTF(detailMode.name());
+            out.writeInt(entries.length);
+            for (Entry entry : entries)
+            {
+                out.writeByte(entry.kind.ordinal());
+                writeString(out, entry.scope == null ? "" : entry.scope);
+                writeString(out, entry.text);
+            }
+        }
+    }
+
+    /**
+     * @param file the file to read
+     * @return the snapshot written to the file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static AlignmentSnapshot readFrom(final File file) throws IOException
+    {
+        try (InputStream stream = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+             DataInputStream in = new DataInputStream(stream))
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException(String.format("%s is not an alignment snapshot", file));
+            }
+            DetailMode detailMode = DetailMode.valueOf(in.readUTF());
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                Kind kind = Kind.values()[in.readByte()];
+                String scope = readString(in);
+                entries.add(new Entry(scope.isEmpty() ? null : scope, kind, readString(in)));
+            }
+            return new AlignmentSnapshot(detailMode, entries);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
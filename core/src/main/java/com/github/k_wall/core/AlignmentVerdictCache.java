@@ -0,0 +1,84 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers whether a version string satisfies the alignment pattern, so that each distinct version is matched
+ * against the pattern only once however many times it appears in the dependency graphs.
+ *
+ * <p>Safe for concurrent use.</p>
+ */
+public final class AlignmentVerdictCache
+{
+    private final AlignmentMatcher alignmentMatcher;
+    private final ConcurrentMap<String, Boolean> verdicts = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AlignmentVerdictCache(final AlignmentMatcher alignmentMatcher)
+    {
+        this.alignmentMatcher = alignmentMatcher;
+    }
+
+    /**
+     * @param version the version to test
+     * @return <code>true</code> if the version satisfies the alignment pattern
+     */
+    boolean isAligned(final String version)
+    {
+        Boolean verdict = verdicts.get(version);
+        if (verdict != null)
+        {
+            hits.increment();
+            return verdict;
+        }
+        // counted as the matcher runs, which it does once for each version however many threads ask at once
+        return verdicts.computeIfAbsent(version, v -> {
+            misses.increment();
+            return alignmentMatcher.matches(v);
+        });
+    }
+
+    /**
+     * Records a verdict that is already known, for instance one read back from a cache.
+     *
+     * @param version the version
+     * @param aligned whether the version satisfies the alignment pattern
+     */
+    public void seed(final String version, final boolean aligned)
+    {
+        verdicts.putIfAbsent(version, aligned);
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of versions matched against the alignment pattern, those seeded not counting
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,724 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.filter.DependencyNodeFilter;
+
+/**
+ * A compact, immutable view of the dependency graphs being reported upon.
+ *
+ * <p>Every distinct artifact coordinate is interned to an integer id.  Children are held as primitive adjacency
+ * arrays and each artifact has a precomputed sort key, ordering artifacts by group id then artifact id, so the
+ * analysis never needs to touch the Maven object graph once the model is built.</p>
+ *
+ * <p>Artifacts are identified as {@link Artifact#equals(Object)} does: by group id, artifact id, type, classifier and
+ * version.  Where a coordinate occurs more than once, the first occurrence supplies its label and its children.</p>
+ */
+public final class ArtifactGraph
+{
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private final String[] coordinates;
+    private final String[] groupIds;
+    private final String[] artifactIds;
+    private final String[] versions;
+    private final String[] scopes;
+    private final String[] labels;
+    private final int[][] children;
+    private final int[] sortKeys;
+    private final int[] directDependencies;
+    private final String[] modules;
+    private final BitSet[] contributors;
+    private final long visitedNodes;
+    private final boolean versionRanges;
+    /** Per artifact id, the digest of its subtree, or null if not yet digested. */
+    private final AtomicReferenceArray<byte[]> subtreeDigests;
+
+    private ArtifactGraph(final Builder builder)
+    {
+        int size = builder.labels.size();
+        coordinates = builder.coordinates.toArray(new String[size]);
+        groupIds = builder.groupIds.toArray(new String[size]);
+        artifactIds = builder.artifactIds.toArray(new String[size]);
+        versions = builder.versions.toArray(new String[size]);
+        scopes = builder.scopes.toArray(new String[size]);
+        labels = builder.labels.toArray(new String[size]);
+        children = builder.children.toArray(new int[size][]);
+        directDependencies = Arrays.copyOf(builder.directDependencies, builder.directDependencyCount);
+        visitedNodes = builder.visitedNodes;
+        versionRanges = builder.versionRanges;
+        modules = builder.modules;
+        contributors = builder.contributors.toArray(new BitSet[size]);
+        subtreeDigests = new AtomicReferenceArray<>(size);
+
+        Integer[] byArtifact = new Integer[size];
+        Arrays.setAll(byArtifact, i -> i);
+        Arrays.sort(byArtifact, Comparator.<Integer, String>comparing(i -> groupIds[i])
+                                          .thenComparing(i -> artifactIds[i]));
+        sortKeys = new int[size];
+        int key = -1;
+        for (int i = 0; i < size; i++)
+        {
+            int id = byArtifact[i];
+            if (i == 0 || !sameArtifact(id, byArtifact[i - 1]))
+            {
+                key++;
+            }
+            sortKeys[id] = key;
+        }
+    }
+
+    /**
+     * Builds the model for the given direct dependencies.  Nodes rejected by the node filter are omitted, their
+     * children being attached to the nearest accepted ancestor.  A rejected direct dependency has no ancestor in the
+     * model, so it is omitted together with its subtree, as resolving the graph with the same filter would omit it.
+     *
+     * @param directDependencies the direct dependencies, in the order they are to be considered
+     * @param nodeFilter the filter selecting the nodes to include
+     * @return the model
+     */
+    public static ArtifactGraph of(final Collection<DependencyNode> directDependencies,
+                                   final DependencyNodeFilter nodeFilter)
+    {
+        Builder builder = new Builder(nodeFilter);
+        directDependencies.forEach(builder::addDirectDependency);
+        return new ArtifactGraph(builder);
+    }
+
+    /**
+     * Restricts the model to the artifacts in the given scopes.  As when a graph is built with a scope filter, an
+     * artifact outside the scopes is omitted together with its subtree.
+     *
+     * @param scopeFilter selects the scopes to retain
+     * @return the restricted model
+     */
+    public ArtifactGraph filterByScope(final Predicate<String> scopeFilter)
+    {
+        Builder builder = new Builder(null);
+        builder.modules = modules;
+        builder.versionRanges = versionRanges;
+        for (int id : directDependencies)
+        {
+            if (scopeFilter.test(scopes[id]))
+            {
+                BitSet contributed = builder.addDirectDependency(this, id, scopeFilter);
+                if (contributors[id] != null)
+                {
+                    contributed.or(contributors[id]);
+                }
+            }
+        }
+        return new ArtifactGraph(builder);
+    }
+
+    /**
+     * Reads a model written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input
+     * @return the model
+     * @throws IOException if an I/O error occurs
+     */
+    public static ArtifactGraph readFrom(final DataInput in) throws IOException
+    {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++)
+        {
+            strings[i] = in.readUTF();
+        }
+
+        int size = in.readInt();
+        Builder builder = new Builder(null);
+        for (int id = 0; id < size; id++)
+        {
+            builder.coordinates.add(readString(in, strings));
+            builder.groupIds.add(readString(in, strings));
+            builder.artifactIds.add(readString(in, strings));
+            builder.versions.add(readString(in, strings));
+            builder.scopes.add(readString(in, strings));
+            builder.labels.add(readString(in, strings));
+            int[] children = new int[in.readInt()];
+            for (int i = 0; i < children.length; i++)
+            {
+                children[i] = in.readInt();
+            }
+            builder.children.add(children);
+        }
+        int directDependencyCount = in.readInt();
+        builder.directDependencies = new int[directDependencyCount];
+        builder.directDependencyCount = directDependencyCount;
+        for (int i = 0; i < directDependencyCount; i++)
+        {
+            builder.directDependencies[i] = in.readInt();
+        }
+
+        builder.modules = new String[in.readInt()];
+        for (int i = 0; i < builder.modules.length; i++)
+        {
+            builder.modules[i] = in.readUTF();
+        }
+        for (int i = 0; i < directDependencyCount; i++)
+        {
+            byte[] bits = new byte[in.readInt()];
+            if (bits.length > 0)
+            {
+                in.readFully(bits);
+                int id = builder.directDependencies[i];
+                while (builder.contributors.size() <= id)
+                {
+                    builder.contributors.add(null);
+                }
+                builder.contributors.set(id, BitSet.valueOf(bits));
+            }
+        }
+        return new ArtifactGraph(builder);
+    }
+
+    /**
+     * Writes the model in a compact binary form.  Strings are written once, to a table referred to by index.  The
+     * modules a merged model was merged from are written with it, and so are the modules depending directly upon
+     * each direct dependency.
+     *
+     * @param out the output
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(final DataOutput out) throws IOException
+    {
+        Map<String, Integer> table = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (String[] column : Arrays.asList(coordinates, groupIds, artifactIds, versions, scopes, labels))
+        {
+            for (String string : column)
+            {
+                if (string != null && table.putIfAbsent(string, strings.size()) == null)
+                {
+                    strings.add(string);
+                }
+            }
+        }
+
+        out.writeInt(strings.size());
+        for (String string : strings)
+        {
+            out.writeUTF(string);
+        }
+
+        out.writeInt(size());
+        for (int id = 0; id < size(); id++)
+        {
+            writeString(out, table, coordinates[id]);
+            writeString(out, table, groupIds[id]);
+            writeString(out, table, artifactIds[id]);
+            writeString(out, table, versions[id]);
+            writeString(out, table, scopes[id]);
+            writeString(out, table, labels[id]);
+            out.writeInt(children[id].length);
+            for (int child : children[id])
+            {
+                out.writeInt(child);
+            }
+        }
+        out.writeInt(directDependencies.length);
+        for (int id : directDependencies)
+        {
+            out.writeInt(id);
+        }
+
+        out.writeInt(modules.length);
+        for (String module : modules)
+        {
+            out.writeUTF(module);
+        }
+        for (int id : directDependencies)
+        {
+            byte[] bits = contributors[id] == null ? new byte[0] : contributors[id].toByteArray();
+            out.writeInt(bits.length);
+            out.write(bits);
+        }
+    }
+
+    /**
+     * @return the number of dependency nodes visited whilst building the model from a dependency graph, or zero if
+     * the model was derived from another or read back
+     */
+    public long getVisitedNodes()
+    {
+        return visitedNodes;
+    }
+
+    /**
+     * @param id a direct dependency
+     * @return the modules depending directly upon it, if the model was merged from those of several modules, or
+     * else an empty list
+     */
+    List<String> getContributors(final int id)
+    {
+        if (contributors[id] == null)
+        {
+            return Collections.emptyList();
+        }
+        return contributors[id].stream().mapToObj(module -> modules[module]).collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the modules depending directly upon the given direct dependency to the given set, as indices into the
+     * modules the model was merged from.
+     *
+     * @param id a direct dependency
+     * @param modules the set to add to
+     */
+    void addContributors(final int id, final BitSet modules)
+    {
+        if (contributors[id] != null)
+        {
+            modules.or(contributors[id]);
+        }
+    }
+
+    public int size()
+    {
+        return labels.length;
+    }
+
+    public String getVersion(final int id)
+    {
+        return versions[id];
+    }
+
+    /**
+     * @return the group id, artifact id, type, classifier and version identifying the artifact
+     */
+    String getCoordinate(final int id)
+    {
+        return coordinates[id];
+    }
+
+    /**
+     * @return the artifact as it appears in the report
+     */
+    String getLabel(final int id)
+    {
+        return labels[id];
+    }
+
+    int[] getChildren(final int id)
+    {
+        return children[id];
+    }
+
+    /**
+     * @return the key ordering artifacts by group id then artifact id; artifacts differing only in type, classifier
+     * or version share a key
+     */
+    int getSortKey(final int id)
+    {
+        return sortKeys[id];
+    }
+
+    /**
+     * @return the distinct direct dependencies, in the order they were first encountered
+     */
+    public int[] getDirectDependencies()
+    {
+        return directDependencies.clone();
+    }
+
+    /**
+     * @return <code>true</code> if any artifact of the model has a snapshot version
+     */
+    public boolean containsSnapshots()
+    {
+        return IntStream.range(0, size()).anyMatch(this::isSnapshot);
+    }
+
+    /**
+     * @return <code>true</code> if the version of any dependency node the model was built from, whether or not the
+     * node was filtered out, was selected from a version range; such a model may change without any of the POMs
+     * changing.  Models read back are taken to have none, as only those without are written by the module cache.
+     */
+    public boolean containsVersionRanges()
+    {
+        return versionRanges;
+    }
+
+    /**
+     * @return <code>true</code> if the artifact has a snapshot version, whether <code>1.0-SNAPSHOT</code> or the
+     * timestamped <code>1.0-20200101.123456-1</code> it resolves to
+     */
+    boolean isSnapshot(final int id)
+    {
+        return ArtifactUtils.isSnapshot(versions[id]);
+    }
+
+    /**
+     * Returns a digest identifying the subtree beneath the artifact as resolved in this model: a SHA-256 of its label,
+     * and of the digests of its children, in order.  Subtrees resolved alike have equal digests in any model, however
+     * differently the same artifact's subtree may be resolved in others, as version mediation, dependency management,
+     * exclusions and the scopes reported upon make it.  Only the subtree beneath the artifact is digested, the first
+     * time it, or an artifact above it, is asked for.  Digests may be asked for concurrently; threads racing to digest
+     * the same subtree find the same digest.
+     *
+     * @param id an artifact
+     * @return the digest
+     */
+    byte[] getSubtreeDigest(final int id)
+    {
+        byte[] digest = subtreeDigests.get(id);
+        return (digest != null ? digest : digestSubtree(id)).clone();
+    }
+
+    /**
+     * Digests the subtree beneath the artifact in a depth first pass, each child being digested before its parent,
+     * descending only into the subtrees not already digested.
+     */
+    private byte[] digestSubtree(final int root)
+    {
+        MessageDigest digest = Digests.sha256();
+        BitSet inProgress = new BitSet();
+        Deque<int[]> stack = new ArrayDeque<>();
+        inProgress.set(root);
+        stack.push(new int[] {root, 0});
+        while (!stack.isEmpty())
+        {
+            int[] frame = stack.peek();
+            int id = frame[0];
+            if (frame[1] < children[id].length)
+            {
+                int child = children[id][frame[1]++];
+                if (subtreeDigests.get(child) == null && !inProgress.get(child))
+                {
+                    inProgress.set(child);
+                    stack.push(new int[] {child, 0});
+                }
+                continue;
+            }
+            stack.pop();
+
+            // the label, length first, then the children; a child still in progress (a cycle) contributes nothing
+            byte[] label = labels[id].getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, label.length));
+            digest.update(label);
+            for (int child : children[id])
+            {
+                byte[] childDigest = subtreeDigests.get(child);
+                if (childDigest != null)
+                {
+                    digest.update(childDigest);
+                }
+            }
+            subtreeDigests.compareAndSet(id, null, digest.digest());
+            inProgress.clear(id);
+        }
+        return subtreeDigests.get(root);
+    }
+
+    /**
+     * Classifies every artifact of the model.
+     *
+     * @param verdictCache the alignment verdicts
+     * @return per artifact id, whether the artifact is aligned
+     */
+    public boolean[] classify(final AlignmentVerdictCache verdictCache)
+    {
+        boolean[] aligned = new boolean[size()];
+        for (int id = 0; id < aligned.length; id++)
+        {
+            aligned[id] = verdictCache.isAligned(versions[id]);
+        }
+        return aligned;
+    }
+
+    /**
+     * Sorts the given artifact ids by their sort key.  The sort is stable.
+     *
+     * @param ids the ids to sort, in place
+     */
+    void sortByArtifact(final int[] ids)
+    {
+        long[] keyed = new long[ids.length];
+        for (int i = 0; i < ids.length; i++)
+        {
+            keyed[i] = ((long) sortKeys[ids[i]] << 32) | i;
+        }
+        Arrays.sort(keyed);
+        int[] original = ids.clone();
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = original[(int) keyed[i]];
+        }
+    }
+
+    private static String readString(final DataInput in, final String[] strings) throws IOException
+    {
+        int index = in.readInt();
+        return index < 0 ? null : strings[index];
+    }
+
+    private static void writeString(final DataOutput out, final Map<String, Integer> table, final String string)
+            throws IOException
+    {
+        out.writeInt(string == null ? -1 : table.get(string));
+    }
+
+    private boolean sameArtifact(final int id, final int other)
+    {
+        return groupIds[id].equals(groupIds[other]) && artifactIds[id].equals(artifactIds[other]);
+    }
+
+    /**
+     * Merges the models of several modules into one, a module at a time, so that each module's model can be dropped
+     * as soon as it has been merged.  The direct dependencies of each model are considered in turn; where a
+     * coordinate occurs in more than one model, the first model supplies its label and its children, so that the
+     * merged model holds one subtree for each coordinate however many modules depend upon it.  The modules depending
+     * directly upon each direct dependency are recorded.
+     */
+    public static final class Merger
+    {
+        private final Builder builder = new Builder(null);
+        private final List<String> modules = new ArrayList<>();
+
+        /**
+         * @param graph the model of the module
+         * @param module the name of the module, <code>groupId:artifactId</code>
+         */
+        public void add(final ArtifactGraph graph, final String module)
+        {
+            int index = modules.size();
+            modules.add(module);
+            builder.versionRanges |= graph.versionRanges;
+            for (int id : graph.directDependencies)
+            {
+                builder.addDirectDependency(graph, id, scope -> true).set(index);
+            }
+        }
+
+        /**
+         * Adds a model that was itself merged from those of several modules, such as one read back from a partial
+         * result, keeping its record of the modules depending directly upon each direct dependency.
+         *
+         * @param graph the merged model
+         */
+        public void add(final ArtifactGraph graph)
+        {
+            int offset = modules.size();
+            modules.addAll(Arrays.asList(graph.modules));
+            builder.versionRanges |= graph.versionRanges;
+            for (int id : graph.directDependencies)
+            {
+                BitSet contributed = builder.addDirectDependency(graph, id, scope -> true);
+                if (graph.contributors[id] != null)
+                {
+                    graph.contributors[id].stream().forEach(module -> contributed.set(offset + module));
+                }
+            }
+        }
+
+        /**
+         * @return the model merged from those added so far
+         */
+        public ArtifactGraph build()
+        {
+            builder.modules = modules.toArray(new String[0]);
+            return new ArtifactGraph(builder);
+        }
+    }
+
+    private static final class Builder
+    {
+        private final DependencyNodeFilter nodeFilter;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> coordinates = new ArrayList<>();
+        private final List<String> groupIds = new ArrayList<>();
+        private final List<String> artifactIds = new ArrayList<>();
+        private final List<String> versions = new ArrayList<>();
+        private final List<String> scopes = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final List<int[]> children = new ArrayList<>();
+        private int[] directDependencies = new int[16];
+        private int directDependencyCount;
+        private boolean[] isDirect = new boolean[16];
+        private long visitedNodes;
+        private boolean versionRanges;
+        private String[] modules = new String[0];
+        private final List<BitSet> contributors = new ArrayList<>();
+
+        private Builder(final DependencyNodeFilter nodeFilter)
+        {
+            this.nodeFilter = nodeFilter;
+        }
+
+        private void addDirectDependency(final DependencyNode node)
+        {
+            if (nodeFilter.accept(node))
+            {
+                addDirect(intern(node));
+            }
+        }
+
+        /**
+         * @return the modules contributing the direct dependency, for the caller to add to
+         */
+        private BitSet addDirectDependency(final ArtifactGraph graph, final int id,
+                                           final Predicate<String> scopeFilter)
+        {
+            int direct = intern(graph, id, scopeFilter);
+            addDirect(direct);
+            while (contributors.size() <= direct)
+            {
+                contributors.add(null);
+            }
+            if (contributors.get(direct) == null)
+            {
+                contributors.set(direct, new BitSet());
+            }
+            return contributors.get(direct);
+        }
+
+        private void addDirect(final int id)
+        {
+            if (id >= isDirect.length)
+            {
+                isDirect = Arrays.copyOf(isDirect, Math.max(id + 1, isDirect.length * 2));
+            }
+            if (!isDirect[id])
+            {
+                isDirect[id] = true;
+                if (directDependencyCount == directDependencies.length)
+                {
+                    directDependencies = Arrays.copyOf(directDependencies, directDependencyCount * 2);
+                }
+                directDependencies[directDependencyCount++] = id;
+            }
+        }
+
+        private int intern(final DependencyNode node)
+        {
+            visitedNodes++;
+            versionRanges |= node.getVersionConstraint() != null;
+            Artifact artifact = node.getArtifact();
+            String key = coordinateOf(artifact);
+
+            Integer existing = ids.get(key);
+            if (existing != null)
+            {
+                return existing;
+            }
+
+            int id = labels.size();
+            ids.put(key, id);
+            coordinates.add(key);
+            groupIds.add(artifact.getGroupId());
+            artifactIds.add(artifact.getArtifactId());
+            versions.add(artifact.getVersion());
+            scopes.add(artifact.getScope());
+            labels.add(artifact.toString());
+            // registered before descending so that a (malformed) cyclic graph terminates
+            children.add(NO_CHILDREN);
+
+            List<Integer> childIds = new ArrayList<>();
+            addChildren(node, childIds);
+            if (!childIds.isEmpty())
+            {
+                children.set(id, childIds.stream().mapToInt(Integer::intValue).distinct().toArray());
+            }
+            return id;
+        }
+
+        private int intern(final ArtifactGraph graph, final int graphId, final Predicate<String> scopeFilter)
+        {
+            String key = graph.coordinates[graphId];
+
+            Integer existing = ids.get(key);
+            if (existing != null)
+            {
+                return existing;
+            }
+
+            int id = labels.size();
+            ids.put(key, id);
+            coordinates.add(key);
+            groupIds.add(graph.groupIds[graphId]);
+            artifactIds.add(graph.artifactIds[graphId]);
+            versions.add(graph.versions[graphId]);
+            scopes.add(graph.scopes[graphId]);
+            labels.add(graph.labels[graphId]);
+            children.add(NO_CHILDREN);
+
+            int[] childIds = Arrays.stream(graph.children[graphId])
+                                   .filter(child -> scopeFilter.test(graph.scopes[child]))
+                                   .map(child -> intern(graph, child, scopeFilter))
+                                   .toArray();
+            if (childIds.length > 0)
+            {
+                children.set(id, childIds);
+            }
+            return id;
+        }
+
+        private void addChildren(final DependencyNode node, final List<Integer> childIds)
+        {
+            for (DependencyNode child : node.getChildren())
+            {
+                if (nodeFilter.accept(child))
+                {
+                    childIds.add(intern(child));
+                }
+                else
+                {
+                    visitedNodes++;
+                    versionRanges |= child.getVersionConstraint() != null;
+                    addChildren(child, childIds);
+                }
+            }
+        }
+
+        private static String coordinateOf(final Artifact artifact)
+        {
+            return String.join(":",
+                               artifact.getGroupId(),
+                               artifact.getArtifactId(),
+                               String.valueOf(artifact.getType()),
+                               String.valueOf(artifact.getClassifier()),
+                               artifact.getVersion());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Indexes each unaligned transitive dependency by the aligned direct dependencies that reach it, so as to rank the
+ * unaligned artifacts by how many direct dependencies realigning each would help.
+ */
+public final class BlastRadiusIndex
+{
+    private static final int[] NONE = new int[0];
+
+    private final ArtifactGraph graph;
+    /** Per artifact id, the aligned direct dependencies reaching it; the first reachCounts[id] entries are valid. */
+    private final int[][] reachedFrom;
+    private final int[] reachCounts;
+
+    /**
+     * @param graph the graph
+     * @param alignedDirectDependencies the aligned direct dependencies
+     * @param unalignedTransitives for each aligned direct dependency, the unaligned dependencies beneath it
+     */
+    BlastRadiusIndex(final ArtifactGraph graph, final int[] alignedDirectDependencies,
+                     final List<int[]> unalignedTransitives)
+    {
+        this.graph = graph;
+        this.reachedFrom = new int[graph.size()][];
+        this.reachCounts = new int[graph.size()];
+        for (int i = 0; i < alignedDirectDependencies.length; i++)
+        {
+            for (int unaligned : unalignedTransitives.get(i))
+            {
+                add(unaligned, alignedDirectDependencies[i]);
+            }
+        }
+    }
+
+    private void add(final int unaligned, final int direct)
+    {
+        int[] directs = reachedFrom[unaligned];
+        int count = reachCounts[unaligned];
+        if (directs == null)
+        {
+            directs = new int[4];
+        }
+        else if (count == directs.length)
+        {
+            directs = Arrays.copyOf(directs, count * 2);
+        }
+        directs[count] = direct;
+        reachedFrom[unaligned] = directs;
+        reachCounts[unaligned] = count + 1;
+    }
+
+    /**
+     * @param id an artifact
+     * @return the aligned direct dependencies reaching the artifact
+     */
+    int[] getReachedFrom(final int id)
+    {
+        return reachedFrom[id] == null ? NONE : Arrays.copyOf(reachedFrom[id], reachCounts[id]);
+    }
+
+    /**
+     * @param id an artifact
+     * @return the number of modules depending directly upon the aligned direct dependencies reaching the artifact, or
+     * zero if the graph was not merged from those of several modules
+     */
+    int getModuleReach(final int id)
+    {
+        BitSet modules = new BitSet();
+        for (int i = 0; i < reachCounts[id]; i++)
+        {
+            graph.addContributors(reachedFrom[id][i], modules);
+        }
+        return modules.cardinality();
+    }
+
+    /**
+     * Ranks the unaligned artifacts by the number of aligned direct dependencies reaching them, those with equal
+     * reach being ordered by artifact.  Both orderings are counting sorts, so the ranking takes linear time.
+     *
+     * @param limit the maximum number of artifacts to return
+     * @return the artifacts with the greatest reach, greatest first
+     */
+    int[] top(final int limit)
+    {
+        int size = graph.size();
+
+        // order by artifact, bucketing the ids by sort key
+        int[] keyStarts = new int[size + 1];
+        for (int id = 0; id < size; id++)
+        {
+            keyStarts[graph.getSortKey(id) + 1]++;
+        }
+        for (int key = 0; key < size; key++)
+        {
+            keyStarts[key + 1] += keyStarts[key];
+        }
+        int[] byArtifact = new int[size];
+        for (int id = 0; id < size; id++)
+        {
+            byArtifact[keyStarts[graph.getSortKey(id)]++] = id;
+        }
+
+        // then stably by descending reach
+        int maxReach = 0;
+        for (int count : reachCounts)
+        {
+            maxReach = Math.max(maxReach, count);
+        }
+        int[] reachStarts = new int[maxReach + 2];
+        for (int count : reachCounts)
+        {
+            if (count > 0)
+            {
+                reachStarts[maxReach - count + 1]++;
+            }
+        }
+        for (int i = 0; i <= maxReach; i++)
+        {
+            reachStarts[i + 1] += reachStarts[i];
+        }
+        int[] ranked = new int[reachStarts[maxReach + 1]];
+        for (int id : byArtifact)
+        {
+            if (reachCounts[id] > 0)
+            {
+                ranked[reachStarts[maxReach - reachCounts[id]]++] = id;
+            }
+        }
+        return ranked.length > limit ? Arrays.copyOf(ranked, limit) : ranked;
+    }
+}
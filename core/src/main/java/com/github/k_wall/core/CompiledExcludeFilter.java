@@ -0,0 +1,329 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.shared.artifact.filter.StrictPatternExcludesArtifactFilter;
+
+/**
+ * Excludes the artifacts matching any of a list of patterns, exactly as {@link StrictPatternExcludesArtifactFilter}
+ * does, but without testing every pattern against every artifact.
+ *
+ * <p>The patterns are compiled once.  Those made only of literal segments followed by wildcards are looked up by
+ * hash; the others are indexed by their groupId segment, literal groupIds by hash and <code>org.foo.*</code> style
+ * prefixes in a trie, so that only the few patterns that can match an artifact are tested against it.  The verdict
+ * for each coordinate is remembered, so the filter costs a lookup each time the same artifact is met again, however
+ * many times the graph is filtered.</p>
+ *
+ * <p>Safe for concurrent use.</p>
+ */
+public final class CompiledExcludeFilter implements ArtifactFilter
+{
+    private static final int SEGMENTS = 4;
+    private static final char SEPARATOR = '\0';
+
+    /** The keys of the patterns with literal leading segments and wildcards after, by number of literal segments. */
+    private final List<Set<String>> literalKeys = new ArrayList<>(SEGMENTS);
+    private final Map<String, List<CompiledPattern>> byGroupId = new HashMap<>();
+    private final PrefixTrie byGroupIdPrefix = new PrefixTrie();
+    private final List<CompiledPattern> unindexed = new ArrayList<>();
+    private final StrictPatternExcludesArtifactFilter fallback;
+    private final ConcurrentMap<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    /**
+     * @param patterns the patterns, in the syntax of {@link StrictPatternExcludesArtifactFilter}
+     */
+    public CompiledExcludeFilter(final List<String> patterns)
+    {
+        fallback = new StrictPatternExcludesArtifactFilter(patterns);
+        for (int i = 0; i < SEGMENTS; i++)
+        {
+            literalKeys.add(new HashSet<>());
+        }
+
+        for (String pattern : patterns)
+        {
+            String[] tokens = pattern.split(":");
+            if (tokens.length > SEGMENTS)
+            {
+                // as with the strict filter, a pattern with more segments than an artifact has never matches
+                continue;
+            }
+
+            Segment[] segments = new Segment[tokens.length];
+            for (int i = 0; i < tokens.length; i++)
+            {
+                segments[i] = Segment.of(tokens[i]);
+            }
+
+            int literals = 0;
+            while (literals < segments.length && segments[literals].kind == Kind.LITERAL)
+            {
+                literals++;
+            }
+            boolean wildcardsAfter = true;
+            for (int i = literals; i < segments.length; i++)
+            {
+                wildcardsAfter &= segments[i].kind == Kind.ANY;
+            }
+
+            if (literals > 0 && wildcardsAfter)
+            {
+                literalKeys.get(literals - 1).add(key(tokens, literals));
+            }
+            else if (segments.length == 0)
+            {
+                // a pattern of colons alone has no segments left once split, and so matches everything
+                unindexed.add(new CompiledPattern(segments));
+            }
+            else if (segments[0].kind == Kind.LITERAL)
+            {
+                byGroupId.computeIfAbsent(segments[0].text, g -> new ArrayList<>()).add(new CompiledPattern(segments));
+            }
+            else if (segments[0].kind == Kind.PREFIX)
+            {
+                byGroupIdPrefix.add(segments[0].text, new CompiledPattern(segments));
+            }
+            else
+            {
+                unindexed.add(new CompiledPattern(segments));
+            }
+        }
+    }
+
+    @Override
+    public boolean include(final Artifact artifact)
+    {
+        String[] values = {artifact.getGroupId(), artifact.getArtifactId(), artifact.getType(),
+                           artifact.getBaseVersion()};
+        for (String value : values)
+        {
+            if (value == null)
+            {
+                // rare enough not to be worth caching; leave the strict filter to decide as it always has
+                return fallback.include(artifact);
+            }
+        }
+
+        String coordinate = key(values, SEGMENTS);
+        Boolean verdict = verdicts.get(coordinate);
+        if (verdict == null)
+        {
+            verdict = !matchesAny(values);
+            verdicts.putIfAbsent(coordinate, verdict);
+        }
+        return verdict;
+    }
+
+    private boolean matchesAny(final String[] values)
+    {
+        for (int literals = 1; literals <= SEGMENTS; literals++)
+        {
+            Set<String> keys = literalKeys.get(literals - 1);
+            if (!keys.isEmpty() && keys.contains(key(values, literals)))
+            {
+                return true;
+            }
+        }
+
+        List<CompiledPattern> sameGroupId = byGroupId.get(values[0]);
+        if (sameGroupId != null && matchesAny(sameGroupId, values))
+        {
+            return true;
+        }
+        return byGroupIdPrefix.anyMatches(values) || matchesAny(unindexed, values);
+    }
+
+    private static boolean matchesAny(final List<CompiledPattern> patterns, final String[] values)
+    {
+        for (CompiledPattern pattern : patterns)
+        {
+            if (pattern.matches(values))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(final String[] values, final int count)
+    {
+        StringBuilder key = new StringBuilder(values[0]);
+        for (int i = 1; i < count; i++)
+        {
+            key.append(SEPARATOR).append(values[i]);
+        }
+        return key.toString();
+    }
+
+    private enum Kind
+    {
+        /** <code>*</code>, or an empty segment. */
+        ANY,
+        /** <code>*text*</code> */
+        CONTAINS,
+        /** <code>*text</code> */
+        SUFFIX,
+        /** <code>text*</code> */
+        PREFIX,
+        /** A version range, <code>[1.0,2.0)</code> for instance. */
+        RANGE,
+        LITERAL
+    }
+
+    /**
+     * A segment of a pattern, classified as the strict filter classifies it each time it matches.
+     */
+    private static final class Segment
+    {
+        private final Kind kind;
+        private final String text;
+        private final VersionRange range;
+
+        private Segment(final Kind kind, final String text, final VersionRange range)
+        {
+            this.kind = kind;
+            this.text = text;
+            this.range = range;
+        }
+
+        static Segment of(final String token)
+        {
+            if ("*".equals(token) || token.isEmpty())
+            {
+                return new Segment(Kind.ANY, token, null);
+            }
+            else if (token.startsWith("*") && token.endsWith("*"))
+            {
+                return new Segment(Kind.CONTAINS, token.substring(1, token.length() - 1), null);
+            }
+            else if (token.startsWith("*"))
+            {
+                return new Segment(Kind.SUFFIX, token.substring(1), null);
+            }
+            else if (token.endsWith("*"))
+            {
+                return new Segment(Kind.PREFIX, token.substring(0, token.length() - 1), null);
+            }
+            else if (token.startsWith("[") || token.startsWith("("))
+            {
+                VersionRange range;
+                try
+                {
+                    range = VersionRange.createFromVersionSpec(token);
+                }
+                catch (InvalidVersionSpecificationException e)
+                {
+                    // the strict filter treats an invalid range as matching nothing
+                    range = null;
+                }
+                return new Segment(Kind.RANGE, token, range);
+            }
+            return new Segment(Kind.LITERAL, token, null);
+        }
+
+        boolean matches(final String value)
+        {
+            switch (kind)
+            {
+                case ANY:
+                    return true;
+                case CONTAINS:
+                    return value.contains(text);
+                case SUFFIX:
+                    return value.endsWith(text);
+                case PREFIX:
+                    return value.startsWith(text);
+                case RANGE:
+                    return range != null && range.containsVersion(new DefaultArtifactVersion(value));
+                default:
+                    return value.equals(text);
+            }
+        }
+    }
+
+    private static final class CompiledPattern
+    {
+        private final Segment[] segments;
+
+        private CompiledPattern(final Segment[] segments)
+        {
+            this.segments = segments;
+        }
+
+        boolean matches(final String[] values)
+        {
+            for (int i = 0; i < segments.length; i++)
+            {
+                if (!segments[i].matches(values[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The patterns whose groupId segment is a prefix, held in a trie of the prefixes so that an artifact's groupId
+     * is walked once to find every pattern whose prefix it starts with.
+     */
+    private static final class PrefixTrie
+    {
+        private final Map<Character, PrefixTrie> children = new HashMap<>();
+        private final List<CompiledPattern> patterns = new ArrayList<>();
+
+        void add(final String prefix, final CompiledPattern pattern)
+        {
+            PrefixTrie node = this;
+            for (int i = 0; i < prefix.length(); i++)
+            {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixTrie());
+            }
+            node.patterns.add(pattern);
+        }
+
+        boolean anyMatches(final String[] values)
+        {
+            String groupId = values[0];
+            PrefixTrie node = this;
+            for (int i = 0; node != null; i++)
+            {
+                if (matchesAny(node.patterns, values))
+                {
+                    return true;
+                }
+                node = i < groupId.length() ? node.children.get(groupId.charAt(i)) : null;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Writes JSON strings, for the JSON Lines report and the metrics file alike.
+ */
+public final class Json
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Json()
+    {
+    }
+
+    /**
+     * @param value the value
+     * @return the value as a JSON string, quoted
+     */
+    public static String quote(final String value)
+    {
+        return quote(new StringBuilder(value.length() + 2), value).toString();
+    }
+
+    /**
+     * Appends the value as a JSON string, quoted.  Quotes, backslashes and control characters are escaped; every
+     * other character, ASCII or not, is appended as it is.
+     *
+     * @param builder the builder to append to
+     * @param value the value
+     * @return the builder
+     */
+    public static StringBuilder quote(final StringBuilder builder, final String value)
+    {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                builder.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+        return builder.append('"');
+    }
+}
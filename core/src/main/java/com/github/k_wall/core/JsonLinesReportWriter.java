@@ -0,0 +1,214 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the report as JSON Lines: a JSON object on each line for each direct dependency, summary entry, offender and
+ * unaligned path, or, against a baseline, for each regression and fix.  Each record carries the project and scope it
+ * belongs to, so that records can be ingested one at a time.  A record is written to the sink as soon as it is formed.
+ */
+final class JsonLinesReportWriter implements ReportWriter
+{
+    private static final Pattern PATH_SEPARATOR = Pattern.compile(Pattern.quote(AlignmentSnapshot.PATH_SEPARATOR));
+
+    private final ReportSink sink;
+    private final DetailMode detailMode;
+    private final boolean showContributors;
+    private final int topOffenders;
+    private final StringBuilder record = new StringBuilder();
+    private String project;
+    private String scope;
+
+    /**
+     * @param sink the sink to write to
+     * @param detailMode how the unaligned paths are listed
+     * @param showContributors whether to name the modules depending directly upon each direct dependency
+     * @param topOffenders the number of unaligned transitive dependencies to rank by reach, or zero to omit the
+     * ranking
+     */
+    JsonLinesReportWriter(final ReportSink sink, final DetailMode detailMode, final boolean showContributors,
+                          final int topOffenders)
+    {
+        this.sink = sink;
+        this.detailMode = detailMode;
+        this.showContributors = showContributors;
+        this.topOffenders = topOffenders;
+    }
+
+    @Override
+    public void writeProjectTitle(final String name)
+    {
+        project = name;
+    }
+
+    @Override
+    public void writeScopeTitle(final String scope)
+    {
+        this.scope = scope;
+    }
+
+    @Override
+    public void write(final AlignmentResult result) throws IOException
+    {
+        ArtifactGraph graph = result.getGraph();
+        for (int id : result.getSortedAlignedDirectDependencies())
+        {
+            writeDirectDependency(graph, id, true);
+        }
+        for (int id : result.getUnalignedDirectDependencies())
+        {
+            writeDirectDependency(graph, id, false);
+        }
+
+        for (int id : result.getIncompletelyAlignedDirectDependencies())
+        {
+            startRecord("incompletelyAligned").field("artifact", graph.getLabel(id));
+            contributors(graph, id);
+            endRecord();
+        }
+
+        if (topOffenders > 0)
+        {
+            BlastRadiusIndex index = result.getBlastRadiusIndex();
+            for (int id : index.top(topOffenders))
+            {
+                startRecord("offender").field("artifact", graph.getLabel(id));
+                record.append(",\"reachedFrom\":").append(index.getReachedFrom(id).length);
+                record.append(",\"modules\":").append(index.getModuleReach(id));
+                endRecord();
+            }
+        }
+
+        for (UnalignedPath path : result.getUnalignedPaths(detailMode))
+        {
+            startRecord("unalignedPath").field("artifact", graph.getLabel(path.getArtifact()));
+            record.append(",\"path\":[");
+            for (UnalignedPath p = path; p != null; p = p.getParent())
+            {
+                if (p != path)
+                {
+                    record.append(',');
+                }
+                Json.quote(record, graph.getLabel(p.getArtifact()));
+            }
+            record.append("],\"pathCount\":").append(path.getPathCount());
+            endRecord();
+        }
+    }
+
+    @Override
+    public void writeDelta(final AlignmentSnapshot.Delta delta) throws IOException
+    {
+        writeDeltaEntries(delta.getRegressions(), "regression");
+        writeDeltaEntries(delta.getFixes(), "fixed");
+    }
+
+    private void writeDirectDependency(final ArtifactGraph graph, final int id, final boolean aligned)
+            throws IOException
+    {
+        startRecord("direct").field("artifact", graph.getLabel(id));
+        record.append(",\"aligned\":").append(aligned);
+        contributors(graph, id);
+        endRecord();
+    }
+
+    private void writeDeltaEntries(final List<AlignmentSnapshot.Entry> entries, final String type)
+            throws IOException
+    {
+        String reportScope = scope;
+        for (AlignmentSnapshot.Entry entry : entries)
+        {
+            scope = entry.getScope();
+            startRecord(type).field("kind", entry.getKind().getKey());
+            if (entry.getKind() == AlignmentSnapshot.Kind.UNALIGNED_TRANSITIVE)
+            {
+                String[] path = PATH_SEPARATOR.split(entry.getText());
+                field("artifact", path[0]);
+                record.append(",\"path\":[");
+                for (int i = 0; i < path.length; i++)
+                {
+                    if (i > 0)
+                    {
+                        record.append(',');
+                    }
+                    Json.quote(record, path[i]);
+                }
+                record.append(']');
+            }
+            else
+            {
+                field("artifact", entry.getText());
+            }
+            endRecord();
+        }
+        scope = reportScope;
+    }
+
+    private void contributors(final ArtifactGraph graph, final int id)
+    {
+        List<String> contributors = showContributors ? graph.getContributors(id) : Collections.emptyList();
+        if (!contributors.isEmpty())
+        {
+            record.append(",\"contributors\":[");
+            for (int i = 0; i < contributors.size(); i++)
+            {
+                if (i > 0)
+                {
+                    record.append(',');
+                }
+                Json.quote(record, contributors.get(i));
+            }
+            record.append(']');
+        }
+    }
+
+    private JsonLinesReportWriter startRecord(final String type)
+    {
+        record.setLength(0);
+        record.append("{\"type\":");
+        Json.quote(record, type);
+        if (project != null)
+        {
+            field("project", project);
+        }
+        if (scope != null)
+        {
+            field("scope", scope);
+        }
+        return this;
+    }
+
+    private JsonLinesReportWriter field(final String name, final String value)
+    {
+        record.append(',');
+        Json.quote(record, name);
+        record.append(':');
+        Json.quote(record, value);
+        return this;
+    }
+
+    private void endRecord() throws IOException
+    {
+        sink.println(record.append('}').toString());
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Reads and writes the partial result of a shard of an aggregate report: the merged graph of the modules the shard
+ * built, together with the modules depending directly upon each of its direct dependencies.  The graphs are not
+ * classified, so the partials are classified once merged, against the alignment patterns of the merge.
+ *
+ * <p>The header records the settings the graph was resolved with, so that partials resolved differently are not
+ * merged into a report that matches none of them.</p>
+ */
+public final class PartialResultFile
+{
+    private static final int MAGIC = 0x414c4e51;
+
+    private final String settings;
+    private final ArtifactGraph graph;
+
+    /**
+     * @param settings the settings the graph was resolved with
+     * @param graph the merged graph of the shard
+     */
+    public PartialResultFile(final String settings, final ArtifactGraph graph)
+    {
+        this.settings = settings;
+        this.graph = graph;
+    }
+
+    /**
+     * @return the settings the graph was resolved with
+     */
+    public String getSettings()
+    {
+        return settings;
+    }
+
+    /**
+     * @return the merged graph of the shard
+     */
+    public ArtifactGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final File file) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+        {
+            Files.createDirectories(parent.toPath());
+        }
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+             DataOutputStream out = new DataOutputStream(stream))
+        {
+            out.writeInt(MAGIC);
+            out.writeUTF(settings);
+            graph.writeTo(out);
+        }
+    }
+
+    /**
+     * @param file the file to read
+     * @return the partial result written to the file
+     * @throws IOException if the file cannot be read or is not a partial result
+     */
+    public static PartialResultFile read(final File file) throws IOException
+    {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath()));
+             DataInputStream in = new DataInputStream(stream))
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException(String.format("%s is not a partial alignment result", file));
+            }
+            String settings = in.readUTF();
+            return new PartialResultFile(settings, ArtifactGraph.readFrom(in));
+        }
+    }
+}
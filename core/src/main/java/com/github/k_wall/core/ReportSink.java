@@ -0,0 +1,114 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Receives the report a line at a time, as it is produced.
+ */
+public interface ReportSink extends Closeable
+{
+    /**
+     * Writes a line of the report.
+     *
+     * @param line the line, without line terminator
+     * @throws IOException if an I/O error occurs
+     */
+    void println(String line) throws IOException;
+
+    /**
+     * Writes an empty line.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void println() throws IOException
+    {
+        println("");
+    }
+
+    /**
+     * @param file the file to write the report to
+     * @param append whether to append to the file rather than overwrite it
+     * @param compress whether to compress the report with gzip
+     * @return a sink writing to the file, as UTF-8, through a buffer; the file is opened once
+     * @throws IOException if the file cannot be opened
+     */
+    static ReportSink toFile(final File file, final boolean append, final boolean compress) throws IOException
+    {
+        return toWriter(encode(openFile(file, append), compress));
+    }
+
+    /**
+     * @param file the file to write the report to
+     * @param append whether to append to the file rather than overwrite it
+     * @return a stream to the file, creating its directory if need be
+     * @throws IOException if the file cannot be opened
+     */
+    static OutputStream openFile(final File file, final boolean append) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        return new FileOutputStream(file, append);
+    }
+
+    /**
+     * @param out the stream to write the report to
+     * @param compress whether to compress the report with gzip; a report appended to a compressed file is compressed
+     * on its own, as a further gzip member, which readers of gzip read on as one stream
+     * @return a writer to the stream, encoding the report as UTF-8, through a buffer
+     * @throws IOException if the gzip header cannot be written
+     */
+    static Writer encode(final OutputStream out, final boolean compress) throws IOException
+    {
+        return new BufferedWriter(new OutputStreamWriter(compress ? new GZIPOutputStream(out) : out,
+                                                         StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param writer the writer to write the report to
+     * @return a sink writing to the writer, closing it when the sink is closed
+     */
+    static ReportSink toWriter(final Writer writer)
+    {
+        String lineSeparator = System.lineSeparator();
+        return new ReportSink()
+        {
+            @Override
+            public void println(final String line) throws IOException
+            {
+                writer.write(line);
+                writer.write(lineSeparator);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                writer.close();
+            }
+        };
+    }
+}
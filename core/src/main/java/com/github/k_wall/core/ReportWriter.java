@@ -0,0 +1,79 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * Writes the report, in one of the {@link OutputFormat}s, to a {@link ReportSink}.
+ */
+public interface ReportWriter
+{
+    /**
+     * @param sink the sink to write to
+     * @param format the format to write in
+     * @param detailMode how the detail section lists the paths
+     * @param showContributors whether to name the modules depending directly upon each direct dependency
+     * @param topOffenders the number of unaligned transitive dependencies to rank by reach, or zero to omit the
+     * ranking
+     * @return a writer of the format
+     */
+    static ReportWriter create(final ReportSink sink, final OutputFormat format, final DetailMode detailMode,
+                               final boolean showContributors, final int topOffenders)
+    {
+        switch (format)
+        {
+            case JSON_LINES:
+                return new JsonLinesReportWriter(sink, detailMode, showContributors, topOffenders);
+            default:
+                return new TextReportWriter(sink, detailMode, showContributors, topOffenders);
+        }
+    }
+
+    /**
+     * Starts the report of a project.
+     *
+     * @param name the project's name
+     * @throws IOException if an I/O error occurs
+     */
+    void writeProjectTitle(String name) throws IOException;
+
+    /**
+     * Starts the section of the report for a scope.
+     *
+     * @param scope the scope
+     * @throws IOException if an I/O error occurs
+     */
+    void writeScopeTitle(String scope) throws IOException;
+
+    /**
+     * Writes the direct dependency, summary and detail sections for the given result.
+     *
+     * @param result the result
+     * @throws IOException if an I/O error occurs
+     */
+    void write(AlignmentResult result) throws IOException;
+
+    /**
+     * Writes what has changed since a baseline.
+     *
+     * @param delta the changes
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDelta(AlignmentSnapshot.Delta delta) throws IOException;
+}
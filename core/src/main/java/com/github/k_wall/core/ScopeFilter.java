@@ -0,0 +1,84 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+
+/**
+ * Includes the artifacts of the scopes that a resolution scope takes in, as Maven's own scope filter does: compile
+ * takes in provided and system, runtime takes in compile, and test takes in every scope; any other resolution scope
+ * takes in none.  Artifacts of no scope, or of a scope Maven does not know, are always included.
+ *
+ * <p>Maven's filter is part of <code>maven-core</code>, which those using the core outside Maven do not have.</p>
+ */
+public final class ScopeFilter implements ArtifactFilter
+{
+    private static final Set<String> SCOPES = set(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED,
+                                                  Artifact.SCOPE_SYSTEM, Artifact.SCOPE_RUNTIME,
+                                                  Artifact.SCOPE_TEST);
+
+    private final Set<String> included;
+
+    /**
+     * @param scope the resolution scope: <code>compile</code>, <code>runtime</code>, <code>test</code>,
+     * <code>compile+runtime</code> or <code>runtime+system</code>
+     */
+    public ScopeFilter(final String scope)
+    {
+        switch (scope)
+        {
+            case Artifact.SCOPE_COMPILE:
+                included = set(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM);
+                break;
+            case Artifact.SCOPE_RUNTIME:
+                included = set(Artifact.SCOPE_COMPILE, Artifact.SCOPE_RUNTIME);
+                break;
+            case Artifact.SCOPE_COMPILE_PLUS_RUNTIME:
+                included = set(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM,
+                               Artifact.SCOPE_RUNTIME);
+                break;
+            case Artifact.SCOPE_RUNTIME_PLUS_SYSTEM:
+                included = set(Artifact.SCOPE_COMPILE, Artifact.SCOPE_SYSTEM, Artifact.SCOPE_RUNTIME);
+                break;
+            case Artifact.SCOPE_TEST:
+                included = SCOPES;
+                break;
+            default:
+                included = Collections.emptySet();
+                break;
+        }
+    }
+
+    @Override
+    public boolean include(final Artifact artifact)
+    {
+        String scope = artifact.getScope();
+        return !SCOPES.contains(scope) || included.contains(scope);
+    }
+
+    private static Set<String> set(final String... scopes)
+    {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(scopes)));
+    }
+}
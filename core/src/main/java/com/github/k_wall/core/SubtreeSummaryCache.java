@@ -0,0 +1,388 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers, across builds, whether the subtree beneath an artifact contains an unaligned dependency.  The cache is
+ * kept in the local repository, so that every build on the machine shares it, in a file for each set of alignment
+ * patterns.
+ *
+ * <p>An entry is keyed by the {@linkplain ArtifactGraph#getSubtreeDigest(int) digest of the subtree}, which covers
+ * every artifact beneath as resolved, so one project's entries serve another wherever they resolve a subtree alike,
+ * and a project whose version mediation, dependency management, exclusions or scopes resolve the same artifact's
+ * subtree differently, or a snapshot whose dependencies changed, is told apart.  Digesting the subtree beneath a
+ * direct dependency digests every subtree beneath it as well, so the artifacts the analysis reaches below it are
+ * looked up for the cost of a probe alone.</p>
+ *
+ * <p>The file is an open addressing hash table, memory mapped when the cache is opened, so opening it reads nothing
+ * and a lookup reads only the slots it probes.  Each slot holds the first 128 bits of the digest and the verdict.
+ * Entries for the subtrees analysed during the build are added when the cache is flushed, under a file lock, so
+ * concurrent builds may share the file.  They are added in place, a slot written key first so that a build reading
+ * it as it is written sees at worst a miss, whilst the table is less than three quarters full.  Beyond that, the
+ * table is copied into a new file of twice the slots, which replaces the old; builds that opened the old file read
+ * on from it.  Once the table has grown to its largest, it is started afresh rather than copied, so the cache never
+ * stops taking entries.  The cache may be looked up concurrently.</p>
+ */
+public final class SubtreeSummaryCache
+{
+    private static final int MAGIC = 0x414c4e46;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = 1 << 22;
+    /** The magic number, the number of slots and the number of entries. */
+    private static final int HEADER_LENGTH = 3 * Integer.BYTES;
+    private static final int CAPACITY_OFFSET = Integer.BYTES;
+    private static final int COUNT_OFFSET = 2 * Integer.BYTES;
+    /** The state, then the first 128 bits of the digest. */
+    private static final int SLOT_LENGTH = 1 + 2 * Long.BYTES;
+
+    private static final byte EMPTY = 0;
+    private static final byte ALIGNED = 1;
+    private static final byte UNALIGNED = 2;
+
+    /** The builds of one JVM flush in turn, as a file lock is held by the JVM rather than by a thread. */
+    private static final ConcurrentMap<Path, Object> FLUSH_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final ByteBuffer table;
+    private final int initialCapacity;
+    private final int maxCapacity;
+    private final Map<ByteBuffer, Boolean> pending = new LinkedHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private SubtreeSummaryCache(final Path file, final ByteBuffer table, final int initialCapacity,
+                                final int maxCapacity)
+    {
+        this.file = file;
+        this.table = table;
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Opens the cache for the given settings.
+     *
+     * @param directory the directory holding the cache files
+     * @param settings everything besides the subtree itself that determines whether it is aligned
+     * @return the cache
+     * @throws IOException if the cache cannot be read
+     */
+    public static SubtreeSummaryCache open(final File directory, final String settings) throws IOException
+    {
+        return open(directory, settings, INITIAL_CAPACITY, MAX_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the number of slots of a new table, a power of two
+     * @param maxCapacity the number of slots beyond which the table is started afresh rather than grown
+     */
+    static SubtreeSummaryCache open(final File directory, final String settings, final int initialCapacity,
+                                    final int maxCapacity) throws IOException
+    {
+        // the format is part of the name, so that files of an earlier format are left alone
+        Path file = directory.toPath().resolve(String.format("subtrees-%08x-%s.bin", MAGIC,
+                                                             Digests.sha256(settings).substring(0, 16)));
+        if (!Files.isRegularFile(file))
+        {
+            return new SubtreeSummaryCache(file, null, initialCapacity, maxCapacity);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return new SubtreeSummaryCache(file, map(channel, FileChannel.MapMode.READ_ONLY), initialCapacity,
+                                           maxCapacity);
+        }
+    }
+
+    /**
+     * Looks up the subtree beneath an artifact.
+     *
+     * @param graph the graph
+     * @param id the artifact
+     * @return {@link Boolean#TRUE} if the subtree is known to contain an unaligned dependency, {@link Boolean#FALSE}
+     * if it is known not to, or <code>null</code> if it is not known
+     */
+    public Boolean lookup(final ArtifactGraph graph, final int id)
+    {
+        if (table == null)
+        {
+            misses.increment();
+            return null;
+        }
+
+        ByteBuffer key = key(graph, id);
+        int slot = find(table, key.getLong(0), key.getLong(Long.BYTES));
+        byte state = table.get(slot);
+        if (state == EMPTY)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return state == UNALIGNED;
+    }
+
+    /**
+     * Records whether the subtree beneath an artifact contains an unaligned dependency, to be written when the cache
+     * is flushed.
+     *
+     * @param graph the graph
+     * @param id the artifact
+     * @param unaligned whether the subtree contains an unaligned dependency
+     */
+    void add(final ArtifactGraph graph, final int id, final boolean unaligned)
+    {
+        pending.putIfAbsent(key(graph, id), unaligned);
+    }
+
+    /**
+     * Adds the entries recorded since the cache was opened, and not added by another build meanwhile, growing the
+     * table, or starting it afresh, if they do not fit.
+     *
+     * @throws IOException if the cache cannot be written
+     */
+    public void flush() throws IOException
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        synchronized (FLUSH_LOCKS.computeIfAbsent(file, f -> new Object()))
+        {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE))
+            {
+                FileLock lock = lockChannel.lock();
+                try
+                {
+                    flushLocked();
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Adds the pending entries to the table as it now is, which may have changed since the cache was opened.
+     */
+    private void flushLocked() throws IOException
+    {
+        if (!Files.isRegularFile(file))
+        {
+            replace(null, 0);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            MappedByteBuffer current;
+            try
+            {
+                current = map(channel, FileChannel.MapMode.READ_WRITE);
+            }
+            catch (IOException e)
+            {
+                // a file that is not a table, such as one cut short, is replaced by a new one
+                replace(null, 0);
+                return;
+            }
+            int capacity = current.getInt(CAPACITY_OFFSET);
+            if (fits(current.getInt(COUNT_OFFSET) + pending.size(), capacity))
+            {
+                addPending(current, capacity);
+                current.force();
+            }
+            else
+            {
+                replace(current, capacity);
+            }
+        }
+    }
+
+    /**
+     * Writes a table holding the pending entries, and those of the current table unless it is at its largest, to a
+     * new file, which then replaces the current one.
+     *
+     * @param current the current table, or <code>null</code> if there is none
+     * @param currentCapacity the number of slots of the current table
+     */
+    private void replace(final ByteBuffer current, final int currentCapacity) throws IOException
+    {
+        int count = current == null ? 0 : current.getInt(COUNT_OFFSET);
+        int capacity = initialCapacity;
+        while (!fits(count + pending.size(), capacity) && capacity < maxCapacity)
+        {
+            capacity *= 2;
+        }
+        boolean copy = current != null && fits(count + pending.size(), capacity);
+
+        Path temporary = Files.createTempFile(file.getParent(), "subtrees", ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                                                        StandardOpenOption.WRITE))
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(capacity).putInt(0);
+                channel.write(header.flip(), 0);
+                // the slots are left as a hole, read as empty
+                channel.write(ByteBuffer.allocate(1), fileLength(capacity) - 1);
+                MappedByteBuffer replacement = map(channel, FileChannel.MapMode.READ_WRITE);
+                if (copy)
+                {
+                    for (int index = 0; index < currentCapacity; index++)
+                    {
+                        int slot = HEADER_LENGTH + index * SLOT_LENGTH;
+                        byte state = current.get(slot);
+                        if (state != EMPTY)
+                        {
+                            put(replacement, capacity, current.getLong(slot + 1),
+                                current.getLong(slot + 1 + Long.BYTES), state);
+                        }
+                    }
+                }
+                addPending(replacement, capacity);
+                replacement.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Adds the pending entries, as many as fit.
+     */
+    private void addPending(final ByteBuffer writable, final int capacity)
+    {
+        for (Map.Entry<ByteBuffer, Boolean> entry : pending.entrySet())
+        {
+            if (!fits(writable.getInt(COUNT_OFFSET) + 1, capacity))
+            {
+                break;
+            }
+            put(writable, capacity, entry.getKey().getLong(0), entry.getKey().getLong(Long.BYTES),
+                entry.getValue() ? UNALIGNED : ALIGNED);
+        }
+    }
+
+    /**
+     * Adds an entry, unless the table already holds one for the key.
+     */
+    private static void put(final ByteBuffer writable, final int capacity, final long first, final long second,
+                            final byte state)
+    {
+        int slot = find(writable, capacity, first, second);
+        if (writable.get(slot) == EMPTY)
+        {
+            writable.putLong(slot + 1, first);
+            writable.putLong(slot + 1 + Long.BYTES, second);
+            writable.put(slot, state);
+            writable.putInt(COUNT_OFFSET, writable.getInt(COUNT_OFFSET) + 1);
+        }
+    }
+
+    /**
+     * @return whether a table of the given number of slots takes the given number of entries
+     */
+    private static boolean fits(final long entries, final int capacity)
+    {
+        return entries <= capacity / 4 * 3;
+    }
+
+    private static long fileLength(final int capacity)
+    {
+        return HEADER_LENGTH + (long) capacity * SLOT_LENGTH;
+    }
+
+    private static MappedByteBuffer map(final FileChannel channel, final FileChannel.MapMode mode) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        int capacity = channel.read(header, 0) == HEADER_LENGTH ? header.getInt(CAPACITY_OFFSET) : 0;
+        if (header.getInt(0) != MAGIC || Integer.bitCount(capacity) != 1 || channel.size() != fileLength(capacity))
+        {
+            throw new IOException(String.format("%s is not a subtree cache", channel));
+        }
+        return channel.map(mode, 0, fileLength(capacity));
+    }
+
+    private static int find(final ByteBuffer table, final long first, final long second)
+    {
+        return find(table, table.getInt(CAPACITY_OFFSET), first, second);
+    }
+
+    /**
+     * Probes the table linearly from the slot the hash selects.  The table is never full, so an empty slot ends the
+     * probe.
+     *
+     * @return the offset of the slot holding the hash, or else of the empty slot where it would be added
+     */
+    private static int find(final ByteBuffer table, final int capacity, final long first, final long second)
+    {
+        int index = (int) first & (capacity - 1);
+        while (true)
+        {
+            int slot = HEADER_LENGTH + index * SLOT_LENGTH;
+            if (table.get(slot) == EMPTY
+                || table.getLong(slot + 1) == first && table.getLong(slot + 1 + Long.BYTES) == second)
+            {
+                return slot;
+            }
+            index = (index + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * @return the first 128 bits of the digest of the subtree beneath the artifact
+     */
+    private static ByteBuffer key(final ArtifactGraph graph, final int id)
+    {
+        return ByteBuffer.wrap(graph.getSubtreeDigest(id), 0, 2 * Long.BYTES).slice();
+    }
+}
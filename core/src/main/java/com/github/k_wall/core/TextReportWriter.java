@@ -0,0 +1,238 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the human readable, text form of the report.
+ */
+public final class TextReportWriter implements ReportWriter
+{
+    private final ReportSink sink;
+    private final DetailMode detailMode;
+    private final boolean showContributors;
+    private final int topOffenders;
+
+    /**
+     * @param sink the sink to write to
+     * @param detailMode how the detail section lists the paths
+     * @param showContributors whether to name the modules depending directly upon each direct dependency
+     * @param topOffenders the number of unaligned transitive dependencies to rank by reach, or zero to omit the
+     * ranking
+     */
+    public TextReportWriter(final ReportSink sink, final DetailMode detailMode, final boolean showContributors,
+                            final int topOffenders)
+    {
+        this.sink = sink;
+        this.detailMode = detailMode;
+        this.showContributors = showContributors;
+        this.topOffenders = topOffenders;
+    }
+
+    @Override
+    public void writeProjectTitle(final String name) throws IOException
+    {
+        String projectEyeCatcher = "=".repeat(name.length());
+
+        sink.println(projectEyeCatcher);
+        sink.println(name);
+        sink.println(projectEyeCatcher);
+        sink.println();
+    }
+
+    @Override
+    public void writeScopeTitle(final String scope) throws IOException
+    {
+        String title = String.format("Scope - %s", scope);
+        sink.println(title);
+        sink.println("=".repeat(title.length()));
+        sink.println();
+    }
+
+    /**
+     * Writes the direct dependency, summary and detail sections for the given result.
+     *
+     * @param result the result
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void write(final AlignmentResult result) throws IOException
+    {
+        ArtifactGraph graph = result.getGraph();
+        writeDirectDependencies(graph, result.getSortedAlignedDirectDependencies(), "Aligned");
+        writeDirectDependencies(graph, result.getUnalignedDirectDependencies(), "Unaligned");
+
+        writeUnalignedTransitiveDependenciesSummary(graph, result.getIncompletelyAlignedDirectDependencies());
+        if (topOffenders > 0)
+        {
+            writeTopOffenders(graph, result.getBlastRadiusIndex());
+        }
+        writeUnalignedTransitiveDependencyDetail(graph, result.getUnalignedPaths(detailMode));
+    }
+
+    /**
+     * Writes what has changed since a baseline: the regressions, then the fixes, of each scope in turn.
+     *
+     * @param delta the changes
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void writeDelta(final AlignmentSnapshot.Delta delta) throws IOException
+    {
+        List<AlignmentSnapshot.Entry> regressions = delta.getRegressions();
+        List<AlignmentSnapshot.Entry> fixes = delta.getFixes();
+        if (regressions.isEmpty() && fixes.isEmpty())
+        {
+            sink.println("No alignment changes since the baseline");
+            sink.println();
+            return;
+        }
+
+        Set<String> scopes = new TreeSet<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        regressions.forEach(entry -> scopes.add(entry.getScope()));
+        fixes.forEach(entry -> scopes.add(entry.getScope()));
+        for (String scope : scopes)
+        {
+            if (scope != null)
+            {
+                writeScopeTitle(scope);
+            }
+            writeDeltaEntries(regressions, scope, "Regression", "Regressions");
+            writeDeltaEntries(fixes, scope, "Fixed", "Fixed");
+        }
+    }
+
+    private void writeDeltaEntries(final List<AlignmentSnapshot.Entry> entries, final String scope,
+                                   final String singular, final String plural) throws IOException
+    {
+        List<AlignmentSnapshot.Entry> scoped = entries.stream()
+                                                      .filter(entry -> Objects.equals(entry.getScope(), scope))
+                                                      .collect(Collectors.toList());
+        if (!scoped.isEmpty())
+        {
+            String title = String.format("%d %s since the baseline", scoped.size(), scoped.size() == 1 ? singular : plural);
+            sink.println(title);
+            sink.println("-".repeat(title.length()));
+            for (AlignmentSnapshot.Entry entry : scoped)
+            {
+                sink.println(String.format("%s - %s", entry.getKind().getLabel(), entry.getText()));
+            }
+            sink.println();
+        }
+    }
+
+    private void writeDirectDependencies(final ArtifactGraph graph, final int[] ids, final String prefix)
+            throws IOException
+    {
+        String title = String.format("%d %s direct dependenc%s", ids.length, prefix, ids.length == 1 ? "y" : "ies");
+        sink.println(title);
+        sink.println("-".repeat(title.length()));
+        for (int id : ids)
+        {
+            sink.println(String.format("%s - %s", prefix, directLabel(graph, id)));
+        }
+        sink.println();
+    }
+
+    private void writeUnalignedTransitiveDependenciesSummary(final ArtifactGraph graph, final int[] summary)
+            throws IOException
+    {
+        if (summary.length > 0)
+        {
+            String title = "Summary - Aligned direct dependencies with unaligned transitive dependencies";
+            sink.println(title);
+            sink.println("-".repeat(title.length()));
+
+            for (int id : summary)
+            {
+                sink.println(String.format("Incompletely aligned - %s", directLabel(graph, id)));
+            }
+
+            sink.println();
+        }
+    }
+
+    private void writeTopOffenders(final ArtifactGraph graph, final BlastRadiusIndex index) throws IOException
+    {
+        int[] offenders = index.top(topOffenders);
+        if (offenders.length > 0)
+        {
+            String title = "Top offenders - Unaligned transitive dependencies reached from the most aligned direct dependencies";
+            sink.println(title);
+            sink.println("-".repeat(title.length()));
+
+            for (int id : offenders)
+            {
+                int reach = index.getReachedFrom(id).length;
+                int modules = index.getModuleReach(id);
+                sink.println(String.format("Offender - %s (reached from %d aligned direct dependenc%s%s)",
+                                           graph.getLabel(id),
+                                           reach,
+                                           reach == 1 ? "y" : "ies",
+                                           modules > 0 ? String.format(" in %d module%s", modules, modules == 1 ? "" : "s") : ""));
+            }
+
+            sink.println();
+        }
+    }
+
+    private void writeUnalignedTransitiveDependencyDetail(final ArtifactGraph graph,
+                                                          final List<UnalignedPath> unalignedDeps)
+            throws IOException
+    {
+        if (!unalignedDeps.isEmpty())
+        {
+            String title = "Detail - Aligned direct dependencies with unaligned transitive dependencies";
+            sink.println(title);
+            sink.println("-".repeat(title.length()));
+
+            StringBuilder line = new StringBuilder();
+            for (UnalignedPath path : unalignedDeps)
+            {
+                line.setLength(0);
+                line.append("Unaligned transitive - ");
+                path.appendTo(line, graph, " <- ");
+                if (path.getPathCount() > 1)
+                {
+                    line.append(String.format(" (%d paths)", path.getPathCount()));
+                }
+                sink.println(line.toString());
+            }
+
+            sink.println();
+        }
+    }
+
+    private String directLabel(final ArtifactGraph graph, final int id)
+    {
+        List<String> contributors = showContributors ? graph.getContributors(id) : Collections.emptyList();
+        if (contributors.isEmpty())
+        {
+            return graph.getLabel(id);
+        }
+        return String.format("%s (from %s)", graph.getLabel(id), String.join(", ", contributors));
+    }
+}
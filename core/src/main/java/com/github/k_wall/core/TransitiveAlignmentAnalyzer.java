@@ -0,0 +1,347 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Analyses the transitive dependencies of aligned direct dependencies.
+ *
+ * <p>Each artifact of the {@link ArtifactGraph} is analysed once: whether its subtree contains an unaligned
+ * dependency is memoized, so subtrees shared between several direct dependencies are not walked again.  Both the
+ * summary and the detail sections of the report are derived from the memoized result.</p>
+ *
+ * <p>What earlier builds found of the subtrees may be looked up, each artifact when the analysis first reaches it from
+ * the direct dependency above.  The analysis does not descend beneath an artifact whose subtree is known to be
+ * aligned, and the summary does not descend beneath one known to be unaligned either.</p>
+ *
+ * <p>Different direct dependencies may be analysed concurrently.  The result of an artifact is only published to the
+ * memo once its subtree has been analysed, and each thread tracks the artifacts it is still descending beneath itself,
+ * so a thread never reads another's incomplete result.  Two threads reaching the same shared subtree at once may both
+ * analyse it; they find the same result.</p>
+ */
+public final class TransitiveAlignmentAnalyzer
+{
+    private static final int[] NONE = new int[0];
+
+    private final ArtifactGraph graph;
+    private final boolean[] aligned;
+    /** Per artifact id, the children whose subtrees contain an unaligned dependency, or null if not yet analysed. */
+    private final AtomicReferenceArray<int[]> unalignedChildren;
+
+    private static final byte NOT_LOOKED_UP = 0;
+    private static final byte UNKNOWN = 1;
+    private static final byte KNOWN_ALIGNED = 2;
+    private static final byte KNOWN_UNALIGNED = 3;
+
+    /** Looks up whether a subtree is known, from an earlier build, to contain an unaligned dependency. */
+    private final IntFunction<Boolean> lookup;
+    /**
+     * Per artifact id, what the lookup found of its subtree.  Threads racing to look up the same artifact find the
+     * same, so the entries are written without synchronization.
+     */
+    private final byte[] known;
+    private final ThreadLocal<Walk> walks = ThreadLocal.withInitial(Walk::new);
+
+    public TransitiveAlignmentAnalyzer(final ArtifactGraph graph, final boolean[] aligned)
+    {
+        this(graph, aligned, null);
+    }
+
+    /**
+     * @param graph the graph
+     * @param aligned per artifact id, whether the artifact is aligned
+     * @param lookup given an artifact id, whether the subtree beneath the artifact is already known to contain an
+     * unaligned dependency, <code>null</code> where it is not known; or <code>null</code> if nothing is known.  A
+     * subtree known to be aligned is not walked.
+     */
+    public TransitiveAlignmentAnalyzer(final ArtifactGraph graph, final boolean[] aligned,
+                                       final IntFunction<Boolean> lookup)
+    {
+        this.graph = graph;
+        this.aligned = aligned;
+        this.lookup = lookup;
+        this.known = lookup == null ? null : new byte[graph.size()];
+        this.unalignedChildren = new AtomicReferenceArray<>(graph.size());
+    }
+
+    /**
+     * @param id a direct dependency
+     * @return <code>true</code> if the dependency has at least one unaligned transitive dependency
+     */
+    public boolean hasUnalignedTransitives(final int id)
+    {
+        if (unalignedChildren.get(id) == null)
+        {
+            byte state = lookUp(id);
+            if (state != UNKNOWN)
+            {
+                return state == KNOWN_UNALIGNED;
+            }
+        }
+        return analyse(id).length > 0;
+    }
+
+    /**
+     * @param id an artifact
+     * @return whether the subtree beneath the artifact was analysed, rather than known beforehand, and if so
+     * whether it contains an unaligned dependency; <code>null</code> if neither
+     */
+    Boolean getAnalysedVerdict(final int id)
+    {
+        // every subtree analysed was looked up first
+        int[] result = unalignedChildren.get(id);
+        if (result == null || known != null && known[id] != UNKNOWN)
+        {
+            return null;
+        }
+        return result.length > 0;
+    }
+
+    /**
+     * Lists the path to each unaligned dependency beneath the given direct dependency.  Paths are listed in depth
+     * first, post order.
+     *
+     * @param id a direct dependency
+     * @param paths the list to add the paths to
+     */
+    public void collectUnalignedPaths(final int id, final List<UnalignedPath> paths)
+    {
+        collectUnalignedPaths(new UnalignedPath(id, null), paths);
+    }
+
+    private void collectUnalignedPaths(final UnalignedPath path, final List<UnalignedPath> paths)
+    {
+        int id = path.getArtifact();
+        for (int child : analyse(id))
+        {
+            collectUnalignedPaths(new UnalignedPath(child, path), paths);
+        }
+        if (!aligned[id])
+        {
+            paths.add(path);
+        }
+    }
+
+    /**
+     * Lists, for each unaligned dependency beneath the given direct dependency, one shortest path to it together with
+     * the number of distinct paths to it.  The counts are computed in a single dynamic programming pass over the
+     * subgraph, so the cost does not depend upon the number of paths.  Counts saturate at {@link Long#MAX_VALUE}.
+     *
+     * @param id a direct dependency
+     * @param paths the list to add the paths to
+     */
+    public void collectShortestUnalignedPaths(final int id, final List<UnalignedPath> paths)
+    {
+        Walk walk = walks.get();
+        int size = walk.walkUnalignedSubgraph(id);
+        int[] postOrder = walk.postOrder;
+        long[] pathCounts = walk.pathCounts;
+        int[] distances = walk.distances;
+        int[] predecessors = walk.predecessors;
+
+        for (int i = 0; i < size; i++)
+        {
+            int node = postOrder[i];
+            pathCounts[node] = 0;
+            distances[node] = Integer.MAX_VALUE;
+        }
+        pathCounts[id] = 1;
+        distances[id] = 0;
+
+        // reverse post order is a topological order of the subgraph
+        for (int i = size - 1; i >= 0; i--)
+        {
+            int parent = postOrder[i];
+            for (int child : analyse(parent))
+            {
+                long count = pathCounts[child] + pathCounts[parent];
+                pathCounts[child] = count < 0 ? Long.MAX_VALUE : count;
+                if (distances[parent] + 1 < distances[child])
+                {
+                    distances[child] = distances[parent] + 1;
+                    predecessors[child] = parent;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            int node = postOrder[i];
+            if (node != id && !aligned[node])
+            {
+                paths.add(walk.shortestPath(id, node));
+            }
+        }
+    }
+
+    /**
+     * Lists the unaligned dependencies beneath the given direct dependency, each once however many paths lead to
+     * it, in depth first post order.
+     *
+     * @param id a direct dependency
+     * @return the unaligned dependencies
+     */
+    int[] getUnalignedTransitives(final int id)
+    {
+        Walk walk = walks.get();
+        int size = walk.walkUnalignedSubgraph(id);
+        return Arrays.stream(walk.postOrder, 0, size).filter(node -> node != id && !aligned[node]).toArray();
+    }
+
+    private int[] analyse(final int id)
+    {
+        int[] result = unalignedChildren.get(id);
+        return result != null ? result : analyse(id, walks.get().descending);
+    }
+
+    /**
+     * @param descending per artifact id, whether this thread is descending beneath the artifact
+     */
+    private int[] analyse(final int id, final boolean[] descending)
+    {
+        int[] result = unalignedChildren.get(id);
+        if (result != null)
+        {
+            return result;
+        }
+        if (descending[id])
+        {
+            // a (malformed) cyclic graph: the artifact is taken to have no unaligned dependency beneath it again
+            return NONE;
+        }
+        if (lookUp(id) == KNOWN_ALIGNED)
+        {
+            unalignedChildren.set(id, NONE);
+            return NONE;
+        }
+
+        descending[id] = true;
+        int[] children = graph.getChildren(id);
+        int[] unaligned = new int[children.length];
+        int count = 0;
+        for (int child : children)
+        {
+            if (!aligned[child] || analyse(child, descending).length > 0)
+            {
+                unaligned[count++] = child;
+            }
+        }
+        descending[id] = false;
+
+        result = count == 0 ? NONE : Arrays.copyOf(unaligned, count);
+        unalignedChildren.set(id, result);
+        return result;
+    }
+
+    /**
+     * @return what is known of the subtree beneath the artifact, looking it up the first time it is asked for
+     */
+    private byte lookUp(final int id)
+    {
+        if (known == null)
+        {
+            return UNKNOWN;
+        }
+        if (known[id] == NOT_LOOKED_UP)
+        {
+            Boolean unaligned = lookup.apply(id);
+            known[id] = unaligned == null ? UNKNOWN : unaligned ? KNOWN_UNALIGNED : KNOWN_ALIGNED;
+        }
+        return known[id];
+    }
+
+    /**
+     * Scratch space for walking the subgraph beneath a direct dependency, indexed by artifact id.  Each thread has
+     * its own.
+     */
+    private final class Walk
+    {
+        private final boolean[] descending = new boolean[graph.size()];
+        private final int[] visited = new int[graph.size()];
+        private int visit;
+        private final long[] pathCounts = new long[graph.size()];
+        private final int[] distances = new int[graph.size()];
+        private final int[] predecessors = new int[graph.size()];
+        private int[] postOrder = new int[16];
+
+        /**
+         * Walks the part of the subgraph beneath the given artifact that leads to unaligned dependencies, leaving
+         * the artifacts walked in {@link #postOrder}, in depth first post order.
+         *
+         * @return the number of artifacts walked
+         */
+        private int walkUnalignedSubgraph(final int id)
+        {
+            visit++;
+
+            int size = 0;
+            Deque<int[]> stack = new ArrayDeque<>();
+            visited[id] = visit;
+            stack.push(new int[] {id, 0});
+            while (!stack.isEmpty())
+            {
+                int[] frame = stack.peek();
+                int[] children = analyse(frame[0]);
+                if (frame[1] < children.length)
+                {
+                    int child = children[frame[1]++];
+                    if (visited[child] != visit)
+                    {
+                        visited[child] = visit;
+                        stack.push(new int[] {child, 0});
+                    }
+                }
+                else
+                {
+                    stack.pop();
+                    if (size == postOrder.length)
+                    {
+                        postOrder = Arrays.copyOf(postOrder, size * 2);
+                    }
+                    postOrder[size++] = frame[0];
+                }
+            }
+            return size;
+        }
+
+        private UnalignedPath shortestPath(final int from, final int to)
+        {
+            int[] chain = new int[distances[to] + 1];
+            int node = to;
+            for (int i = chain.length - 1; i > 0; i--)
+            {
+                chain[i] = node;
+                node = predecessors[node];
+            }
+            chain[0] = from;
+
+            UnalignedPath path = null;
+            for (int i = 0; i < chain.length - 1; i++)
+            {
+                path = new UnalignedPath(chain[i], path);
+            }
+            return new UnalignedPath(to, path, pathCounts[to]);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A path from a direct dependency down to one of its transitive dependencies.
+ *
+ * <p>A path is held as its last artifact plus a pointer to the path of its parent, so paths sharing a prefix share
+ * its storage.  The path is only turned into text when the report is written.</p>
+ */
+public final class UnalignedPath
+{
+    private final int artifact;
+    private final UnalignedPath parent;
+    private final long pathCount;
+
+    UnalignedPath(final int artifact, final UnalignedPath parent)
+    {
+        this(artifact, parent, 1);
+    }
+
+    /**
+     * @param artifact the id of the last artifact of the path
+     * @param parent the path to the parent of the last artifact
+     * @param pathCount the number of distinct paths this path stands for
+     */
+    UnalignedPath(final int artifact, final UnalignedPath parent, final long pathCount)
+    {
+        this.artifact = artifact;
+        this.parent = parent;
+        this.pathCount = pathCount;
+    }
+
+    /**
+     * @return the id of the last artifact of the path
+     */
+    int getArtifact()
+    {
+        return artifact;
+    }
+
+    /**
+     * @return the path to the parent of the last artifact, or <code>null</code> if this path is a direct dependency
+     */
+    UnalignedPath getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * @return the number of distinct paths between the same two artifacts that this path stands for
+     */
+    long getPathCount()
+    {
+        return pathCount;
+    }
+
+    /**
+     * Counts the nodes making up the given paths, each node shared by several paths counted once: the paths' footprint.
+     *
+     * @param paths the paths
+     * @return the number of distinct nodes
+     */
+    public static long countNodes(final Collection<UnalignedPath> paths)
+    {
+        Set<UnalignedPath> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (UnalignedPath path : paths)
+        {
+            // the parents of a node already counted have been counted with it
+            UnalignedPath node = path;
+            while (node != null && nodes.add(node))
+            {
+                node = node.parent;
+            }
+        }
+        return nodes.size();
+    }
+
+    /**
+     * Appends the path, last artifact first, to the given builder.
+     *
+     * @param builder the builder
+     * @param graph the graph the path belongs to
+     * @param separator the text separating each artifact from its parent
+     */
+    void appendTo(final StringBuilder builder, final ArtifactGraph graph, final String separator)
+    {
+        builder.append(graph.getLabel(artifact));
+        for (UnalignedPath p = parent; p != null; p = p.parent)
+        {
+            builder.append(separator).append(graph.getLabel(p.artifact));
+        }
+    }
+}
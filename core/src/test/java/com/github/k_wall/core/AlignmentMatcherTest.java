@@ -0,0 +1,168 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class AlignmentMatcherTest
+{
+    private static final String[] LITERALS = {"redhat", "red", "hat", "redhat-1", "at-", "-", "1", "é", "\\.", "\\-"};
+    private static final String[] REGULAR_EXPRESSIONS = {"red.at", "redhat-\\d+", "^1", "hat$", "(?i)REDHAT", "[é]",
+            "(red|hat)-1", "1\\.0+"};
+    private static final String CHARACTERS = "redhat-.01éR";
+
+    @Test
+    public void agreesWithFindOnGeneratedPatterns()
+    {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++)
+        {
+            List<Pattern> patterns = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int i = 0; i < count; i++)
+            {
+                patterns.add(Pattern.compile(pattern(random)));
+            }
+
+            AlignmentMatcher matcher = AlignmentMatcher.compile(patterns);
+            for (int i = 0; i < 50; i++)
+            {
+                String version = version(random);
+                assertEquals(String.format("%s against %s", version, patterns), find(patterns, version),
+                             matcher.matches(version));
+            }
+        }
+    }
+
+    @Test
+    public void findsALiteralOverlappingAnother()
+    {
+        // bc is only found by following the failure link out of abc
+        assertMatches(Arrays.asList("abcd", "bc"), "xabce", true);
+        assertMatches(Arrays.asList("abcd", "bcx"), "abcx", true);
+        assertMatches(Arrays.asList("abcd", "bcx"), "abcbx", false);
+        assertMatches(Collections.singletonList("aab|ab"), "aaab", true);
+    }
+
+    @Test
+    public void findsAPatternThatIsAPrefixOfAnother()
+    {
+        assertMatches(Arrays.asList("redhat-00001", "redhat"), "1.0.redhat", true);
+        assertMatches(Arrays.asList("redhat-00001", "redhat"), "1.0.redha", false);
+        assertMatches(Collections.singletonList("redhat|redhat-00001"), "1.0.redhat-00002", true);
+    }
+
+    @Test
+    public void matchesAnEmptyVersion()
+    {
+        assertMatches(Collections.singletonList("redhat"), "", false);
+        assertMatches(Arrays.asList("redhat", "hat"), "", false);
+        assertMatches(Collections.singletonList(""), "", true);
+        assertMatches(Collections.singletonList("redhat|"), "", true);
+        assertMatches(Collections.singletonList("^$"), "", true);
+    }
+
+    @Test
+    public void fallsBackToTheRegularExpressionForOtherPatterns()
+    {
+        assertMatches(Collections.singletonList("redhat-\\d+"), "1.0.redhat-1", true);
+        assertMatches(Collections.singletonList("redhat-\\d+"), "1.0.redhat-x", false);
+        assertMatches(Collections.singletonList("1\\.0"), "1.0", true);
+        assertMatches(Collections.singletonList("1\\.0"), "1x0", false);
+        assertMatches(Arrays.asList("redhat", "^2\\."), "2.0", true);
+        assertMatches(Arrays.asList("redhat", "^2\\."), "1.2.0", false);
+
+        Pattern caseInsensitive = Pattern.compile("REDHAT", Pattern.CASE_INSENSITIVE);
+        assertTrue(AlignmentMatcher.compile(Collections.singletonList(caseInsensitive)).matches("1.0.redhat-1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnInvalidPattern()
+    {
+        AlignmentMatcher.compileSources(Collections.singletonList("redhat("));
+    }
+
+    private static void assertMatches(final List<String> sources, final String version, final boolean expected)
+    {
+        List<Pattern> patterns = new ArrayList<>();
+        sources.forEach(source -> patterns.add(Pattern.compile(source)));
+        String message = String.format("%s against %s", version, sources);
+        assertEquals(message, expected, find(patterns, version));
+        assertEquals(message, expected, AlignmentMatcher.compile(patterns).matches(version));
+    }
+
+    private static boolean find(final List<Pattern> patterns, final String version)
+    {
+        return patterns.stream().anyMatch(pattern -> pattern.matcher(version).find());
+    }
+
+    private static String pattern(final Random random)
+    {
+        if (random.nextInt(10) == 0)
+        {
+            return REGULAR_EXPRESSIONS[random.nextInt(REGULAR_EXPRESSIONS.length)];
+        }
+        StringBuilder pattern = new StringBuilder();
+        int alternatives = 1 + random.nextInt(3);
+        for (int i = 0; i < alternatives; i++)
+        {
+            if (i > 0)
+            {
+                pattern.append('|');
+            }
+            // now and then an empty alternative, found in every version
+            if (random.nextInt(50) > 0)
+            {
+                pattern.append(LITERALS[random.nextInt(LITERALS.length)]);
+                if (random.nextBoolean())
+                {
+                    pattern.append(LITERALS[random.nextInt(LITERALS.length)]);
+                }
+            }
+        }
+        return pattern.toString();
+    }
+
+    private static String version(final Random random)
+    {
+        StringBuilder version = new StringBuilder();
+        int length = random.nextInt(14);
+        for (int i = 0; i < length; i++)
+        {
+            version.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        if (random.nextBoolean())
+        {
+            // and often a literal, or a part of one, to be found
+            String literal = LITERALS[random.nextInt(LITERALS.length)].replace("\\", "");
+            version.insert(random.nextInt(version.length() + 1),
+                           literal.substring(0, 1 + random.nextInt(literal.length())));
+        }
+        return version.toString();
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.filter.ArtifactDependencyNodeFilter;
+import org.junit.Test;
+
+public class AlignmentResultTest
+{
+    private static final Comparator<Artifact> ARTIFACT_COMPARATOR = Comparator.comparing(Artifact::getGroupId)
+            .thenComparing(Artifact::getArtifactId);
+
+    @Test
+    public void allPathsMatchTheTreeWalkingAnalyser()
+    {
+        TestGraphs.forEachRandom(50, 5, 4, 3, (seed, directDependencies) -> {
+            List<String> report = TestGraphs.render(analyse(directDependencies), DetailMode.ALL_PATHS);
+
+            assertEquals(treeWalkingSummary(directDependencies), linesStartingWith(report, "Incompletely aligned - "));
+            assertEquals(treeWalkingDetail(directDependencies), linesStartingWith(report, "Unaligned transitive - "));
+        });
+    }
+
+    @Test
+    public void listsEachPathThroughADiamond()
+    {
+        DependencyNode shared = node("org.other:x:1.0");
+        List<DependencyNode> directDependencies = Collections.singletonList(
+                node("org.example:d:1.redhat-1", node("org.example:a:1.redhat-1", shared),
+                     node("org.example:b:1.redhat-1", node("org.example:c:1.redhat-1", shared))));
+
+        assertEquals(Arrays.asList("Incompletely aligned - org.example:d:jar:1.redhat-1:compile"),
+                     summary(directDependencies));
+        assertEquals(Arrays.asList("Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile",
+                                   "Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:c:jar:1.redhat-1:compile"
+                                   + " <- org.example:b:jar:1.redhat-1:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile"),
+                     detail(directDependencies, DetailMode.ALL_PATHS));
+        assertEquals(Arrays.asList("Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile (2 paths)"),
+                     detail(directDependencies, DetailMode.SHORTEST_PATH));
+    }
+
+    @Test
+    public void listsUnalignedDependenciesBeneathUnalignedOnes()
+    {
+        List<DependencyNode> directDependencies = Collections.singletonList(
+                node("org.example:d:1.redhat-1", node("org.other:u:1.0", node("org.other:v:1.0"))));
+
+        assertEquals(Arrays.asList("Unaligned transitive - org.other:u:jar:1.0:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile",
+                                   "Unaligned transitive - org.other:v:jar:1.0:compile"
+                                   + " <- org.other:u:jar:1.0:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile"),
+                     detail(directDependencies, DetailMode.ALL_PATHS));
+    }
+
+    @Test
+    public void looksBeneathAlignedDirectDependenciesOnly()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:complete:1.redhat-1", node("org.example:a:1.redhat-1")),
+                node("org.example:unaligned:1.0", node("org.example:b:1.redhat-1", node("org.other:x:1.0"))));
+
+        assertEquals(Collections.emptyList(), summary(directDependencies));
+        assertEquals(Collections.emptyList(), detail(directDependencies, DetailMode.ALL_PATHS));
+    }
+
+    @Test
+    public void reportsAnEmptyGraph()
+    {
+        AlignmentResult result = analyse(Collections.emptyList());
+
+        assertEquals(Arrays.asList("0 Aligned direct dependencies",
+                                   "-----------------------------",
+                                   "",
+                                   "0 Unaligned direct dependencies",
+                                   "-------------------------------",
+                                   ""),
+                     TestGraphs.render(result, DetailMode.SHORTEST_PATH));
+        assertFalse(analyse(Collections.emptyList()).hasIncompletelyAlignedDirectDependency());
+        assertNull(AlignmentResult.describeUnaligned(Collections.singletonList(result)));
+    }
+
+    @Test
+    public void reportsADirectDependencyAlsoReachedTransitively()
+    {
+        // u is unaligned both as a direct dependency and beneath d; a is aligned both as one and beneath d
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:d:1.redhat-1", node("org.other:u:1.0"),
+                     node("org.example:a:1.redhat-1", node("org.other:x:1.0"))),
+                node("org.other:u:1.0"),
+                node("org.example:a:1.redhat-1", node("org.other:x:1.0")));
+
+        assertEquals(Arrays.asList("2 Aligned direct dependencies",
+                                   "-----------------------------",
+                                   "Aligned - org.example:a:jar:1.redhat-1:compile",
+                                   "Aligned - org.example:d:jar:1.redhat-1:compile",
+                                   "",
+                                   "1 Unaligned direct dependency",
+                                   "-----------------------------",
+                                   "Unaligned - org.other:u:jar:1.0:compile",
+                                   "",
+                                   "Summary - Aligned direct dependencies with unaligned transitive dependencies",
+                                   "----------------------------------------------------------------------------",
+                                   "Incompletely aligned - org.example:a:jar:1.redhat-1:compile",
+                                   "Incompletely aligned - org.example:d:jar:1.redhat-1:compile",
+                                   "",
+                                   "Top offenders - Unaligned transitive dependencies reached from the most aligned"
+                                   + " direct dependencies",
+                                   "-----------------------------------------------------------------------------"
+                                   + "----------------------",
+                                   "Offender - org.other:x:jar:1.0:compile (reached from 2 aligned direct"
+                                   + " dependencies)",
+                                   "Offender - org.other:u:jar:1.0:compile (reached from 1 aligned direct"
+                                   + " dependency)",
+                                   "",
+                                   "Detail - Aligned direct dependencies with unaligned transitive dependencies",
+                                   "---------------------------------------------------------------------------",
+                                   "Unaligned transitive - org.other:u:jar:1.0:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile",
+                                   "Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile"
+                                   + " <- org.example:d:jar:1.redhat-1:compile",
+                                   "Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile",
+                                   ""),
+                     TestGraphs.render(analyse(directDependencies), DetailMode.SHORTEST_PATH));
+        assertEquals("There is 1 unaligned direct dependency and there are 2 aligned direct dependencies with at"
+                     + " least one unaligned transitive dependency",
+                     AlignmentResult.describeUnaligned(Collections.singletonList(analyse(directDependencies))));
+    }
+
+    @Test
+    public void omitsAnExcludedDirectDependencyAndItsSubtree()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:d:1.redhat-1", node("org.other:u:1.0")),
+                node("org.other:u:1.0", node("org.other:y:1.0")),
+                node("org.example:e:1.redhat-1", node("org.example:f:1.redhat-1")));
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, new ArtifactDependencyNodeFilter(
+                new CompiledExcludeFilter(Collections.singletonList("org.other:u"))));
+
+        assertEquals(Arrays.asList("2 Aligned direct dependencies",
+                                   "-----------------------------",
+                                   "Aligned - org.example:d:jar:1.redhat-1:compile",
+                                   "Aligned - org.example:e:jar:1.redhat-1:compile",
+                                   "",
+                                   "0 Unaligned direct dependencies",
+                                   "-------------------------------",
+                                   ""),
+                     TestGraphs.render(TestGraphs.analyse(graph), DetailMode.ALL_PATHS));
+        assertFalse(TestGraphs.analyse(graph).hasIncompletelyAlignedDirectDependency());
+    }
+
+    @Test
+    public void gateAgreesWithTheSummary()
+    {
+        TestGraphs.forEachRandom(100, 6, 4, 2, (seed, directDependencies) -> {
+            AlignmentResult reported = analyse(directDependencies);
+            TestGraphs.render(reported, DetailMode.SHORTEST_PATH);
+            int[] incompletelyAligned = reported.getIncompletelyAlignedDirectDependencies();
+
+            // as a gate that stops at the first, and as one that counts, neither building the detail
+            AlignmentResult gated = analyse(directDependencies);
+            assertEquals(incompletelyAligned.length > 0, gated.hasIncompletelyAlignedDirectDependency());
+            AlignmentResult counted = analyse(directDependencies);
+            assertEquals(AlignmentResult.describeUnaligned(Collections.singletonList(reported)),
+                         AlignmentResult.describeUnaligned(Collections.singletonList(counted)));
+            assertEquals(incompletelyAligned.length > 0, counted.hasIncompletelyAlignedDirectDependency());
+        });
+    }
+
+    @Test(timeout = 10000)
+    public void gateDoesNotBuildTheDetail()
+    {
+        // every path down a ladder of 40 diamonds to the unaligned dependency at its foot: 2^40 of them
+        DependencyNode rung = node("org.other:unaligned:1.0");
+        for (int i = 40; i > 0; i--)
+        {
+            rung = node("org.example:rung-" + i + ":1.redhat-1", node("org.example:left-" + i + ":1.redhat-1", rung),
+                        node("org.example:right-" + i + ":1.redhat-1", rung));
+        }
+        List<DependencyNode> directDependencies = Collections.singletonList(rung);
+
+        assertTrue(analyse(directDependencies).hasIncompletelyAlignedDirectDependency());
+        assertEquals("There is 1 aligned direct dependency with at least one unaligned transitive dependency",
+                     AlignmentResult.describeUnaligned(Collections.singletonList(analyse(directDependencies))));
+    }
+
+    private static List<String> summary(final List<DependencyNode> directDependencies)
+    {
+        return linesStartingWith(TestGraphs.render(analyse(directDependencies), DetailMode.ALL_PATHS),
+                                 "Incompletely aligned - ");
+    }
+
+    private static List<String> detail(final List<DependencyNode> directDependencies, final DetailMode mode)
+    {
+        return linesStartingWith(TestGraphs.render(analyse(directDependencies), mode),
+                                 "Unaligned transitive - ");
+    }
+
+    private static AlignmentResult analyse(final List<DependencyNode> directDependencies)
+    {
+        return TestGraphs.analyse(directDependencies);
+    }
+
+    /**
+     * The summary as the analyser walking the dependency tree of each aligned direct dependency listed it.
+     */
+    private static List<String> treeWalkingSummary(final List<DependencyNode> directDependencies)
+    {
+        return directDependencies.stream()
+                                 .filter(node -> isAligned(node.getArtifact()) && hasUnalignedBeneath(node))
+                                 .map(DependencyNode::getArtifact)
+                                 .sorted(ARTIFACT_COMPARATOR)
+                                 .map(artifact -> "Incompletely aligned - " + artifact)
+                                 .collect(Collectors.toList());
+    }
+
+    private static boolean hasUnalignedBeneath(final DependencyNode node)
+    {
+        for (DependencyNode child : node.getChildren())
+        {
+            if (!isAligned(child.getArtifact()) || hasUnalignedBeneath(child))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The detail as the analyser walking the dependency tree of each aligned direct dependency listed it: every path
+     * down to an unaligned dependency, the unaligned dependency first.
+     */
+    private static List<String> treeWalkingDetail(final List<DependencyNode> directDependencies)
+    {
+        List<List<Artifact>> paths = new ArrayList<>();
+        for (DependencyNode node : directDependencies)
+        {
+            if (isAligned(node.getArtifact()))
+            {
+                collectPaths(node, new ArrayDeque<>(), paths);
+            }
+        }
+        return paths.stream()
+                    .distinct()
+                    .sorted((p1, p2) -> ARTIFACT_COMPARATOR.compare(p1.get(0), p2.get(0)))
+                    .map(path -> "Unaligned transitive - "
+                                 + path.stream().map(Artifact::toString).collect(Collectors.joining(" <- ")))
+                    .collect(Collectors.toList());
+    }
+
+    private static void collectPaths(final DependencyNode node, final Deque<Artifact> stack,
+                                     final List<List<Artifact>> paths)
+    {
+        stack.push(node.getArtifact());
+        for (DependencyNode child : node.getChildren())
+        {
+            collectPaths(child, stack, paths);
+        }
+        if (!isAligned(node.getArtifact()))
+        {
+            paths.add(new ArrayList<>(stack));
+        }
+        stack.pop();
+    }
+
+    private static boolean isAligned(final Artifact artifact)
+    {
+        return artifact.getVersion().contains(TestGraphs.ALIGNMENT_PATTERN);
+    }
+
+    private static List<String> linesStartingWith(final List<String> lines, final String prefix)
+    {
+        return lines.stream().filter(line -> line.startsWith(prefix)).collect(Collectors.toList());
+    }
+}
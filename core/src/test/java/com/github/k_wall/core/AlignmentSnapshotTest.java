@@ -0,0 +1,144 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlignmentSnapshotTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotReadBackHasNoChanges()
+    {
+        TestGraphs.forEachRandom(10, 5, 4, 3, (seed, directDependencies) -> {
+            for (DetailMode mode : DetailMode.values())
+            {
+                AlignmentSnapshot snapshot = snapshot(directDependencies, mode);
+                File file = folder.newFile();
+                snapshot.writeTo(file);
+
+                AlignmentSnapshot.Delta delta = snapshot.diff(AlignmentSnapshot.readFrom(file));
+                assertTrue(mode.toString(), delta.getRegressions().isEmpty());
+                assertTrue(mode.toString(), delta.getFixes().isEmpty());
+                assertNull(mode.toString(), delta.describeRegressions());
+            }
+        });
+    }
+
+    @Test
+    public void listsRegressionsAndFixesInReportOrder()
+    {
+        AlignmentSnapshot baseline = snapshot(Arrays.asList(
+                node("org.example:b:1.0"),
+                node("org.example:a:1.redhat-1", node("org.other:x:1.0")),
+                node("org.example:c:1.redhat-1", node("org.other:y:1.0"))), DetailMode.SHORTEST_PATH);
+        AlignmentSnapshot current = snapshot(Arrays.asList(
+                node("org.example:d:1.0"),
+                node("org.example:b:1.0"),
+                node("org.example:a:1.redhat-1", node("org.other:x:1.0"), node("org.other:z:1.0")),
+                node("org.example:c:1.redhat-1", node("org.other:y:1.redhat-1"))), DetailMode.SHORTEST_PATH);
+
+        AlignmentSnapshot.Delta delta = current.diff(baseline);
+        assertEquals(Arrays.asList("Unaligned direct - org.example:d:jar:1.0:compile",
+                                   "Unaligned transitive - org.other:z:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile"),
+                     describe(delta.getRegressions()));
+        assertEquals(Arrays.asList("Incompletely aligned - org.example:c:jar:1.redhat-1:compile",
+                                   "Unaligned transitive - org.other:y:jar:1.0:compile"
+                                   + " <- org.example:c:jar:1.redhat-1:compile"),
+                     describe(delta.getFixes()));
+        assertEquals("There are 2 alignment regressions since the baseline", delta.describeRegressions());
+    }
+
+    @Test
+    public void comparesADiamondWithAnEmptyBaseline()
+    {
+        DependencyNode shared = node("org.other:x:1.0");
+        AlignmentSnapshot diamond = snapshot(Arrays.asList(
+                node("org.example:d:1.redhat-1", node("org.example:a:1.redhat-1", shared),
+                     node("org.example:b:1.redhat-1", shared))), DetailMode.SHORTEST_PATH);
+        AlignmentSnapshot empty = snapshot(Collections.emptyList(), DetailMode.SHORTEST_PATH);
+
+        List<String> entries = Arrays.asList("Incompletely aligned - org.example:d:jar:1.redhat-1:compile",
+                                             "Unaligned transitive - org.other:x:jar:1.0:compile"
+                                             + " <- org.example:b:jar:1.redhat-1:compile"
+                                             + " <- org.example:d:jar:1.redhat-1:compile");
+        AlignmentSnapshot.Delta regressed = diamond.diff(empty);
+        assertEquals(entries, describe(regressed.getRegressions()));
+        assertEquals(Collections.emptyList(), describe(regressed.getFixes()));
+        assertEquals("There are 2 alignment regressions since the baseline", regressed.describeRegressions());
+
+        AlignmentSnapshot.Delta fixed = empty.diff(diamond);
+        assertEquals(Collections.emptyList(), describe(fixed.getRegressions()));
+        assertEquals(entries, describe(fixed.getFixes()));
+        assertNull(fixed.describeRegressions());
+    }
+
+    @Test
+    public void keepsAnEntryFoundInSeveralScopesOncePerScope()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(node("org.example:a:1.0"));
+        Map<String, AlignmentResult> results = new LinkedHashMap<>();
+        results.put("compile", analyse(directDependencies));
+        results.put("runtime", analyse(directDependencies));
+        AlignmentSnapshot twoScopes = AlignmentSnapshot.of(results, DetailMode.SHORTEST_PATH);
+
+        results.remove("runtime");
+        AlignmentSnapshot.Delta delta = twoScopes.diff(AlignmentSnapshot.of(results, DetailMode.SHORTEST_PATH));
+        assertEquals(1, delta.getRegressions().size());
+        assertEquals("runtime", delta.getRegressions().get(0).getScope());
+        assertTrue(delta.getFixes().isEmpty());
+    }
+
+    private static AlignmentSnapshot snapshot(final List<DependencyNode> directDependencies, final DetailMode mode)
+    {
+        Map<String, AlignmentResult> results = new LinkedHashMap<>();
+        results.put(null, analyse(directDependencies));
+        return AlignmentSnapshot.of(results, mode);
+    }
+
+    private static AlignmentResult analyse(final List<DependencyNode> directDependencies)
+    {
+        return TestGraphs.analyse(directDependencies);
+    }
+
+    private static List<String> describe(final List<AlignmentSnapshot.Entry> entries)
+    {
+        return entries.stream()
+                      .map(entry -> entry.getKind().getLabel() + " - " + entry.getText())
+                      .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,224 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Test;
+
+public class ArtifactGraphTest
+{
+    @Test
+    public void holdsTheChildrenOfEachNode()
+    {
+        TestGraphs.forEachRandom(50, 6, 5, 3, (seed, directDependencies) -> {
+            ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+
+            Set<DependencyNode> nodes = new HashSet<>();
+            directDependencies.forEach(node -> collect(node, nodes));
+            assertEquals(nodes.size(), graph.size());
+            assertEquals(labels(directDependencies), labels(graph, graph.getDirectDependencies()));
+            for (int id = 0; id < graph.size(); id++)
+            {
+                DependencyNode node = find(nodes, graph.getLabel(id));
+                assertEquals(graph.getLabel(id), labels(node.getChildren()), labels(graph, graph.getChildren(id)));
+            }
+        });
+    }
+
+    @Test
+    public void internsEachCoordinateOnceWithTheChildrenOfItsFirstOccurrence()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:a:1.0", node("org.example:shared:1.0", node("org.example:first:1.0"))),
+                node("org.example:b:1.0", node("org.example:shared:1.0", node("org.example:second:1.0"))),
+                node("org.example:c:1.0", node("org.example:shared:2.0")));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+
+        // shared:1.0 once, shared:2.0 apart, and second never reached
+        assertEquals(6, graph.size());
+        int a = graph.getDirectDependencies()[0];
+        int b = graph.getDirectDependencies()[1];
+        assertArrayEquals(graph.getChildren(a), graph.getChildren(b));
+        assertEquals(Arrays.asList("org.example:first:jar:1.0:compile"),
+                     labels(graph, graph.getChildren(graph.getChildren(b)[0])));
+    }
+
+    @Test
+    public void attachesTheChildrenOfRejectedNodesToTheNearestAcceptedAncestor()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:a:1.0",
+                     node("org.example:rejected:1.0",
+                          node("org.example:b:1.0"),
+                          node("org.example:rejected:2.0", node("org.example:c:1.0")))));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies,
+                                               node -> !node.getArtifact().getArtifactId().equals("rejected"));
+
+        assertEquals(Arrays.asList("org.example:b:jar:1.0:compile", "org.example:c:jar:1.0:compile"),
+                     labels(graph, graph.getChildren(graph.getDirectDependencies()[0])));
+        assertEquals(5, graph.getVisitedNodes());
+    }
+
+    @Test
+    public void omitsTheSubtreesOfArtifactsOutsideTheScopes()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:a:1.0", node("org.example:b:1.0:runtime", node("org.example:c:1.0")),
+                     node("org.example:d:1.0")),
+                node("org.example:e:1.0:test"));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true)
+                                           .filterByScope(scope -> scope.equals("compile"));
+
+        assertEquals(Arrays.asList("org.example:a:jar:1.0:compile"), labels(graph, graph.getDirectDependencies()));
+        assertEquals(Arrays.asList("org.example:d:jar:1.0:compile"),
+                     labels(graph, graph.getChildren(graph.getDirectDependencies()[0])));
+        assertEquals(2, graph.size());
+    }
+
+    @Test
+    public void sortsByGroupIdThenArtifactIdKeepingVersionsInOrder()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.b:a:1.0"), node("org.a:b:2.0"), node("org.a:b:1.0"), node("org.a:a:1.0"));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+        int[] ids = graph.getDirectDependencies();
+        graph.sortByArtifact(ids);
+
+        assertEquals(Arrays.asList("org.a:a:jar:1.0:compile", "org.a:b:jar:2.0:compile", "org.a:b:jar:1.0:compile",
+                                   "org.b:a:jar:1.0:compile"),
+                     labels(graph, ids));
+        assertEquals(graph.getSortKey(ids[1]), graph.getSortKey(ids[2]));
+    }
+
+    @Test
+    public void internsADirectDependencyAlsoReachedTransitivelyOnce()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:d:1.0", node("org.example:a:1.0", node("org.example:x:1.0"))),
+                node("org.example:a:1.0", node("org.example:x:1.0")));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+        int[] direct = graph.getDirectDependencies();
+        assertEquals(3, graph.size());
+        assertEquals(Arrays.asList("org.example:d:jar:1.0:compile", "org.example:a:jar:1.0:compile"),
+                     labels(graph, direct));
+        assertArrayEquals(new int[] {direct[1]}, graph.getChildren(direct[0]));
+    }
+
+    @Test
+    public void omitsARejectedDirectDependencyWithItsSubtree()
+    {
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:d:1.0", node("org.example:excluded:1.0", node("org.example:x:1.0"))),
+                node("org.example:excluded:1.0", node("org.example:x:1.0"), node("org.example:y:1.0")));
+
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> !node.getArtifact().getArtifactId()
+                                                                                 .equals("excluded"));
+        int[] direct = graph.getDirectDependencies();
+        assertEquals(Arrays.asList("org.example:d:jar:1.0:compile"), labels(graph, direct));
+        // beneath d, the children of the rejected node are attached to d; y, beneath it only as a direct
+        // dependency, is gone
+        assertEquals(Arrays.asList("org.example:x:jar:1.0:compile"), labels(graph, graph.getChildren(direct[0])));
+        assertEquals(2, graph.size());
+    }
+
+    @Test
+    public void holdsNothingForNoDependencies()
+    {
+        ArtifactGraph graph = ArtifactGraph.of(Collections.emptyList(), node -> true);
+        assertEquals(0, graph.size());
+        assertEquals(0, graph.getDirectDependencies().length);
+        assertFalse(graph.containsSnapshots());
+    }
+
+    @Test
+    public void digestsTheWholeSubtreeAsResolved()
+    {
+        ArtifactGraph graph = ArtifactGraph.of(Arrays.asList(
+                node("org.example:lib:1.0", node("org.example:core:1.0", node("org.other:util:2.0"))),
+                node("org.example:other:1.0", node("org.example:core:1.0"))), node -> true);
+        ArtifactGraph alike = ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.example:core:1.0", node("org.other:util:2.0")))), node -> true);
+        ArtifactGraph deeperChange = ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.example:core:1.0", node("org.other:util:2.1")))), node -> true);
+        ArtifactGraph excluded = ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.example:core:1.0"))), node -> true);
+
+        int lib = graph.getDirectDependencies()[0];
+        assertArrayEquals(graph.getSubtreeDigest(lib), alike.getSubtreeDigest(alike.getDirectDependencies()[0]));
+        assertFalse(Arrays.equals(graph.getSubtreeDigest(lib),
+                                  deeperChange.getSubtreeDigest(deeperChange.getDirectDependencies()[0])));
+        assertFalse(Arrays.equals(graph.getSubtreeDigest(lib),
+                                  excluded.getSubtreeDigest(excluded.getDirectDependencies()[0])));
+    }
+
+    @Test
+    public void digestsTheSubtreeOfEachScopeApart()
+    {
+        ArtifactGraph graph = ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.other:util:2.0:runtime"))), node -> true);
+        ArtifactGraph compile = graph.filterByScope(scope -> scope.equals("compile"));
+        ArtifactGraph runtime = graph.filterByScope(scope -> scope.equals("compile") || scope.equals("runtime"));
+
+        assertFalse(Arrays.equals(compile.getSubtreeDigest(compile.getDirectDependencies()[0]),
+                                  runtime.getSubtreeDigest(runtime.getDirectDependencies()[0])));
+    }
+
+    private static void collect(final DependencyNode node, final Set<DependencyNode> nodes)
+    {
+        if (nodes.add(node))
+        {
+            node.getChildren().forEach(child -> collect(child, nodes));
+        }
+    }
+
+    private static DependencyNode find(final Set<DependencyNode> nodes, final String label)
+    {
+        return nodes.stream().filter(node -> node.getArtifact().toString().equals(label)).findFirst().get();
+    }
+
+    private static List<String> labels(final List<DependencyNode> nodes)
+    {
+        List<String> labels = new ArrayList<>();
+        nodes.forEach(node -> labels.add(node.getArtifact().toString()));
+        return labels;
+    }
+
+    private static List<String> labels(final ArtifactGraph graph, final int[] ids)
+    {
+        List<String> labels = new ArrayList<>();
+        Arrays.stream(ids).forEach(id -> labels.add(graph.getLabel(id)));
+        return labels;
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Test;
+
+public class BlastRadiusIndexTest
+{
+    @Test
+    public void reachMatchesANaiveWalk()
+    {
+        TestGraphs.forEachRandom(50, 6, 5, 3, (seed, directDependencies) -> {
+            Map<String, Set<String>> expected = naiveReach(directDependencies);
+
+            ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+            BlastRadiusIndex index = TestGraphs.analyse(graph).getBlastRadiusIndex();
+            for (int id = 0; id < graph.size(); id++)
+            {
+                Set<String> reachedFrom = new TreeSet<>();
+                Arrays.stream(index.getReachedFrom(id)).forEach(direct -> reachedFrom.add(graph.getLabel(direct)));
+                assertEquals(graph.getLabel(id), expected.getOrDefault(graph.getLabel(id), Collections.emptySet()),
+                             reachedFrom);
+            }
+        });
+    }
+
+    @Test
+    public void ranksByReachThenArtifact()
+    {
+        TestGraphs.forEachRandom(50, 6, 5, 3, (seed, directDependencies) -> {
+            Map<String, Set<String>> reach = naiveReach(directDependencies);
+            List<String> expected = new ArrayList<>(reach.keySet());
+            expected.sort(Comparator.<String>comparingInt(label -> -reach.get(label).size())
+                                    .thenComparing(label -> label.split(":")[0])
+                                    .thenComparing(label -> label.split(":")[1]));
+
+            ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+            BlastRadiusIndex index = TestGraphs.analyse(graph).getBlastRadiusIndex();
+            assertEquals(expected, labels(graph, index.top(Integer.MAX_VALUE)));
+            assertArrayEquals(Arrays.copyOf(index.top(Integer.MAX_VALUE), Math.min(3, expected.size())),
+                              index.top(3));
+        });
+    }
+
+    @Test
+    public void countsAlignedDirectDependenciesAndTheirModules()
+    {
+        DependencyNode shared = TestGraphs.node("org.other:x:1.0");
+        ArtifactGraph first = ArtifactGraph.of(Arrays.asList(
+                TestGraphs.node("org.example:a:1.redhat-1", shared, TestGraphs.node("org.other:y:1.0")),
+                TestGraphs.node("org.example:unaligned:1.0", TestGraphs.node("org.other:z:1.0"))), node -> true);
+        ArtifactGraph second = ArtifactGraph.of(Arrays.asList(
+                TestGraphs.node("org.example:a:1.redhat-1", shared, TestGraphs.node("org.other:y:1.0")),
+                TestGraphs.node("org.example:b:1.redhat-1", TestGraphs.node("org.example:c:1.redhat-1", shared))),
+                                                node -> true);
+        ArtifactGraph.Merger merger = new ArtifactGraph.Merger();
+        merger.add(first, "org.example:first");
+        merger.add(second, "org.example:second");
+        ArtifactGraph graph = merger.build();
+
+        BlastRadiusIndex index = TestGraphs.analyse(graph).getBlastRadiusIndex();
+        int[] top = index.top(Integer.MAX_VALUE);
+        assertEquals(Arrays.asList("org.other:x:jar:1.0:compile", "org.other:y:jar:1.0:compile"), labels(graph, top));
+        assertEquals(Arrays.asList("org.example:a:jar:1.redhat-1:compile", "org.example:b:jar:1.redhat-1:compile"),
+                     labels(graph, index.getReachedFrom(top[0])));
+        assertEquals(2, index.getModuleReach(top[0]));
+        assertEquals(2, index.getModuleReach(top[1]));
+
+        // a single module's graph has no modules to count
+        BlastRadiusIndex single = TestGraphs.analyse(first).getBlastRadiusIndex();
+        assertEquals(0, single.getModuleReach(single.top(1)[0]));
+    }
+
+    @Test
+    public void countsADirectDependencyAlsoReachedTransitively()
+    {
+        ArtifactGraph graph = ArtifactGraph.of(Arrays.asList(
+                TestGraphs.node("org.example:d:1.redhat-1", TestGraphs.node("org.other:u:1.0"),
+                                TestGraphs.node("org.example:a:1.redhat-1", TestGraphs.node("org.other:x:1.0"))),
+                TestGraphs.node("org.other:u:1.0"),
+                TestGraphs.node("org.example:a:1.redhat-1", TestGraphs.node("org.other:x:1.0"))), node -> true);
+
+        // u is reached from d, beneath which it lies, though it is also a direct dependency itself
+        BlastRadiusIndex index = TestGraphs.analyse(graph).getBlastRadiusIndex();
+        int[] top = index.top(Integer.MAX_VALUE);
+        assertEquals(Arrays.asList("org.other:x:jar:1.0:compile", "org.other:u:jar:1.0:compile"), labels(graph, top));
+        assertEquals(Arrays.asList("org.example:d:jar:1.redhat-1:compile", "org.example:a:jar:1.redhat-1:compile"),
+                     labels(graph, index.getReachedFrom(top[0])));
+        assertEquals(Arrays.asList("org.example:d:jar:1.redhat-1:compile"),
+                     labels(graph, index.getReachedFrom(top[1])));
+    }
+
+    @Test
+    public void ranksNothingForAnEmptyGraph()
+    {
+        BlastRadiusIndex index = TestGraphs.analyse(Collections.emptyList()).getBlastRadiusIndex();
+        assertEquals(0, index.top(3).length);
+    }
+
+    /**
+     * Walks every aligned direct dependency's subtree, without memoizing anything, to find which aligned direct
+     * dependencies reach each unaligned transitive dependency.
+     */
+    private static Map<String, Set<String>> naiveReach(final List<DependencyNode> directDependencies)
+    {
+        Map<String, Set<String>> reach = new HashMap<>();
+        for (DependencyNode direct : directDependencies)
+        {
+            if (isAligned(direct))
+            {
+                Set<DependencyNode> visited = new HashSet<>();
+                walk(direct, visited);
+                for (DependencyNode node : visited)
+                {
+                    if (node != direct && !isAligned(node))
+                    {
+                        reach.computeIfAbsent(node.getArtifact().toString(), label -> new TreeSet<>())
+                             .add(direct.getArtifact().toString());
+                    }
+                }
+            }
+        }
+        return reach;
+    }
+
+    private static void walk(final DependencyNode node, final Set<DependencyNode> visited)
+    {
+        if (visited.add(node))
+        {
+            node.getChildren().forEach(child -> walk(child, visited));
+        }
+    }
+
+    private static boolean isAligned(final DependencyNode node)
+    {
+        Artifact artifact = node.getArtifact();
+        return artifact.getVersion().contains(TestGraphs.ALIGNMENT_PATTERN);
+    }
+
+    private static List<String> labels(final ArtifactGraph graph, final int[] ids)
+    {
+        List<String> labels = new ArrayList<>();
+        Arrays.stream(ids).forEach(id -> labels.add(graph.getLabel(id)));
+        return labels;
+    }
+}
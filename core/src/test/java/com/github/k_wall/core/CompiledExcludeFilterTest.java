@@ -0,0 +1,167 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.artifact.filter.StrictPatternExcludesArtifactFilter;
+import org.junit.Test;
+
+public class CompiledExcludeFilterTest
+{
+    private static final String[][] VALUES = {
+            {"org.foo", "org.foo.bar", "org.foobar", "org.bar", "com.example"},
+            {"core", "core-api", "api", "foo-core"},
+            {"jar", "pom", "test-jar"},
+            {"1.0", "1.5", "2.0", "1.0-SNAPSHOT", "1.0.0.redhat-1"}};
+
+    private static final String[] RANGES = {"[1.0,2.0)", "[1.5,)", "(,1.0]", "[2.0]", "[oops"};
+
+    @Test
+    public void agreesWithTheStrictFilterOnGeneratedPatterns()
+    {
+        Random random = new Random(42);
+        List<Artifact> artifacts = artifacts();
+        for (int run = 0; run < 500; run++)
+        {
+            List<String> patterns = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int i = 0; i < count; i++)
+            {
+                patterns.add(pattern(random));
+            }
+
+            StrictPatternExcludesArtifactFilter strict = new StrictPatternExcludesArtifactFilter(patterns);
+            CompiledExcludeFilter compiled = new CompiledExcludeFilter(patterns);
+            for (int pass = 0; pass < 2; pass++)
+            {
+                // the second pass is answered from the filter's remembered verdicts
+                for (Artifact artifact : artifacts)
+                {
+                    assertEquals(String.format("%s against %s", artifact, patterns),
+                                 strict.include(artifact), compiled.include(artifact));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void excludesThroughEachIndex()
+    {
+        // looked up by hash
+        assertExcludes("org.foo:core", "org.foo:core:jar:1.0", true);
+        assertExcludes("org.foo:core", "org.foo:core-api:jar:1.0", false);
+        assertExcludes("org.foo:core:*:1.0", "org.foo:core:pom:1.0", true);
+        // indexed by literal groupId
+        assertExcludes("org.foo:core*", "org.foo:core-api:jar:1.0", true);
+        assertExcludes("org.foo:core*", "org.foobar:core:jar:1.0", false);
+        // indexed by groupId prefix
+        assertExcludes("org.foo*", "org.foobar:api:jar:1.0", true);
+        assertExcludes("org.foo.*", "org.foo.bar:api:jar:1.0", true);
+        assertExcludes("org.foo.*", "org.foobar:api:jar:1.0", false);
+        // neither
+        assertExcludes("*:*core", "com.example:foo-core:jar:1.0", true);
+        assertExcludes("*:*core", "com.example:core-api:jar:1.0", false);
+        // versions
+        assertExcludes("*:*:*:[1.0,2.0)", "org.foo:core:jar:1.5", true);
+        assertExcludes("*:*:*:[1.0,2.0)", "org.foo:core:jar:2.0", false);
+        assertExcludes("org.foo:core:jar:1.0:extra", "org.foo:core:jar:1.0", false);
+    }
+
+    private static void assertExcludes(final String pattern, final String coordinate, final boolean excluded)
+    {
+        String[] fields = coordinate.split(":");
+        Artifact artifact = new DefaultArtifact(fields[0], fields[1], fields[3], Artifact.SCOPE_COMPILE, fields[2],
+                                                null, new DefaultArtifactHandler(fields[2]));
+        List<String> patterns = Collections.singletonList(pattern);
+        String message = String.format("%s against %s", coordinate, pattern);
+        assertEquals(message, !excluded, new StrictPatternExcludesArtifactFilter(patterns).include(artifact));
+
+        CompiledExcludeFilter compiled = new CompiledExcludeFilter(patterns);
+        assertEquals(message, !excluded, compiled.include(artifact));
+        assertEquals(message + ", remembered", !excluded, compiled.include(artifact));
+    }
+
+    private static List<Artifact> artifacts()
+    {
+        DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+        List<Artifact> artifacts = new ArrayList<>();
+        for (String groupId : VALUES[0])
+        {
+            for (String artifactId : VALUES[1])
+            {
+                for (String type : VALUES[2])
+                {
+                    for (String version : VALUES[3])
+                    {
+                        artifacts.add(new DefaultArtifact(groupId, artifactId, version, Artifact.SCOPE_COMPILE, type,
+                                                          null, handler));
+                    }
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    private static String pattern(final Random random)
+    {
+        // up to one more segment than an artifact has, which never matches
+        int segments = 1 + random.nextInt(VALUES.length + 1);
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < segments; i++)
+        {
+            if (i > 0)
+            {
+                pattern.append(':');
+            }
+            pattern.append(segment(random, VALUES[Math.min(i, VALUES.length - 1)]));
+        }
+        return pattern.toString();
+    }
+
+    private static String segment(final Random random, final String[] values)
+    {
+        String value = values[random.nextInt(values.length)];
+        int cut = 1 + random.nextInt(value.length() - 1);
+        switch (random.nextInt(8))
+        {
+            case 0:
+                return "*";
+            case 1:
+                return "";
+            case 2:
+                return value.substring(0, cut) + "*";
+            case 3:
+                return "*" + value.substring(cut);
+            case 4:
+                return "*" + value.substring(cut / 2, cut) + "*";
+            case 5:
+                return RANGES[random.nextInt(RANGES.length)];
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JsonLinesReportWriterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void escapesQuotesBackslashesAndControlCharacters() throws IOException
+    {
+        List<String> lines = write("a \"quoted\" back\\slash\ttab\nnewline\u0001\u001f", null,
+                                   Collections.singletonList(node("org.example:lib:1.redhat-1")));
+
+        assertEquals(Arrays.asList("{\"type\":\"direct\",\"project\":\"a \\\"quoted\\\" back\\\\slash\\u0009tab"
+                                   + "\\u000anewline\\u0001\\u001f\","
+                                   + "\"artifact\":\"org.example:lib:jar:1.redhat-1:compile\",\"aligned\":true}"),
+                     lines);
+    }
+
+    @Test
+    public void writesCharactersOutsideAsciiAsTheyAre() throws IOException
+    {
+        List<String> lines = write("projét", "compile",
+                                   Collections.singletonList(node("org.exemple.日本:bibliothèque:1.0😀")));
+
+        assertEquals(Arrays.asList("{\"type\":\"direct\",\"project\":\"projét\",\"scope\":\"compile\","
+                                   + "\"artifact\":\"org.exemple.日本:bibliothèque:jar:1.0😀:compile\","
+                                   + "\"aligned\":false}"),
+                     lines);
+    }
+
+    @Test
+    public void writesNothingForAnEmptyGraph() throws IOException
+    {
+        assertEquals(Collections.emptyList(), write("project", null, Collections.emptyList()));
+    }
+
+    @Test
+    public void writesTheShortestPathThroughADiamondWithItsCount() throws IOException
+    {
+        DependencyNode shared = node("org.other:x:1.0");
+        List<String> lines = write("project", null, Collections.singletonList(
+                node("org.example:d:1.redhat-1", node("org.example:a:1.redhat-1", shared),
+                     node("org.example:b:1.redhat-1", shared))));
+
+        assertEquals(Arrays.asList("{\"type\":\"direct\",\"project\":\"project\","
+                                   + "\"artifact\":\"org.example:d:jar:1.redhat-1:compile\",\"aligned\":true}",
+                                   "{\"type\":\"incompletelyAligned\",\"project\":\"project\","
+                                   + "\"artifact\":\"org.example:d:jar:1.redhat-1:compile\"}",
+                                   "{\"type\":\"offender\",\"project\":\"project\","
+                                   + "\"artifact\":\"org.other:x:jar:1.0:compile\",\"reachedFrom\":1,\"modules\":0}",
+                                   "{\"type\":\"unalignedPath\",\"project\":\"project\","
+                                   + "\"artifact\":\"org.other:x:jar:1.0:compile\","
+                                   + "\"path\":[\"org.other:x:jar:1.0:compile\","
+                                   + "\"org.example:b:jar:1.redhat-1:compile\","
+                                   + "\"org.example:d:jar:1.redhat-1:compile\"],\"pathCount\":2}"),
+                     lines);
+    }
+
+    @Test
+    public void compressedOutputReadsBackThroughGzip()
+    {
+        TestGraphs.forEachRandom(10, 5, 4, 3, (seed, directDependencies) -> {
+            File file = new File(folder.newFolder(), "report.jsonl.gz");
+            List<String> expected = new ArrayList<>();
+            // a first report, then another appended as a further gzip member
+            for (String project : Arrays.asList("first", "secondé"))
+            {
+                expected.addAll(write(project, null, directDependencies));
+                try (ReportSink sink = ReportSink.toFile(file, project.equals("secondé"), true))
+                {
+                    write(sink, project, null, directDependencies);
+                }
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file.toPath())), StandardCharsets.UTF_8)))
+            {
+                assertEquals(expected, reader.lines().collect(Collectors.toList()));
+            }
+        });
+    }
+
+    private static List<String> write(final String project, final String scope,
+                                      final List<DependencyNode> directDependencies) throws IOException
+    {
+        StringWriter text = new StringWriter();
+        try (ReportSink sink = ReportSink.toWriter(text))
+        {
+            write(sink, project, scope, directDependencies);
+        }
+        return text.getBuffer().length() == 0 ? Collections.emptyList()
+                                              : Arrays.asList(text.toString().split(System.lineSeparator()));
+    }
+
+    private static void write(final ReportSink sink, final String project, final String scope,
+                              final List<DependencyNode> directDependencies) throws IOException
+    {
+        JsonLinesReportWriter writer = new JsonLinesReportWriter(sink, DetailMode.SHORTEST_PATH, false, 3);
+        writer.writeProjectTitle(project);
+        if (scope != null)
+        {
+            writer.writeScopeTitle(scope);
+        }
+        writer.write(TestGraphs.analyse(directDependencies));
+    }
+}
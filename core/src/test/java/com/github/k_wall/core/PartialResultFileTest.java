@@ -0,0 +1,184 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PartialResultFileTest
+{
+    private static final String SETTINGS = "scope=null, excludes=null, collectOnly=false";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mergedPartialsReportAsTheAggregate()
+    {
+        TestGraphs.forEachSeed(20, seed -> {
+            List<ArtifactGraph> modules = new ArrayList<>();
+            for (int i = 0; i < 6; i++)
+            {
+                modules.add(ArtifactGraph.of(TestGraphs.random(seed * 6 + i, 4, 4, 3), node -> true));
+            }
+
+            ArtifactGraph.Merger aggregate = new ArtifactGraph.Merger();
+            for (int i = 0; i < modules.size(); i++)
+            {
+                aggregate.add(modules.get(i), module(i));
+            }
+
+            // shards of one, two and three modules
+            ArtifactGraph.Merger merged = new ArtifactGraph.Merger();
+            int[] shardEnds = {1, 3, 6};
+            int start = 0;
+            for (int end : shardEnds)
+            {
+                ArtifactGraph.Merger shard = new ArtifactGraph.Merger();
+                for (int i = start; i < end; i++)
+                {
+                    shard.add(modules.get(i), module(i));
+                }
+                merged.add(roundTrip(shard.build()).getGraph());
+                start = end;
+            }
+
+            for (DetailMode mode : DetailMode.values())
+            {
+                assertEquals(mode.toString(), report(aggregate.build(), mode), report(merged.build(), mode));
+            }
+        });
+    }
+
+    @Test
+    public void mergedMergesReportAsTheAggregate() throws IOException
+    {
+        List<ArtifactGraph> modules = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            modules.add(ArtifactGraph.of(TestGraphs.random(100 + i, 4, 4, 3), node -> true));
+        }
+
+        ArtifactGraph.Merger aggregate = new ArtifactGraph.Merger();
+        ArtifactGraph.Merger top = new ArtifactGraph.Merger();
+        for (int half = 0; half < 2; half++)
+        {
+            ArtifactGraph.Merger middle = new ArtifactGraph.Merger();
+            for (int i = half * 2; i < half * 2 + 2; i++)
+            {
+                aggregate.add(modules.get(i), module(i));
+
+                ArtifactGraph.Merger shard = new ArtifactGraph.Merger();
+                shard.add(modules.get(i), module(i));
+                middle.add(roundTrip(shard.build()).getGraph());
+            }
+            top.add(roundTrip(middle.build()).getGraph());
+        }
+
+        assertEquals(report(aggregate.build(), DetailMode.ALL_PATHS), report(top.build(), DetailMode.ALL_PATHS));
+    }
+
+    @Test
+    public void keepsTheResolutionSettings() throws IOException
+    {
+        PartialResultFile partial = roundTrip(ArtifactGraph.of(TestGraphs.random(7, 4, 4, 3), node -> true));
+        assertEquals(SETTINGS, partial.getSettings());
+    }
+
+    @Test
+    public void keepsTheModulesContributingEachDirectDependency() throws IOException
+    {
+        ArtifactGraph.Merger shard = new ArtifactGraph.Merger();
+        shard.add(ArtifactGraph.of(Collections.singletonList(
+                TestGraphs.node("org.example:a:1.redhat-1", TestGraphs.node("org.other:x:1.0"))), node -> true),
+                  module(0));
+        shard.add(ArtifactGraph.of(Collections.singletonList(TestGraphs.node("org.example:a:1.redhat-1")),
+                                   node -> true), module(1));
+
+        assertEquals(Arrays.asList("Incompletely aligned - org.example:a:jar:1.redhat-1:compile"
+                                   + " (from org.example:module-0, org.example:module-1)"),
+                     linesStartingWith(report(roundTrip(shard.build()).getGraph(), DetailMode.SHORTEST_PATH),
+                                       "Incompletely aligned - "));
+    }
+
+    @Test
+    public void mergesAnEmptyShardAsNothing() throws IOException
+    {
+        ArtifactGraph.Merger aggregate = new ArtifactGraph.Merger();
+        aggregate.add(roundTrip(new ArtifactGraph.Merger().build()).getGraph(), module(0));
+        aggregate.add(roundTrip(ArtifactGraph.of(Collections.singletonList(
+                TestGraphs.node("org.example:a:1.redhat-1", TestGraphs.node("org.other:x:1.0"))), node -> true))
+                              .getGraph(), module(1));
+
+        assertEquals(Arrays.asList("Unaligned transitive - org.other:x:jar:1.0:compile"
+                                   + " <- org.example:a:jar:1.redhat-1:compile"),
+                     linesStartingWith(report(aggregate.build(), DetailMode.SHORTEST_PATH), "Unaligned transitive - "));
+    }
+
+    @Test
+    public void rejectsAFileThatIsNotAPartialResult() throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "not a partial result".getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            PartialResultFile.read(file);
+            fail();
+        }
+        catch (IOException e)
+        {
+            assertEquals(file + " is not a partial alignment result", e.getMessage());
+        }
+    }
+
+    private PartialResultFile roundTrip(final ArtifactGraph graph) throws IOException
+    {
+        File file = new File(folder.newFolder(), "partial.bin");
+        new PartialResultFile(SETTINGS, graph).write(file);
+        return PartialResultFile.read(file);
+    }
+
+    private static String module(final int index)
+    {
+        return "org.example:module-" + index;
+    }
+
+    private static List<String> report(final ArtifactGraph graph, final DetailMode mode)
+    {
+        return TestGraphs.render(TestGraphs.analyse(graph), mode);
+    }
+
+    private static List<String> linesStartingWith(final List<String> lines, final String prefix)
+    {
+        return lines.stream().filter(line -> line.startsWith(prefix)).collect(Collectors.toList());
+    }
+}
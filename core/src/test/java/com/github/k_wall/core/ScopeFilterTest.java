@@ -0,0 +1,53 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.junit.Test;
+
+public class ScopeFilterTest
+{
+    private static final List<String> SCOPES = Arrays.asList(
+            Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM, Artifact.SCOPE_RUNTIME,
+            Artifact.SCOPE_TEST, Artifact.SCOPE_COMPILE_PLUS_RUNTIME, Artifact.SCOPE_RUNTIME_PLUS_SYSTEM,
+            Artifact.SCOPE_IMPORT, "other");
+
+    @Test
+    public void agreesWithMavensScopeFilter()
+    {
+        for (String scope : SCOPES)
+        {
+            ScopeArtifactFilter maven = new ScopeArtifactFilter(scope);
+            ScopeFilter filter = new ScopeFilter(scope);
+            for (String artifactScope : SCOPES)
+            {
+                Artifact artifact = new DefaultArtifact("org.example", "a", "1.0", artifactScope, "jar", null,
+                                                        new DefaultArtifactHandler("jar"));
+                assertEquals(scope + " filtering " + artifactScope, maven.include(artifact), filter.include(artifact));
+            }
+        }
+    }
+}
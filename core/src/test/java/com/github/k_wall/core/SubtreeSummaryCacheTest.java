@@ -0,0 +1,298 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SubtreeSummaryCacheTest
+{
+    private static final String SETTINGS = "alignmentPattern=redhat";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reportIsTheSameWithTheCache() throws IOException
+    {
+        File directory = folder.newFolder();
+        TestGraphs.forEachRandom(20, 6, 5, 4, (seed, directDependencies) -> {
+            List<String> expected = TestGraphs.render(analyse(directDependencies, null), DetailMode.SHORTEST_PATH);
+
+            // the first build fills the cache, the second reads it
+            for (int build = 0; build < 2; build++)
+            {
+                SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS + seed);
+                AlignmentResult result = analyse(directDependencies, cache);
+                assertEquals(expected, TestGraphs.render(result, DetailMode.SHORTEST_PATH));
+                result.addSubtreeSummaries(cache);
+                cache.flush();
+                if (build == 1)
+                {
+                    assertTrue(cache.getHits() > 0);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void doesNotDescendBeneathRememberedSubtrees() throws IOException
+    {
+        File directory = folder.newFolder();
+        List<DependencyNode> directDependencies = Arrays.asList(
+                node("org.example:aligned:1.redhat-1",
+                     node("org.example:a:1.redhat-1", node("org.example:b:1.redhat-1"))),
+                node("org.example:incomplete:1.redhat-1",
+                     node("org.example:c:1.redhat-1", node("org.other:unaligned:1.0"))));
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        AlignmentResult result = analyse(directDependencies, cache);
+        result.getIncompletelyAlignedDirectDependencies();
+        result.addSubtreeSummaries(cache);
+        cache.flush();
+
+        // the summary is answered from the entries of the two direct dependencies
+        cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        result = analyse(directDependencies, cache);
+        assertEquals(1, result.getIncompletelyAlignedDirectDependencies().length);
+        assertEquals(2, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void tellsApartASnapshotWhoseDependenciesChanged() throws IOException
+    {
+        File directory = folder.newFolder();
+        for (String snapshot : Arrays.asList("1.redhat-1-SNAPSHOT", "1.redhat-1-20200101.123456-1"))
+        {
+            List<DependencyNode> before = Collections.singletonList(
+                    node("org.example:lib:" + snapshot, node("org.other:util:2.redhat-1")));
+            List<DependencyNode> after = Collections.singletonList(
+                    node("org.example:lib:" + snapshot, node("org.other:util:2.0")));
+
+            remember(directory, before);
+
+            SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+            assertFalse(analyse(before, cache).hasIncompletelyAlignedDirectDependency());
+            assertTrue(analyse(after, cache).hasIncompletelyAlignedDirectDependency());
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void tellsApartTheSameArtifactResolvedDifferently() throws IOException
+    {
+        List<DependencyNode> unalignedBeneath = Collections.singletonList(
+                node("org.example:lib:1.redhat-1",
+                     node("org.example:core:1.redhat-1", node("org.other:util:2.0"))));
+        List<DependencyNode> alignedBeneath = Collections.singletonList(
+                node("org.example:lib:1.redhat-1",
+                     node("org.example:core:1.redhat-1", node("org.other:util:2.redhat-1"))));
+
+        // dependency management realigning util, two levels down, is seen
+        File directory = folder.newFolder();
+        remember(directory, unalignedBeneath);
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        assertFalse(analyse(alignedBeneath, cache).hasIncompletelyAlignedDirectDependency());
+        assertEquals(0, cache.getHits());
+
+        // and so is dependency management unaligning it, which the gate is to fail
+        directory = folder.newFolder();
+        remember(directory, alignedBeneath);
+        cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        AlignmentResult result = analyse(unalignedBeneath, cache);
+        assertTrue(result.hasIncompletelyAlignedDirectDependency());
+        assertEquals(TestGraphs.render(analyse(unalignedBeneath, null), DetailMode.ALL_PATHS),
+                     TestGraphs.render(result, DetailMode.ALL_PATHS));
+    }
+
+    @Test
+    public void sharesTheEntriesOfSubtreesResolvedAlike() throws IOException
+    {
+        // two projects depending upon lib, one of them beside other dependencies
+        File directory = folder.newFolder();
+        remember(directory, Arrays.asList(
+                node("org.example:lib:1.redhat-1",
+                     node("org.example:core:1.redhat-1", node("org.other:util:2.0"))),
+                node("org.example:other:1.redhat-1")));
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        assertTrue(analyse(Collections.singletonList(
+                node("org.example:lib:1.redhat-1",
+                     node("org.example:core:1.redhat-1", node("org.other:util:2.0")))), cache)
+                           .hasIncompletelyAlignedDirectDependency());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void keepsTheEntriesOfDifferentSettingsApart() throws IOException
+    {
+        List<DependencyNode> directDependencies = Collections.singletonList(
+                node("org.example:lib:1.redhat-1", node("org.other:util:2.0")));
+        File directory = folder.newFolder();
+        remember(directory, directDependencies);
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS + "|other");
+        analyse(directDependencies, cache).getIncompletelyAlignedDirectDependencies();
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void keysEntriesByScope() throws IOException
+    {
+        File directory = folder.newFolder();
+        remember(directory, Collections.singletonList(
+                node("org.example:lib:1.redhat-1:provided", node("org.other:util:2.0:provided"))));
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        assertFalse(analyse(Collections.singletonList(node("org.example:lib:1.redhat-1")), cache)
+                            .hasIncompletelyAlignedDirectDependency());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void growsTheTableToTakeEveryEntry() throws IOException
+    {
+        File directory = folder.newFolder();
+        List<DependencyNode> directDependencies = directDependencies(100);
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS, 16, 1024);
+        AlignmentResult result = analyse(directDependencies, cache);
+        result.getIncompletelyAlignedDirectDependencies();
+        result.addSubtreeSummaries(cache);
+        cache.flush();
+
+        cache = SubtreeSummaryCache.open(directory, SETTINGS, 16, 1024);
+        analyse(directDependencies, cache).getIncompletelyAlignedDirectDependencies();
+        assertEquals(100, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void startsAfreshOnceTheTableIsAtItsLargest() throws IOException
+    {
+        File directory = folder.newFolder();
+        // as many entries as the sixteen slots take
+        List<DependencyNode> first = directDependencies(12);
+        List<DependencyNode> second = Collections.singletonList(node("org.example:second:1.redhat-1"));
+        for (List<DependencyNode> build : Arrays.asList(first, second))
+        {
+            SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS, 16, 16);
+            AlignmentResult result = analyse(build, cache);
+            result.getIncompletelyAlignedDirectDependencies();
+            result.addSubtreeSummaries(cache);
+            cache.flush();
+        }
+
+        // the second build's entry found no room beside the first's, and replaced them
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS, 16, 16);
+        analyse(second, cache).getIncompletelyAlignedDirectDependencies();
+        analyse(first, cache).getIncompletelyAlignedDirectDependencies();
+        assertEquals(1, cache.getHits());
+        assertEquals(12, cache.getMisses());
+    }
+
+    @Test
+    public void keepsTheEntriesOfBuildsFlushingInTurn() throws IOException
+    {
+        File directory = folder.newFolder();
+        List<DependencyNode> first = Collections.singletonList(node("org.example:first:1.redhat-1"));
+        List<DependencyNode> second = Collections.singletonList(node("org.example:second:1.redhat-1"));
+
+        // both builds open the cache before either flushes
+        SubtreeSummaryCache firstCache = SubtreeSummaryCache.open(directory, SETTINGS);
+        SubtreeSummaryCache secondCache = SubtreeSummaryCache.open(directory, SETTINGS);
+        for (SubtreeSummaryCache cache : Arrays.asList(firstCache, secondCache))
+        {
+            AlignmentResult result = analyse(cache == firstCache ? first : second, cache);
+            result.getIncompletelyAlignedDirectDependencies();
+            result.addSubtreeSummaries(cache);
+            cache.flush();
+        }
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        analyse(first, cache).getIncompletelyAlignedDirectDependencies();
+        analyse(second, cache).getIncompletelyAlignedDirectDependencies();
+        assertEquals(2, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void looksUpOnlyTheSubtreesWalked() throws IOException
+    {
+        DependencyNode first = node("org.example:first:1.redhat-1",
+                                    node("org.example:a:1.redhat-1", node("org.other:unaligned:1.0")),
+                                    node("org.example:b:1.redhat-1"));
+        DependencyNode second = node("org.example:second:1.redhat-1",
+                                     node("org.example:c:1.redhat-1", node("org.example:d:1.redhat-1")),
+                                     node("org.example:e:1.redhat-1"));
+
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(folder.newFolder(), SETTINGS);
+        ArtifactGraph graph = ArtifactGraph.of(Arrays.asList(first, second), node -> true);
+        AlignmentResult result = new AlignmentResult(graph, TestGraphs.verdicts(), null, cache);
+
+        // the first direct dependency is incompletely aligned, so the second is never walked, nor looked up
+        assertTrue(result.hasIncompletelyAlignedDirectDependency());
+        assertEquals(3, cache.getMisses());
+    }
+
+    /**
+     * @return the given number of aligned direct dependencies, without dependencies of their own
+     */
+    private static List<DependencyNode> directDependencies(final int count)
+    {
+        List<DependencyNode> directDependencies = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            directDependencies.add(node("org.example:lib-" + i + ":1.redhat-1"));
+        }
+        return directDependencies;
+    }
+
+    private static void remember(final File directory, final List<DependencyNode> directDependencies)
+            throws IOException
+    {
+        SubtreeSummaryCache cache = SubtreeSummaryCache.open(directory, SETTINGS);
+        AlignmentResult result = analyse(directDependencies, cache);
+        result.getIncompletelyAlignedDirectDependencies();
+        result.addSubtreeSummaries(cache);
+        cache.flush();
+    }
+
+    private static AlignmentResult analyse(final List<DependencyNode> directDependencies,
+                                           final SubtreeSummaryCache cache)
+    {
+        return new AlignmentResult(ArtifactGraph.of(directDependencies, node -> true), TestGraphs.verdicts(), null,
+                                   cache);
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+
+/**
+ * Builds the dependency graphs the tests report upon, by hand or at random, and renders their reports.
+ *
+ * <p>Aligned artifacts have versions satisfying {@link #ALIGNMENT_PATTERN}; unaligned ones do not.</p>
+ */
+public final class TestGraphs
+{
+    public static final String ALIGNMENT_PATTERN = "redhat";
+
+    private static final DefaultArtifactHandler JAR_HANDLER = new DefaultArtifactHandler("jar");
+
+    private TestGraphs()
+    {
+    }
+
+    /**
+     * @param coordinate <code>groupId:artifactId:version</code>, optionally followed by <code>:scope</code>
+     * @param children the node's children
+     * @return the node
+     */
+    public static DependencyNode node(final String coordinate, final DependencyNode... children)
+    {
+        String[] fields = coordinate.split(":");
+        Artifact artifact = new DefaultArtifact(fields[0], fields[1], fields[2],
+                                                fields.length > 3 ? fields[3] : Artifact.SCOPE_COMPILE, "jar", null,
+                                                JAR_HANDLER);
+        DefaultDependencyNode node = new DefaultDependencyNode(artifact);
+        node.setChildren(new ArrayList<>(Arrays.asList(children)));
+        return node;
+    }
+
+    /**
+     * Generates the direct dependencies of a project at random.  Children are drawn from the level below, often
+     * shared between parents, so that the graph is full of diamonds.
+     *
+     * @param seed the seed
+     * @param width the number of direct dependencies
+     * @param depth the number of levels, including that of the direct dependencies
+     * @param fanout the largest number of children of each node above the last level
+     * @return the direct dependency nodes
+     */
+    static List<DependencyNode> random(final long seed, final int width, final int depth, final int fanout)
+    {
+        Random random = new Random(seed);
+        List<List<DependencyNode>> levels = new ArrayList<>();
+        for (int d = 0; d < depth; d++)
+        {
+            List<DependencyNode> level = new ArrayList<>();
+            int size = d == 0 ? width : width + random.nextInt(width * 2 + 1);
+            for (int i = 0; i < size; i++)
+            {
+                String version = "1." + random.nextInt(2) + (random.nextInt(4) == 0 ? "" : ".redhat-1");
+                String scope = random.nextInt(5) == 0 ? Artifact.SCOPE_RUNTIME : Artifact.SCOPE_COMPILE;
+                level.add(node(String.format("org.example.g%d:a%d-%d:%s:%s", random.nextInt(3), d, i, version,
+                                             scope)));
+            }
+            levels.add(level);
+        }
+
+        for (int d = 0; d < depth; d++)
+        {
+            for (DependencyNode parent : levels.get(d))
+            {
+                List<DependencyNode> children = new ArrayList<>();
+                if (d + 1 < depth)
+                {
+                    List<DependencyNode> below = levels.get(d + 1);
+                    int count = random.nextInt(fanout + 1);
+                    for (int i = 0; i < count; i++)
+                    {
+                        DependencyNode child = below.get(random.nextInt(below.size()));
+                        if (!children.contains(child))
+                        {
+                            children.add(child);
+                        }
+                    }
+                }
+                ((DefaultDependencyNode) parent).setChildren(children);
+            }
+        }
+        return levels.get(0);
+    }
+
+    /**
+     * Checks the direct dependencies generated at random from each of the seeds <code>0</code> to
+     * <code>seeds - 1</code>, naming the seed of those failing the check.
+     *
+     * @param seeds the number of seeds
+     * @param width the number of direct dependencies
+     * @param depth the number of levels, including that of the direct dependencies
+     * @param fanout the largest number of children of each node above the last level
+     * @param check the check
+     * @see #random(long, int, int, int)
+     */
+    public static void forEachRandom(final int seeds, final int width, final int depth, final int fanout,
+                                     final RandomGraphCheck check)
+    {
+        forEachSeed(seeds, seed -> check.check(seed, random(seed, width, depth, fanout)));
+    }
+
+    /**
+     * Runs the check with each of the seeds <code>0</code> to <code>seeds - 1</code>, naming the seed failing it.
+     *
+     * @param seeds the number of seeds
+     * @param check the check
+     */
+    static void forEachSeed(final int seeds, final SeedCheck check)
+    {
+        for (long seed = 0; seed < seeds; seed++)
+        {
+            try
+            {
+                check.check(seed);
+            }
+            catch (AssertionError e)
+            {
+                throw new AssertionError("seed " + seed + ": " + e.getMessage(), e);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("seed " + seed, e);
+            }
+        }
+    }
+
+    /**
+     * A check of the direct dependencies generated from a seed.
+     */
+    public interface RandomGraphCheck
+    {
+        void check(long seed, List<DependencyNode> directDependencies) throws IOException;
+    }
+
+    /**
+     * A check run with a seed.
+     */
+    interface SeedCheck
+    {
+        void check(long seed) throws IOException;
+    }
+
+    /**
+     * @return the result for the graph of the given direct dependencies, judged against {@link #ALIGNMENT_PATTERN},
+     * worked out sequentially without a subtree cache
+     */
+    public static AlignmentResult analyse(final List<DependencyNode> directDependencies)
+    {
+        return analyse(ArtifactGraph.of(directDependencies, node -> true));
+    }
+
+    /**
+     * @return the result for the graph, judged against {@link #ALIGNMENT_PATTERN}, worked out sequentially without a
+     * subtree cache
+     */
+    public static AlignmentResult analyse(final ArtifactGraph graph)
+    {
+        return new AlignmentResult(graph, verdicts(), null, null);
+    }
+
+    /**
+     * @return a cache of verdicts against {@link #ALIGNMENT_PATTERN}
+     */
+    public static AlignmentVerdictCache verdicts()
+    {
+        return new AlignmentVerdictCache(AlignmentMatcher.compileSources(Collections.singletonList(ALIGNMENT_PATTERN)));
+    }
+
+    /**
+     * Renders the text report of the given result, with the top offenders.
+     *
+     * @param result the result
+     * @param detailMode how the detail section lists the paths
+     * @return the lines of the report
+     */
+    public static List<String> render(final AlignmentResult result, final DetailMode detailMode)
+    {
+        List<String> lines = new ArrayList<>();
+        ReportSink sink = new ReportSink()
+        {
+            @Override
+            public void println(final String line)
+            {
+                lines.add(line);
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        try
+        {
+            new TextReportWriter(sink, detailMode, true, Integer.MAX_VALUE).write(result);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return lines;
+    }
+}
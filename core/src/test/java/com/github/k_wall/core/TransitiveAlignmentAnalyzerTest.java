@@ -0,0 +1,198 @@
+package com.github.k_wall.core;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.junit.Test;
+
+public class TransitiveAlignmentAnalyzerTest
+{
+    @Test
+    public void concurrentAnalysisMatchesSerial()
+    {
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try
+        {
+            TestGraphs.forEachRandom(50, 32, 6, 3, (seed, directDependencies) -> {
+                ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+                boolean[] aligned = graph.classify(TestGraphs.verdicts());
+                TransitiveAlignmentAnalyzer serial = new TransitiveAlignmentAnalyzer(graph, aligned, id -> null);
+                TransitiveAlignmentAnalyzer concurrent = new TransitiveAlignmentAnalyzer(graph, aligned, id -> null);
+                int[] direct = IntStream.of(graph.getDirectDependencies()).filter(id -> aligned[id]).toArray();
+
+                List<String> expected = IntStream.of(direct)
+                                                 .mapToObj(id -> describe(graph, serial, id))
+                                                 .collect(Collectors.toList());
+                List<String> actual = pool.submit(() -> IntStream.of(direct)
+                                                                 .parallel()
+                                                                 .mapToObj(id -> describe(graph, concurrent, id))
+                                                                 .collect(Collectors.toList()))
+                                          .join();
+
+                assertEquals(expected, actual);
+                for (int id = 0; id < graph.size(); id++)
+                {
+                    assertEquals(graph.getCoordinate(id), serial.getAnalysedVerdict(id),
+                                 concurrent.getAnalysedVerdict(id));
+                }
+            });
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reportIsTheSameWhateverTheNumberOfThreads()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            TestGraphs.forEachRandom(50, 8, 5, 3, (seed, directDependencies) -> {
+                for (DetailMode mode : DetailMode.values())
+                {
+                    assertEquals(mode.toString(), report(directDependencies, null, mode),
+                                 report(directDependencies, pool, mode));
+                }
+            });
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void noThreadTakesASubtreeAnotherIsAnalysingForAligned()
+    {
+        DependencyNode shared = TestGraphs.node("org.example:unaligned:1.0");
+        for (int i = 0; i < 200; i++)
+        {
+            shared = TestGraphs.node("org.example:chain-" + i + ":1.0.redhat-1", shared);
+        }
+        List<DependencyNode> directDependencies = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+        {
+            directDependencies.add(TestGraphs.node("org.example:direct-" + i + ":1.0.redhat-1", shared));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try
+        {
+            for (int attempt = 0; attempt < 50; attempt++)
+            {
+                ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+                TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(
+                        graph, graph.classify(TestGraphs.verdicts()));
+                int[] direct = graph.getDirectDependencies();
+
+                List<Boolean> verdicts = pool.submit(() -> IntStream.of(direct)
+                                                                    .parallel()
+                                                                    .mapToObj(analyzer::hasUnalignedTransitives)
+                                                                    .collect(Collectors.toList()))
+                                             .join();
+
+                assertEquals("attempt " + attempt, Collections.nCopies(direct.length, true), verdicts);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void countsThePathsThroughADiamondSharedBetweenDirectDependencies()
+    {
+        DependencyNode shared = TestGraphs.node("org.other:x:1.0");
+        DependencyNode left = TestGraphs.node("org.example:left:1.redhat-1", shared);
+        DependencyNode right = TestGraphs.node("org.example:right:1.redhat-1", TestGraphs.node(
+                "org.example:middle:1.redhat-1", shared));
+        List<DependencyNode> directDependencies = Arrays.asList(
+                TestGraphs.node("org.example:first:1.redhat-1", left, right),
+                TestGraphs.node("org.example:second:1.redhat-1", right));
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            List<String> detail = report(directDependencies, pool, DetailMode.SHORTEST_PATH).stream()
+                    .filter(line -> line.startsWith("Unaligned transitive - "))
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList("Unaligned transitive - org.other:x:jar:1.0:compile"
+                                       + " <- org.example:left:jar:1.redhat-1:compile"
+                                       + " <- org.example:first:jar:1.redhat-1:compile (2 paths)",
+                                       "Unaligned transitive - org.other:x:jar:1.0:compile"
+                                       + " <- org.example:middle:jar:1.redhat-1:compile"
+                                       + " <- org.example:right:jar:1.redhat-1:compile"
+                                       + " <- org.example:second:jar:1.redhat-1:compile"),
+                         detail);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void analysesACyclicGraph()
+    {
+        DependencyNode first = TestGraphs.node("org.example:first:1.0.redhat-1");
+        DependencyNode second = TestGraphs.node("org.example:second:1.0.redhat-1", first,
+                                                TestGraphs.node("org.example:unaligned:1.0"));
+        first.getChildren().add(second);
+
+        ArtifactGraph graph = ArtifactGraph.of(Collections.singletonList(first), node -> true);
+        TransitiveAlignmentAnalyzer analyzer = new TransitiveAlignmentAnalyzer(graph,
+                                                                               graph.classify(TestGraphs.verdicts()));
+
+        assertTrue(analyzer.hasUnalignedTransitives(graph.getDirectDependencies()[0]));
+    }
+
+    private static List<String> report(final List<DependencyNode> directDependencies, final ForkJoinPool pool,
+                                       final DetailMode mode)
+    {
+        return TestGraphs.render(new AlignmentResult(ArtifactGraph.of(directDependencies, node -> true),
+                                                     TestGraphs.verdicts(), pool, null), mode);
+    }
+
+    private static String describe(final ArtifactGraph graph, final TransitiveAlignmentAnalyzer analyzer,
+                                   final int id)
+    {
+        List<UnalignedPath> paths = new ArrayList<>();
+        analyzer.collectShortestUnalignedPaths(id, paths);
+        StringBuilder builder = new StringBuilder().append(analyzer.hasUnalignedTransitives(id));
+        for (UnalignedPath path : paths)
+        {
+            builder.append(", ").append(path.getPathCount()).append(' ');
+            path.appendTo(builder, graph, " <- ");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,1167 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.shared.artifact.filter.StrictPatternExcludesArtifactFilter;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilderException;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorRequest;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.filter.ArtifactDependencyNodeFilter;
+import org.apache.maven.shared.dependency.graph.filter.DependencyNodeFilter;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+
+import com.github.k_wall.core.AlignmentMatcher;
+import com.github.k_wall.core.AlignmentResult;
+import com.github.k_wall.core.AlignmentSnapshot;
+import com.github.k_wall.core.AlignmentVerdictCache;
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.CompiledExcludeFilter;
+import com.github.k_wall.core.DetailMode;
+import com.github.k_wall.core.OutputFormat;
+import com.github.k_wall.core.PartialResultFile;
+import com.github.k_wall.core.ReportSink;
+import com.github.k_wall.core.ReportWriter;
+import com.github.k_wall.core.SubtreeSummaryCache;
+import com.github.k_wall.core.UnalignedPath;
+
+/**
+ * This plugin tests a project's dependencies for 'version alignment' and produces a simple text based report.
+ *
+ * <p>Based ideas and code from the Maven Dependency Plugin project.</p>
+ */
+public abstract class AbstractAlignmentReporterMojo extends AbstractMojo
+{
+    private static final Comparator<Artifact> ARTIFACT_COMPARATOR = Comparator.comparing(Artifact::getGroupId)
+            .thenComparing(Artifact::getArtifactId);
+    private static final Comparator<DependencyNode> DEPENDENCY_COMPARATOR = Comparator.comparing(
+            DependencyNode::getArtifact,
+            ARTIFACT_COMPARATOR);
+    /**
+     * The resolution scope of the non-test scopes of <code>scopes</code>: every scope but test.
+     */
+    private static final String NON_TEST_SCOPES = "non-test";
+    /**
+     * The settings of {@link #getResolutionSettings()}.  A scope holds no comma, and the excludes run to the last
+     * setting.
+     */
+    private static final Pattern RESOLUTION_SETTINGS = Pattern.compile(
+            "scope=([^,]*), excludes=(.*), collectOnly=(true|false)");
+
+    /**
+     * The Maven project.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    protected MavenSession session;
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * Contains the full list of projects in the reactor.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    protected List<MavenProject> reactorProjects;
+
+    /**
+     * The dependency tree builder to use.
+     */
+    @Component(hint = "default")
+    protected DependencyGraphBuilder dependencyGraphBuilder;
+
+    /**
+     * The dependency collector to use when artifacts are not to be resolved.
+     */
+    @Component(hint = "default")
+    protected DependencyCollectorBuilder dependencyCollectorBuilder;
+
+    /**
+     * If specified, this parameter will cause the dependency tree to be written to the path specified, encoded as
+     * UTF-8, instead of writing to the console.
+     */
+    @Parameter(property = "outputFile")
+    private File outputFile;
+    /**
+     * The scope to filter by when resolving the dependency tree, or <code>null</code> to include dependencies from all
+     * scopes.
+     */
+    @Parameter(property = "scope")
+    private String scope;
+    /**
+     * A comma-separated list of scopes to report upon, for instance <code>compile,runtime,test</code>.  The report has
+     * a section for each of the scopes listed, the same as the report with <code>scope</code> set to that scope.  The
+     * graph is resolved at most twice: once for the scopes other than test, without the project's test dependencies,
+     * and once for test.  When set, <code>scope</code> is ignored, and partial results cannot be written or merged.
+     */
+    @Parameter(property = "scopes")
+    private String scopes;
+    /**
+     * Whether to append outputs into the output file or overwrite it.
+     */
+    @Parameter(property = "appendOutput", defaultValue = "false")
+    private boolean appendOutput;
+    /**
+     * The format of the report: <code>TEXT</code>, the default, or <code>JSON_LINES</code>, a JSON object on each line
+     * for each direct dependency, summary entry, offender and unaligned path.  <code>JSON_LINES</code> requires an
+     * <code>outputFile</code>, as the lines of the console are prefixed by the log.
+     */
+    @Parameter(property = "outputFormat", defaultValue = "TEXT")
+    private OutputFormat outputFormat;
+    /**
+     * Whether to compress the output file with gzip.  Ignored when the report is written to the console.
+     */
+    @Parameter(property = "compressOutput", defaultValue = "false")
+    private boolean compressOutput;
+    /**
+     * A flag to fail the build if alignment errors are detected
+     */
+    @Parameter(property = "failOnUnalignedDependencies", defaultValue = "false")
+    private boolean failOnUnalignedDependencies;
+    /**
+     * Skip plugin execution completely.
+     */
+    @Parameter(property = "skip", defaultValue = "false")
+    private boolean skip;
+    /**
+     * Dependencies with have a version that satisfy this pattern are considered aligned.
+     */
+    @Parameter(property = "alignmentPattern")
+    private String alignmentPattern;
+    /**
+     * Further alignment patterns, for instance one for each of several product streams.  A dependency is
+     * considered aligned if its version satisfies any of these or <code>alignmentPattern</code>; at least one
+     * pattern must be given.  Patterns that are literals, or literals separated by <code>|</code>, are all matched
+     * in a single scan of each version.
+     */
+    @Parameter(property = "alignmentPatterns")
+    private List<String> alignmentPatterns;
+    /**
+     * A comma-separated list of artifacts to filter from the serialized dependency tree, or <code>null</code> not to
+     * filter any artifacts from the dependency tree. The filter syntax is:
+     *
+     * <pre>
+     * [groupId]:[artifactId]:[type]:[version]
+     * </pre>
+     *
+     * where each pattern segment is optional and supports full and partial <code>*</code> wildcards. An empty pattern
+     * segment is treated as an implicit wildcard.
+     * <p>
+     * For example, <code>org.apache.*</code> will match all artifacts whose group id starts with
+     * <code>org.apache.</code>, and <code>:::*-SNAPSHOT</code> will match all snapshot artifacts.
+     * </p>
+     * <p>
+     * The patterns are compiled into an index, so a long list of excludes costs little more than a short one.
+     * </p>
+     *
+     * @see StrictPatternExcludesArtifactFilter
+     */
+    @Parameter( property = "excludes" )
+    private String excludes;
+    /**
+     * How the detail section lists the paths from aligned direct dependencies to unaligned transitive dependencies.
+     * <code>SHORTEST_PATH</code> lists one shortest path for each pair, with the number of paths between them when
+     * there is more than one.  <code>ALL_PATHS</code> lists every path, which can grow exponentially with the depth
+     * of the graph.
+     */
+    @Parameter(property = "detailMode", defaultValue = "SHORTEST_PATH")
+    private DetailMode detailMode;
+    /**
+     * The number of unaligned transitive dependencies to list, in a section of their own, ranked by the number of
+     * aligned direct dependencies that reach them: those whose realignment would complete the alignment of the most
+     * direct dependencies.  Zero omits the section.
+     */
+    @Parameter(property = "topOffenders", defaultValue = "0")
+    private int topOffenders;
+    /**
+     * The number of threads with which to analyse and traverse the subtrees of the aligned direct dependencies, for
+     * the summary, the detail and the top offenders alike.  The report is the same whatever the number of threads.
+     */
+    @Parameter(property = "traversalThreads", defaultValue = "1")
+    private int traversalThreads;
+    /**
+     * Only collect the dependency graph, without resolving the artifacts.  The report needs nothing but the
+     * coordinates of the dependencies, so this avoids downloading artifacts whose content is never read.  The graph
+     * is the one resolution would collect, but a dependency whose artifact cannot be downloaded is reported rather
+     * than failing the build.
+     */
+    @Parameter(property = "collectOnly", defaultValue = "false")
+    private boolean collectOnly;
+    /**
+     * Cache each module's dependency graph under its build directory, and reuse it whilst the module's dependencies,
+     * dependency management, <code>scope</code>, <code>excludes</code> and alignment patterns remain
+     * unchanged.
+     */
+    @Parameter(property = "useCache", defaultValue = "false")
+    private boolean useCache;
+    /**
+     * Remember, in the local repository, whether the subtree beneath each artifact contains an unaligned dependency,
+     * so that later builds on the same machine stop at the artifacts already remembered rather than walk beneath
+     * them.  Entries are keyed by a digest of the whole subtree as resolved, so they are shared by every project and
+     * build with the same alignment patterns wherever a subtree resolves alike, and never given to a subtree resolved
+     * otherwise, whether by dependency management, version mediation, <code>excludes</code> or the scope reported.
+     */
+    @Parameter(property = "useSubtreeCache", defaultValue = "false")
+    private boolean useSubtreeCache;
+    /**
+     * Write the time taken by each phase of the report, and counts of the work done, as JSON.  Each module's metrics
+     * are written next to <code>outputFile</code>, named after the module's group and artifact ids as
+     * <code>report.txt</code> gives <code>report-org.example_mymodule-metrics.json</code>, or to <code>alignment-reporter/metrics.json</code> under the
+     * module's build directory when the report is written to the console.
+     */
+    @Parameter(property = "writeMetrics", defaultValue = "false")
+    private boolean writeMetrics;
+    /**
+     * Only decide whether the build passes, as <code>failOnUnalignedDependencies</code> would, without writing a
+     * report.  The paths of the detail section are never worked out.
+     */
+    @Parameter(property = "gateOnly", defaultValue = "false")
+    private boolean gateOnly;
+    /**
+     * Whether a <code>gateOnly</code> failure gives the numbers of unaligned and incompletely aligned direct
+     * dependencies, as <code>failOnUnalignedDependencies</code> does.  If not, the analysis stops at the first of
+     * either that it finds, and the failure says only that there is one.
+     */
+    @Parameter(property = "gateCounts", defaultValue = "false")
+    private boolean gateCounts;
+    /**
+     * A snapshot of the unaligned direct dependencies, incompletely aligned direct dependencies and unaligned
+     * transitive paths found by an earlier run.  If the file exists, the report lists only what has changed since: the
+     * regressions, and what has been fixed.  If it does not, the full report is written and the snapshot saved.
+     */
+    @Parameter(property = "baselineFile")
+    private File baselineFile;
+    /**
+     * Save the snapshot of this run to <code>baselineFile</code> even though the file exists, so that the next run
+     * reports against this one.
+     */
+    @Parameter(property = "updateBaseline", defaultValue = "false")
+    private boolean updateBaseline;
+    /**
+     * Whether <code>failOnUnalignedDependencies</code>, when reporting against a <code>baselineFile</code>, fails
+     * the build only for the regressions since the baseline.
+     */
+    @Parameter(property = "failOnRegressionsOnly", defaultValue = "false")
+    private boolean failOnRegressionsOnly;
+
+    private ArtifactFilter scopeFilter;
+
+    private AlignmentVerdictCache verdictCache;
+
+    private ModuleResultCache resultCache;
+
+    private SubtreeSummaryCache subtreeCache;
+
+    private ForkJoinPool traversalPool;
+
+    private ReactorReportSink reactorSink;
+
+    protected ReportMetrics metrics;
+
+    /*
+     * @see org.apache.maven.plugin.Mojo#execute()
+     */
+    @Override
+    public void execute()
+            throws MojoExecutionException, MojoFailureException
+    {
+        if (outputFile != null && session.isParallel() && !mojoExecution.getMojoDescriptor().isAggregator())
+        {
+            /*
+             * Modules built in parallel would otherwise interleave their reports in a shared output file, and the
+             * first to write could truncate the others' reports.
+             */
+            reactorSink = ReactorReportSink.forSession(session, outputFile, appendOutput, compressOutput, getLog());
+        }
+
+        if (isSkip())
+        {
+            getLog().info("Skipping plugin execution");
+            return;
+        }
+
+        if (outputFormat != OutputFormat.TEXT && outputFile == null && !gateOnly && getPartialOutputFile() == null)
+        {
+            throw new MojoExecutionException(String.format("The %s output format requires an outputFile; the report "
+                                                           + "cannot be ingested from the console", outputFormat));
+        }
+
+        List<String> reportScopes = getReportScopes();
+        if (!reportScopes.isEmpty() && (getPartialOutputFile() != null || !resolvesDependencies()))
+        {
+            throw new MojoExecutionException("The scopes parameter cannot be used with partial results; "
+                                             + "write and merge the partials of each scope in turn with scope instead");
+        }
+
+        metrics = new ReportMetrics();
+        AlignmentMatcher alignmentMatcher = createAlignmentMatcher();
+        verdictCache = new AlignmentVerdictCache(alignmentMatcher);
+        ArtifactFilter excludeFilter = createExcludeFilter();
+
+        subtreeCache = useSubtreeCache ? openSubtreeCache(alignmentMatcher) : null;
+
+        ArtifactGraph graph = null;
+        if (reportScopes.isEmpty())
+        {
+            graph = resolveGraph(scope, excludeFilter, alignmentMatcher);
+        }
+
+        File partialOutputFile = getPartialOutputFile();
+        if (partialOutputFile != null)
+        {
+            writePartial(partialOutputFile, graph);
+            if (writeMetrics)
+            {
+                writeMetrics();
+            }
+            return;
+        }
+
+        Map<String, AlignmentResult> results = new LinkedHashMap<>();
+        String gateFailure = null;
+        AlignmentSnapshot.Delta delta = null;
+        traversalPool = traversalThreads > 1 ? new ForkJoinPool(traversalThreads) : null;
+        try
+        {
+            if (reportScopes.isEmpty())
+            {
+                results.put(null, analyse(graph));
+                gateFailure = findGateFailure(results.get(null));
+            }
+            else
+            {
+                /*
+                 * The non-test scopes are reported from a graph resolved beneath the proxy project, as they would be
+                 * with scope, and the test scope from the project's own graph.  Each is resolved only when first
+                 * needed, so a gate failure in an earlier scope saves the resolution of the other.
+                 */
+                ArtifactGraph mainGraph = null;
+                ArtifactGraph testGraph = null;
+                for (String reportScope : reportScopes)
+                {
+                    ArtifactGraph resolved;
+                    if (Artifact.SCOPE_TEST.equals(reportScope))
+                    {
+                        if (testGraph == null)
+                        {
+                            testGraph = resolveGraph(Artifact.SCOPE_TEST, excludeFilter, alignmentMatcher);
+                        }
+                        resolved = testGraph;
+                    }
+                    else
+                    {
+                        if (mainGraph == null)
+                        {
+                            mainGraph = resolveGraph(NON_TEST_SCOPES, excludeFilter, alignmentMatcher);
+                        }
+                        resolved = mainGraph;
+                    }
+
+                    ArtifactFilter filter = new ScopeArtifactFilter(reportScope);
+                    Map<String, Boolean> included = new HashMap<>();
+                    ArtifactGraph scopeGraph = resolved.filterByScope(
+                            artifactScope -> artifactScope == null
+                                             || included.computeIfAbsent(artifactScope,
+                                                                         s -> filter.include(scopedArtifact(s))));
+                    results.put(reportScope, analyse(scopeGraph));
+                    gateFailure = findGateFailure(results.get(reportScope));
+                    if (gateFailure != null)
+                    {
+                        break;
+                    }
+                }
+            }
+
+            if (!gateOnly)
+            {
+                AlignmentSnapshot snapshot = null;
+                AlignmentSnapshot baseline = null;
+                if (baselineFile != null)
+                {
+                    long start = System.nanoTime();
+                    snapshot = AlignmentSnapshot.of(results, detailMode);
+                    metrics.record(ReportMetrics.Phase.BASELINE, start);
+                    baseline = readBaseline();
+                    delta = baseline != null ? snapshot.diff(baseline) : null;
+                }
+                writeReport(results, delta);
+                if (snapshot != null && (baseline == null || updateBaseline))
+                {
+                    saveBaseline(snapshot);
+                }
+            }
+        }
+        finally
+        {
+            if (traversalPool != null)
+            {
+                traversalPool.shutdown();
+            }
+        }
+
+        if (subtreeCache != null)
+        {
+            storeSubtreeSummaries(results.values());
+        }
+
+        getLog().debug(String.format("+ Alignment verdict cache: %d hits, %d misses",
+                                     verdictCache.getHits(),
+                                     verdictCache.getMisses()));
+
+        if (writeMetrics)
+        {
+            writeMetrics();
+        }
+
+        if (gateFailure != null)
+        {
+            throw new MojoFailureException(gateFailure);
+        }
+        if (gateOnly)
+        {
+            if (gateCounts)
+            {
+                failOnUnalignedDependencies(results.values());
+            }
+            getLog().info("All dependencies are aligned");
+        }
+        else if (failOnUnalignedDependencies)
+        {
+            if (failOnRegressionsOnly && delta != null)
+            {
+                String regressions = delta.describeRegressions();
+                if (regressions != null)
+                {
+                    throw new MojoFailureException(regressions);
+                }
+            }
+            else
+            {
+                failOnUnalignedDependencies(results.values());
+            }
+        }
+    }
+
+    /**
+     * Resolves the dependency graph that the report considers, filtered by the given scope.
+     *
+     * @param resolutionScope the scope to filter by, {@link #NON_TEST_SCOPES}, or <code>null</code> to include
+     * dependencies from all scopes
+     */
+    private ArtifactGraph resolveGraph(final String resolutionScope, final ArtifactFilter excludeFilter,
+                                       final AlignmentMatcher alignmentMatcher) throws MojoExecutionException
+    {
+        scopeFilter = createScopeResolvingArtifactFilter(resolutionScope);
+        resultCache = useCache ? new ModuleResultCache(getBuildProjects(), resolutionScope, excludes, alignmentMatcher) : null;
+
+        DependencyNodeFilter excludeDependencyFilter = new ArtifactDependencyNodeFilter(excludeFilter);
+        ArtifactGraph graph = getDependencyGraph(new AndArtifactFilter(Arrays.asList(scopeFilter, excludeFilter)),
+                                                 excludeDependencyFilter);
+        metrics.add(ReportMetrics.Counter.DISTINCT_ARTIFACTS, graph.size());
+        return graph;
+    }
+
+    /**
+     * @return the snapshot in <code>baselineFile</code>, or <code>null</code> if there is none yet
+     */
+    private AlignmentSnapshot readBaseline() throws MojoExecutionException
+    {
+        if (!baselineFile.isFile())
+        {
+            getLog().info(String.format("No alignment baseline at %s, writing the full report", baselineFile));
+            return null;
+        }
+
+        long start = System.nanoTime();
+        AlignmentSnapshot baseline;
+        try
+        {
+            baseline = AlignmentSnapshot.readFrom(baselineFile);
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException(String.format("Cannot read alignment baseline %s", baselineFile), e);
+        }
+        metrics.record(ReportMetrics.Phase.BASELINE, start);
+
+        if (baseline.getDetailMode() != detailMode)
+        {
+            throw new MojoExecutionException(String.format("Alignment baseline %s lists paths in %s mode, not %s",
+                                                           baselineFile, baseline.getDetailMode(), detailMode));
+        }
+        return baseline;
+    }
+
+    private void saveBaseline(final AlignmentSnapshot snapshot) throws MojoExecutionException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            snapshot.writeTo(baselineFile);
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException(String.format("Cannot write alignment baseline %s", baselineFile), e);
+        }
+        metrics.record(ReportMetrics.Phase.BASELINE, start);
+        getLog().info(String.format("Wrote alignment baseline to: %s", baselineFile));
+    }
+
+    /**
+     * @param results the results, by scope
+     * @param delta the changes since the baseline, to be written instead of the results, or <code>null</code>
+     */
+    private void writeReport(final Map<String, AlignmentResult> results, final AlignmentSnapshot.Delta delta)
+            throws MojoExecutionException
+    {
+        long writeStart = System.nanoTime();
+        try (ReportSink sink = openReportSink())
+        {
+            ReportWriter writer = ReportWriter.create(sink, outputFormat, detailMode, isShowContributors(), topOffenders);
+            if (outputFile != null)
+            {
+                writer.writeProjectTitle(project.getName());
+            }
+
+            if (delta != null)
+            {
+                writer.writeDelta(delta);
+            }
+            else
+            {
+                for (Map.Entry<String, AlignmentResult> entry : results.entrySet())
+                {
+                    if (entry.getKey() != null)
+                    {
+                        writer.writeScopeTitle(entry.getKey());
+                    }
+                    writer.write(entry.getValue());
+                }
+            }
+        }
+        catch (IOException exception)
+        {
+            throw new MojoExecutionException("Cannot serialise project dependency graph", exception);
+        }
+        metrics.record(ReportMetrics.Phase.WRITE, writeStart);
+
+        if (outputFile != null)
+        {
+            getLog().info(String.format("Wrote alignment report tree to: %s", outputFile));
+        }
+    }
+
+    private void writePartial(final File partialOutputFile, final ArtifactGraph graph) throws MojoExecutionException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            new PartialResultFile(getResolutionSettings(), graph).write(partialOutputFile);
+        }
+        catch (IOException exception)
+        {
+            throw new MojoExecutionException("Cannot write partial alignment result", exception);
+        }
+        metrics.record(ReportMetrics.Phase.WRITE, start);
+        getLog().info(String.format("Wrote partial alignment result to: %s", partialOutputFile));
+    }
+
+    /**
+     * @return the cache of the subtrees of the graphs reported upon, or <code>null</code> if it cannot be read
+     */
+    private SubtreeSummaryCache openSubtreeCache(final AlignmentMatcher alignmentMatcher)
+    {
+        long start = System.nanoTime();
+        /*
+         * The entries are keyed by the digest of the subtree as resolved, which the scope, the excludes and the
+         * projects' dependencies and dependency management all show in, so only the alignment patterns are left.
+         */
+        File directory = new File(session.getRepositorySession().getLocalRepository().getBasedir(),
+                                  ".alignment-reporter");
+        try
+        {
+            return SubtreeSummaryCache.open(directory, "alignmentPattern=" + alignmentMatcher);
+        }
+        catch (IOException e)
+        {
+            getLog().warn(String.format("Cannot read subtree cache: %s", e.getMessage()));
+            return null;
+        }
+        finally
+        {
+            metrics.record(ReportMetrics.Phase.CACHE, start);
+        }
+    }
+
+    private void storeSubtreeSummaries(final Collection<AlignmentResult> results)
+    {
+        long start = System.nanoTime();
+        results.forEach(result -> result.addSubtreeSummaries(subtreeCache));
+        try
+        {
+            subtreeCache.flush();
+        }
+        catch (IOException e)
+        {
+            getLog().warn(String.format("Cannot write subtree cache: %s", e.getMessage()));
+        }
+        metrics.record(ReportMetrics.Phase.CACHE, start);
+        getLog().debug(String.format("+ Subtree cache: %d hits, %d misses",
+                                     subtreeCache.getHits(),
+                                     subtreeCache.getMisses()));
+    }
+
+    private void failOnUnalignedDependencies(final Collection<AlignmentResult> results) throws MojoFailureException
+    {
+        String failure = AlignmentResult.describeUnaligned(results);
+        if (failure != null)
+        {
+            throw new MojoFailureException(failure);
+        }
+    }
+
+    private ReportSink openReportSink() throws IOException
+    {
+        if (outputFile == null)
+        {
+            return metrics.countingBytes(logSink());
+        }
+        if (reactorSink != null)
+        {
+            return reactorSink.open(project, metrics);
+        }
+        OutputStream out = metrics.countingBytes(ReportSink.openFile(outputFile, this.appendOutput));
+        return ReportSink.toWriter(ReportSink.encode(out, compressOutput));
+    }
+
+    /**
+     * @return a sink writing each line of the report to the log at info level
+     */
+    private ReportSink logSink()
+    {
+        return new ReportSink()
+        {
+            @Override
+            public void println(final String line)
+            {
+                getLog().info(line);
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+
+    /**
+     * Classifies the graph and works out the summary and detail of the report, timing each.
+     */
+    private AlignmentResult analyse(final ArtifactGraph graph)
+    {
+        long start = System.nanoTime();
+        AlignmentResult result = new AlignmentResult(graph, verdictCache, traversalPool, subtreeCache);
+        metrics.record(ReportMetrics.Phase.CLASSIFY, start);
+
+        if (gateOnly && !gateCounts)
+        {
+            return result;
+        }
+
+        start = System.nanoTime();
+        result.getIncompletelyAlignedDirectDependencies();
+        metrics.record(ReportMetrics.Phase.SUMMARY, start);
+
+        if (gateOnly)
+        {
+            return result;
+        }
+
+        start = System.nanoTime();
+        List<UnalignedPath> paths = result.getUnalignedPaths(detailMode);
+        metrics.record(ReportMetrics.Phase.DETAIL, start);
+        metrics.add(ReportMetrics.Counter.PATHS_EMITTED, paths.size());
+        if (writeMetrics)
+        {
+            metrics.add(ReportMetrics.Counter.PATH_NODES_EMITTED, UnalignedPath.countNodes(paths));
+        }
+
+        if (topOffenders > 0)
+        {
+            start = System.nanoTime();
+            result.getBlastRadiusIndex();
+            metrics.record(ReportMetrics.Phase.OFFENDERS, start);
+        }
+        return result;
+    }
+
+    /**
+     * In a <code>gateOnly</code> build that does not count, finds whether the build is to fail, stopping at the
+     * first unaligned or incompletely aligned direct dependency.
+     *
+     * @return the failure message, or <code>null</code> if the build is not to fail
+     */
+    private String findGateFailure(final AlignmentResult result)
+    {
+        if (!gateOnly || gateCounts)
+        {
+            return null;
+        }
+        if (result.getUnalignedDirectDependencies().length > 0)
+        {
+            return "There is at least one unaligned direct dependency";
+        }
+
+        long start = System.nanoTime();
+        boolean incompletelyAligned = result.hasIncompletelyAlignedDirectDependency();
+        metrics.record(ReportMetrics.Phase.SUMMARY, start);
+        return incompletelyAligned
+               ? "There is at least one aligned direct dependency with at least one unaligned transitive dependency"
+               : null;
+    }
+
+    private void writeMetrics() throws MojoExecutionException
+    {
+        metrics.add(ReportMetrics.Counter.PATTERN_EVALUATIONS, verdictCache.getMisses());
+
+        File metricsFile;
+        if (outputFile != null)
+        {
+            metricsFile = ReportMetrics.fileBeside(outputFile, project.getGroupId(), project.getArtifactId());
+        }
+        else
+        {
+            metricsFile = new File(project.getBuild().getDirectory(), "alignment-reporter/metrics.json");
+        }
+
+        try
+        {
+            metrics.writeTo(metricsFile, project.getId(), mojoExecution.getGoal());
+        }
+        catch (IOException exception)
+        {
+            throw new MojoExecutionException("Cannot write alignment report metrics", exception);
+        }
+        getLog().info(String.format("Wrote alignment report metrics to: %s", metricsFile));
+    }
+
+    protected Set<DependencyNode> getDirectDependencies(MavenProject reactorProject, ArtifactFilter artifactFilter)
+            throws MojoExecutionException  {
+
+        ProjectBuildingRequest buildingRequest =
+                new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+
+        Artifact projectTestJar = new org.apache.maven.project.artifact.ProjectArtifact(reactorProject);
+        projectTestJar.setScope("test");
+
+        if (scopeFilter.include(projectTestJar)) {
+            buildingRequest.setProject(reactorProject);
+        } else {
+            /*
+             * When test-scoped dependencies are not scanned, create a proxy/shim project
+             * that depends on the actual project. The graph for the project will be
+             * generated, resulting in a tree that does not include the test dependencies
+             * and accurately lists the resolved dependencies for non-test artifacts in the
+             * tree. Without this proxy/shim, when a dependency is pulled by both a test and
+             * a non-test artifact in the tree and there also exists a conflict between them
+             * (e.g. same artifact, different version), the artifact may not appear in the
+             * tree under the non-test dependency.
+             */
+            Dependency projectDependency = new Dependency();
+            projectDependency.setGroupId(reactorProject.getGroupId());
+            projectDependency.setArtifactId(reactorProject.getArtifactId());
+            projectDependency.setVersion(reactorProject.getVersion());
+            projectDependency.setType(reactorProject.getArtifact().getType());
+
+            MavenProject proxy = new MavenProject();
+            proxy.setArtifact(new org.apache.maven.project.artifact.ProjectArtifact(reactorProject));
+            proxy.getModel().setDependencyManagement(reactorProject.getDependencyManagement());
+            proxy.getDependencies().add(projectDependency);
+            proxy.setRemoteArtifactRepositories(reactorProject.getRemoteArtifactRepositories());
+            buildingRequest.setProject(proxy);
+        }
+
+        Set<Artifact> projectArtifacts = getBuildProjects().stream().map(MavenProject::getArtifact).collect(Collectors.toSet());
+        long start = System.nanoTime();
+        DependencyNode projectRoot = buildDependencyGraph(buildingRequest, artifactFilter);
+        metrics.record(ReportMetrics.Phase.RESOLVE, start);
+
+        start = System.nanoTime();
+
+        Stream<DependencyNode> dependencyStream = projectRoot
+                .getChildren()
+                .stream();
+
+        if (!scopeFilter.include(projectTestJar)) {
+            /*
+             * If a proxy project was used, we must map dependencies from an additional level
+             * down in the graph.
+             */
+            dependencyStream = dependencyStream.flatMap(node -> node.getChildren().stream());
+        }
+
+        Set<DependencyNode> dependencies = dependencyStream
+                .filter(node -> !projectArtifacts.contains(node.getArtifact()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        metrics.record(ReportMetrics.Phase.DIRECT_DEPENDENCIES, start);
+
+        if (getLog().isDebugEnabled()) {
+            for (DependencyNode dependency : dependencies.stream().sorted(DEPENDENCY_COMPARATOR).collect(Collectors.toList())) {
+                getLog().debug(String.format("Project %s, found direct dependency %s", reactorProject.getArtifact(), dependency.getArtifact()));
+            }
+        }
+
+        return dependencies;
+    }
+
+    private DependencyNode buildDependencyGraph(ProjectBuildingRequest buildingRequest, ArtifactFilter artifactFilter)
+            throws MojoExecutionException
+    {
+        if (collectOnly)
+        {
+            /*
+             * The collector defaults to the verbose graph of dependency:tree -Dverbose, which retains the losers of
+             * version conflicts.  Use the session's selector and transformer instead, so that the graph is the
+             * same as the one that resolution would produce.
+             */
+            RepositorySystemSession repositorySession = buildingRequest.getRepositorySession();
+            DependencyCollectorRequest request = new DependencyCollectorRequest(buildingRequest, artifactFilter)
+                    .dependencySelector(repositorySession.getDependencySelector())
+                    .dependencyGraphTransformer(repositorySession.getDependencyGraphTransformer());
+            request.addConfigProperty(ConflictResolver.CONFIG_PROP_VERBOSE, false);
+            request.addConfigProperty(DependencyManagerUtils.CONFIG_PROP_VERBOSE, false);
+
+            try {
+                return dependencyCollectorBuilder.collectDependencyGraph(request);
+            } catch (DependencyCollectorBuilderException e) {
+                throw new MojoExecutionException("Cannot collect project dependency graph", e);
+            }
+        }
+
+        buildingRequest.setResolveDependencies(true);
+
+        try {
+            return dependencyGraphBuilder.buildDependencyGraph(buildingRequest, artifactFilter);
+        } catch (DependencyGraphBuilderException e) {
+            throw new MojoExecutionException("Cannot build project dependency graph", e);
+        }
+    }
+
+    /**
+     * Returns the dependency graph of the given project, from the cache if possible.
+     *
+     * @param reactorProject the project
+     * @param artifactFilter filter applied when building the graph
+     * @param nodeFilter filter applied to the nodes of the graph
+     */
+    protected ArtifactGraph getDependencyGraph(MavenProject reactorProject, ArtifactFilter artifactFilter,
+                                               DependencyNodeFilter nodeFilter) throws MojoExecutionException
+    {
+        long moduleStart = System.nanoTime();
+        if (resultCache != null)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                ArtifactGraph cached = resultCache.load(reactorProject, verdictCache);
+                if (cached != null)
+                {
+                    getLog().debug(String.format("Project %s, using cached dependency graph", reactorProject.getArtifact()));
+                    metrics.record(ReportMetrics.Phase.CACHE, start);
+                    metrics.recordModule(reactorProject.getId(), System.nanoTime() - moduleStart, true);
+                    return cached;
+                }
+            }
+            catch (IOException e)
+            {
+                getLog().debug(String.format("Project %s, cannot read cached dependency graph", reactorProject.getArtifact()), e);
+            }
+            metrics.record(ReportMetrics.Phase.CACHE, start);
+        }
+
+        Set<DependencyNode> directDependencies = getDirectDependencies(reactorProject, artifactFilter);
+        long start = System.nanoTime();
+        ArtifactGraph graph = ArtifactGraph.of(directDependencies, nodeFilter);
+        metrics.record(ReportMetrics.Phase.INTERN, start);
+        metrics.add(ReportMetrics.Counter.NODES_VISITED, graph.getVisitedNodes());
+
+        if (resultCache != null)
+        {
+            start = System.nanoTime();
+            try
+            {
+                resultCache.store(reactorProject, graph, verdictCache);
+            }
+            catch (IOException e)
+            {
+                getLog().warn(String.format("Project %s, cannot cache dependency graph: %s", reactorProject.getArtifact(), e.getMessage()));
+            }
+            metrics.record(ReportMetrics.Phase.CACHE, start);
+        }
+        metrics.recordModule(reactorProject.getId(), System.nanoTime() - moduleStart, false);
+        return graph;
+    }
+
+    /**
+     * Returns the dependency graph that is to be considered by the report.
+     *
+     * @param artifactFilter filter applied when building the graph
+     * @param nodeFilter filter applied to the nodes of the graph
+     */
+    protected abstract ArtifactGraph getDependencyGraph(final ArtifactFilter artifactFilter,
+                                                        final DependencyNodeFilter nodeFilter)
+            throws MojoExecutionException;
+
+    /**
+     * @return the file to write the dependency graph to, as a partial result to be merged with others, rather than
+     * reporting upon it; or <code>null</code> to report
+     */
+    protected File getPartialOutputFile()
+    {
+        return null;
+    }
+
+    /**
+     * @return the projects of the build, whose artifacts are not dependencies to report upon: those of the reactor,
+     * or when writing a partial result, those of the whole build of which the reactor is a shard
+     */
+    private List<MavenProject> getBuildProjects()
+    {
+        if (getPartialOutputFile() != null && session.getAllProjects() != null)
+        {
+            return session.getAllProjects();
+        }
+        return reactorProjects;
+    }
+
+    /**
+     * @return the settings the dependency graph is resolved with, which the partial results merged into one report
+     * must share
+     */
+    protected String getResolutionSettings()
+    {
+        return String.format("scope=%s, excludes=%s, collectOnly=%b", scope, excludes, collectOnly);
+    }
+
+    /**
+     * Compares the resolution settings this mojo was given with those recorded in a partial result.  Settings left
+     * unset, and <code>collectOnly</code> left <code>false</code>, are taken to agree with any recorded.
+     *
+     * @param recorded the settings the partial result was resolved with, as {@link #getResolutionSettings()} gives
+     * them
+     * @return those of the settings given that differ from the recorded ones, or <code>null</code> if none do
+     */
+    protected String describeMismatchedSettings(final String recorded)
+    {
+        Matcher matcher = RESOLUTION_SETTINGS.matcher(recorded);
+        if (!matcher.matches())
+        {
+            return getResolutionSettings();
+        }
+        List<String> mismatched = new ArrayList<>();
+        if (scope != null && !scope.equals(matcher.group(1)))
+        {
+            mismatched.add("scope=" + scope);
+        }
+        if (excludes != null && !excludes.equals(matcher.group(2)))
+        {
+            mismatched.add("excludes=" + excludes);
+        }
+        if (collectOnly && !Boolean.parseBoolean(matcher.group(3)))
+        {
+            mismatched.add("collectOnly=" + collectOnly);
+        }
+        return mismatched.isEmpty() ? null : String.join(", ", mismatched);
+    }
+
+    /**
+     * @return whether the dependency graph is resolved, rather than read from partial results
+     */
+    protected boolean resolvesDependencies()
+    {
+        return true;
+    }
+
+    /**
+     * @return whether the report names the modules depending directly upon each direct dependency
+     */
+    protected boolean isShowContributors()
+    {
+        return false;
+    }
+
+    /**
+     * Gets the Maven project used by this mojo.
+     *
+     * @return the Maven project
+     */
+    public MavenProject getProject()
+    {
+        return project;
+    }
+
+    /**
+     * @return {@link #skip}
+     */
+    public boolean isSkip()
+    {
+        return skip;
+    }
+
+    public void setAlignmentPattern(final String alignmentPattern)
+    {
+        this.alignmentPattern = alignmentPattern;
+    }
+
+    /**
+     * Gets the artifact filter to use when resolving the dependency tree.
+     *
+     * @return the artifact filter
+     */
+    private ArtifactFilter createScopeResolvingArtifactFilter(final String scope)
+    {
+        ArtifactFilter filter;
+
+        // filter scope
+        if (NON_TEST_SCOPES.equals(scope))
+        {
+            getLog().debug("+ Resolving dependency tree for the non-test scopes");
+
+            filter = artifact -> !Artifact.SCOPE_TEST.equals(artifact.getScope());
+        }
+        else if (scope != null)
+        {
+            getLog().debug(String.format("+ Resolving dependency tree for scope '%s'", scope));
+
+            filter = new ScopeArtifactFilter(scope);
+        }
+        else
+        {
+            filter = artifact -> true;
+        }
+
+        return filter;
+    }
+
+    private List<String> getReportScopes()
+    {
+        if (scopes == null)
+        {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(scopes.split(","))
+                     .map(String::trim)
+                     .filter(s -> !s.isEmpty())
+                     .distinct()
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @return an artifact in the given scope, against which a {@link ScopeArtifactFilter} may be evaluated
+     */
+    private static Artifact scopedArtifact(final String scope)
+    {
+        return new DefaultArtifact("scope", "scope", "1", scope, "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    private AlignmentMatcher createAlignmentMatcher() throws MojoExecutionException
+    {
+        List<String> sources = new ArrayList<>();
+        if (alignmentPattern != null)
+        {
+            sources.add(alignmentPattern);
+        }
+        if (alignmentPatterns != null)
+        {
+            sources.addAll(alignmentPatterns);
+        }
+
+        if (sources.isEmpty())
+        {
+            throw new MojoExecutionException("One of the alignmentPattern and alignmentPatterns parameters must be set");
+        }
+        try
+        {
+            return AlignmentMatcher.compileSources(sources);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new MojoExecutionException(e.getMessage(), e.getCause());
+        }
+    }
+
+    private ArtifactFilter createExcludeFilter()
+    {
+        ArtifactFilter filter;
+        // filter excludes
+        if ( excludes != null )
+        {
+            List<String> patterns = Arrays.asList( excludes.split( "," ) );
+
+            getLog().debug(String.format("+ Filtering dependency tree by artifact exclude patterns: %s", patterns));
+            filter = new CompiledExcludeFilter( patterns );
+        }
+        else
+        {
+            filter = artifact -> true;
+        }
+        return filter;
+    }
+}
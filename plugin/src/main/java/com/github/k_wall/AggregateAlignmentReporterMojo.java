@@ -0,0 +1,160 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.filter.DependencyNodeFilter;
+
+import com.github.k_wall.core.ArtifactGraph;
+
+@Mojo(name = "aggregate-report", aggregator = true, requiresDependencyCollection = ResolutionScope.TEST, threadSafe =
+        true)
+public class AggregateAlignmentReporterMojo extends AbstractAlignmentReporterMojo
+{
+    /**
+     * The number of reactor modules whose dependency graphs are resolved concurrently.  Defaults to the degree of
+     * concurrency of the build (<code>-T</code>).  A value of <code>1</code> resolves the modules serially.
+     */
+    @Parameter(property = "resolutionThreads")
+    private Integer resolutionThreads;
+    /**
+     * Name, after each direct dependency in the report, the reactor modules that depend directly upon it, as
+     * <code>groupId:artifactId</code>.
+     */
+    @Parameter(property = "showContributors", defaultValue = "false")
+    private boolean showContributors;
+    /**
+     * Rather than report upon the modules built, write their merged dependency graph to this file, as a partial
+     * result for the <code>merge-report</code> goal to combine with those of other shards of the build.
+     */
+    @Parameter(property = "partialOutputFile")
+    private File partialOutputFile;
+
+    /**
+     * Builds each module's graph and merges it into the aggregate as soon as it is built, in reactor order, so that
+     * only the graphs of the few modules in flight are held alongside the aggregate.
+     */
+    @Override
+    protected ArtifactGraph getDependencyGraph(final ArtifactFilter artifactFilter,
+                                               final DependencyNodeFilter nodeFilter) throws MojoExecutionException
+    {
+        ArtifactGraph.Merger merger = new ArtifactGraph.Merger();
+
+        int threads = Math.min(getResolutionThreads(), reactorProjects.size());
+        if (threads <= 1)
+        {
+            for (MavenProject reactorProject : reactorProjects) {
+                merge(merger, reactorProject, getDependencyGraph(reactorProject, artifactFilter, nodeFilter));
+            }
+            return merger.build();
+        }
+
+        getLog().debug(String.format("+ Resolving %d reactor projects using %d threads", reactorProjects.size(), threads));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            /*
+             * Merge in reactor order so that the report is identical to the serial one.  Modules are submitted no
+             * further ahead of the next to merge than keeps the threads busy, which bounds the graphs built but not
+             * yet merged whilst a slow module holds up the merge.
+             */
+            int window = threads * 2;
+            Deque<Future<ArtifactGraph>> inFlight = new ArrayDeque<>(window);
+            Iterator<MavenProject> toSubmit = reactorProjects.iterator();
+            for (MavenProject reactorProject : reactorProjects) {
+                while (inFlight.size() < window && toSubmit.hasNext()) {
+                    MavenProject next = toSubmit.next();
+                    inFlight.add(executor.submit(() -> getDependencyGraph(next, artifactFilter, nodeFilter)));
+                }
+                merge(merger, reactorProject, awaitGraph(inFlight.remove()));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return merger.build();
+    }
+
+    private void merge(final ArtifactGraph.Merger merger, final MavenProject reactorProject, final ArtifactGraph graph)
+    {
+        long start = System.nanoTime();
+        // modules of different groups may share an artifact id
+        merger.add(graph, reactorProject.getGroupId() + ":" + reactorProject.getArtifactId());
+        metrics.record(ReportMetrics.Phase.MERGE, start);
+    }
+
+    @Override
+    protected File getPartialOutputFile()
+    {
+        return partialOutputFile;
+    }
+
+    @Override
+    protected boolean isShowContributors()
+    {
+        return showContributors;
+    }
+
+    private int getResolutionThreads()
+    {
+        if (resolutionThreads != null)
+        {
+            return resolutionThreads;
+        }
+        return Math.max(1, session.getRequest().getDegreeOfConcurrency());
+    }
+
+    private static ArtifactGraph awaitGraph(final Future<ArtifactGraph> future)
+            throws MojoExecutionException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted whilst building project dependency graphs", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof MojoExecutionException)
+            {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Cannot build project dependency graph", e.getCause());
+        }
+    }
+}
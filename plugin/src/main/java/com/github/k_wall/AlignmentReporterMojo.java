@@ -17,20 +17,21 @@ package com.github.k_wall;/*
  * under the License.
  */
 
-import java.util.Set;
-
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.ResolutionScope;
-import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.filter.DependencyNodeFilter;
+
+import com.github.k_wall.core.ArtifactGraph;
 
 @Mojo(name = "report", requiresDependencyCollection = ResolutionScope.TEST, threadSafe = true)
 public class AlignmentReporterMojo extends AbstractAlignmentReporterMojo
 {
     @Override
-    protected Set<DependencyNode> getDirectDependencies(final ArtifactFilter artifactFilter) throws MojoExecutionException
+    protected ArtifactGraph getDependencyGraph(final ArtifactFilter artifactFilter,
+                                               final DependencyNodeFilter nodeFilter) throws MojoExecutionException
     {
-        return getDirectDependencies(getProject(), artifactFilter);
+        return getDependencyGraph(getProject(), artifactFilter, nodeFilter);
     }
 }
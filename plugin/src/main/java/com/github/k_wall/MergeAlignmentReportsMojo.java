@@ -0,0 +1,138 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.shared.dependency.graph.filter.DependencyNodeFilter;
+
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.PartialResultFile;
+
+/**
+ * Combines the partial results written by shards of a build with <code>partialOutputFile</code> into the aggregate
+ * report of all their modules.  No dependencies are resolved: the graphs were resolved, with the shards'
+ * <code>scope</code>, <code>excludes</code> and <code>collectOnly</code>, when the partials were written, and partials
+ * resolved with different settings are refused, as is a merge given any of these settings other than the partials'.
+ */
+@Mojo(name = "merge-report", aggregator = true, threadSafe = true)
+public class MergeAlignmentReportsMojo extends AbstractAlignmentReporterMojo
+{
+    /**
+     * The partial results to merge, in order.  Where a dependency occurs in more than one, the first supplies its
+     * transitive dependencies, as the first module does in a single aggregate report.
+     */
+    @Parameter(property = "partialFiles", required = true)
+    private List<File> partialFiles;
+    /**
+     * Name, after each direct dependency in the report, the reactor modules that depend directly upon it, as
+     * <code>groupId:artifactId</code>.
+     */
+    @Parameter(property = "showContributors", defaultValue = "false")
+    private boolean showContributors;
+    /**
+     * Rather than report upon the partials, write their merged dependency graph to this file, as a partial result
+     * to be merged in turn with others.
+     */
+    @Parameter(property = "partialOutputFile")
+    private File partialOutputFile;
+
+    private String resolutionSettings;
+
+    /**
+     * Merges the partials one at a time, so that each is dropped once it has been merged.  Every artifact of each
+     * partial is visited once, so the merge takes time proportional to the size of the partials.
+     */
+    @Override
+    protected ArtifactGraph getDependencyGraph(final ArtifactFilter artifactFilter,
+                                               final DependencyNodeFilter nodeFilter) throws MojoExecutionException
+    {
+        ArtifactGraph.Merger merger = new ArtifactGraph.Merger();
+        for (File partialFile : partialFiles)
+        {
+            long start = System.nanoTime();
+            PartialResultFile partial;
+            try
+            {
+                partial = PartialResultFile.read(partialFile);
+            }
+            catch (IOException e)
+            {
+                throw new MojoExecutionException(String.format("Cannot read partial alignment result %s", partialFile), e);
+            }
+            metrics.record(ReportMetrics.Phase.RESOLVE, start);
+
+            if (resolutionSettings == null)
+            {
+                String mismatch = describeMismatchedSettings(partial.getSettings());
+                if (mismatch != null)
+                {
+                    throw new MojoExecutionException(String.format("Partial alignment result %s was resolved with "
+                                                                   + "%s, but the merge was given %s",
+                                                                   partialFile, partial.getSettings(), mismatch));
+                }
+                resolutionSettings = partial.getSettings();
+            }
+            else if (!resolutionSettings.equals(partial.getSettings()))
+            {
+                throw new MojoExecutionException(String.format("Partial alignment result %s was resolved with %s, "
+                                                               + "but %s with %s",
+                                                               partialFile, partial.getSettings(),
+                                                               partialFiles.get(0), resolutionSettings));
+            }
+
+            start = System.nanoTime();
+            merger.add(partial.getGraph());
+            metrics.record(ReportMetrics.Phase.MERGE, start);
+        }
+        return merger.build();
+    }
+
+    /**
+     * @return the settings the merged partials were resolved with
+     */
+    @Override
+    protected String getResolutionSettings()
+    {
+        return resolutionSettings;
+    }
+
+    @Override
+    protected File getPartialOutputFile()
+    {
+        return partialOutputFile;
+    }
+
+    @Override
+    protected boolean isShowContributors()
+    {
+        return showContributors;
+    }
+
+    @Override
+    protected boolean resolvesDependencies()
+    {
+        return false;
+    }
+}
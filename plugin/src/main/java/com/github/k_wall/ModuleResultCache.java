@@ -0,0 +1,259 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.project.MavenProject;
+
+import com.github.k_wall.core.AlignmentMatcher;
+import com.github.k_wall.core.AlignmentVerdictCache;
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.Digests;
+
+/**
+ * Caches each module's dependency graph, with the alignment verdicts of its artifacts, under the module's build
+ * directory.
+ *
+ * <p>An entry is keyed by a fingerprint of everything that determines the module's graph and its classification:
+ * the module's dependencies and dependency management (and those of any reactor modules it depends upon), the
+ * reactor modules, whose artifacts are left out of the graph, and the <code>scope</code>, <code>excludes</code> and
+ * alignment pattern parameters.  Graphs containing snapshot
+ * versions, or with a version selected from a range anywhere in them, may change without any of these changing, so
+ * are never cached.</p>
+ */
+final class ModuleResultCache
+{
+    private static final int MAGIC = 0x414c4e33;
+    private static final String CACHE_DIRECTORY = "alignment-reporter";
+
+    private final String settings;
+    private final String cacheFile;
+    private final Map<String, MavenProject> reactorProjects;
+    private final Map<MavenProject, String> fingerprints = new ConcurrentHashMap<>();
+
+    ModuleResultCache(final List<MavenProject> reactorProjects, final String scope, final String excludes,
+                      final AlignmentMatcher alignmentMatcher)
+    {
+        this.reactorProjects = reactorProjects.stream()
+                                              .collect(Collectors.toMap(ModuleResultCache::projectKey,
+                                                                        Function.identity(),
+                                                                        (first, second) -> first));
+        this.settings = String.join("\n",
+                                    "projects=" + String.join(",", new TreeSet<>(this.reactorProjects.keySet())),
+                                    "scope=" + scope,
+                                    "excludes=" + excludes,
+                                    "alignmentPattern=" + alignmentMatcher);
+        // graphs resolved for different scopes of the same module are cached side by side
+        this.cacheFile = scope == null ? "module-cache.bin" : "module-cache-" + scope + ".bin";
+    }
+
+    /**
+     * Reads the cached graph of the given module, if the cache holds one for its current fingerprint.  The cached
+     * verdicts are added to the verdict cache.
+     *
+     * @param project the module
+     * @param verdictCache the verdict cache
+     * @return the graph, or <code>null</code> if the cache holds none
+     * @throws IOException if the cache cannot be read
+     */
+    ArtifactGraph load(final MavenProject project, final AlignmentVerdictCache verdictCache) throws IOException
+    {
+        String fingerprint = fingerprint(project);
+        if (fingerprint == null)
+        {
+            return null;
+        }
+
+        File file = getCacheFile(project);
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath()));
+             DataInputStream in = new DataInputStream(stream))
+        {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(fingerprint))
+            {
+                return null;
+            }
+
+            ArtifactGraph graph = ArtifactGraph.readFrom(in);
+            byte[] bits = new byte[in.readInt()];
+            in.readFully(bits);
+            BitSet aligned = BitSet.valueOf(bits);
+            for (int id = 0; id < graph.size(); id++)
+            {
+                verdictCache.seed(graph.getVersion(id), aligned.get(id));
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * Stores the graph of the given module, unless it contains snapshot versions or versions selected from ranges.
+     *
+     * @param project the module
+     * @param graph the module's graph
+     * @param verdictCache the verdict cache
+     * @throws IOException if the cache cannot be written
+     */
+    void store(final MavenProject project, final ArtifactGraph graph, final AlignmentVerdictCache verdictCache)
+            throws IOException
+    {
+        String fingerprint = fingerprint(project);
+        if (fingerprint == null || graph.containsSnapshots() || graph.containsVersionRanges())
+        {
+            return;
+        }
+
+        boolean[] verdicts = graph.classify(verdictCache);
+        BitSet aligned = new BitSet(verdicts.length);
+        for (int id = 0; id < verdicts.length; id++)
+        {
+            aligned.set(id, verdicts[id]);
+        }
+
+        Path file = getCacheFile(project).toPath();
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), "module-cache", ".tmp");
+        try
+        {
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temporary));
+                 DataOutputStream out = new DataOutputStream(stream))
+            {
+                out.writeInt(MAGIC);
+                out.writeUTF(fingerprint);
+                graph.writeTo(out);
+                byte[] bits = aligned.toByteArray();
+                out.writeInt(bits.length);
+                out.write(bits);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return the fingerprint of the module, or <code>null</code> if the module's graph is not cacheable
+     */
+    private String fingerprint(final MavenProject project)
+    {
+        String fingerprint = fingerprints.get(project);
+        if (fingerprint == null)
+        {
+            fingerprint = computeFingerprint(project);
+            fingerprints.put(project, fingerprint);
+        }
+        return fingerprint.isEmpty() ? null : fingerprint;
+    }
+
+    private String computeFingerprint(final MavenProject project)
+    {
+        StringBuilder text = new StringBuilder(settings);
+        text.append('\n').append(projectKey(project));
+
+        // a range declared by the module is caught here, before its graph is built; ranges deeper in the graph are
+        // caught when the graph is stored
+        for (Dependency dependency : project.getDependencies())
+        {
+            if (isRange(dependency))
+            {
+                return "";
+            }
+            text.append("\ndependency=").append(dependencyKey(dependency));
+
+            MavenProject reactorProject = reactorProjects.get(dependency.getGroupId() + ":"
+                                                              + dependency.getArtifactId() + ":"
+                                                              + dependency.getVersion());
+            if (reactorProject != null && reactorProject != project)
+            {
+                String reactorFingerprint = fingerprint(reactorProject);
+                if (reactorFingerprint == null)
+                {
+                    return "";
+                }
+                text.append(" -> ").append(reactorFingerprint);
+            }
+        }
+
+        DependencyManagement dependencyManagement = project.getDependencyManagement();
+        if (dependencyManagement != null)
+        {
+            for (Dependency dependency : dependencyManagement.getDependencies())
+            {
+                text.append("\nmanaged=").append(dependencyKey(dependency));
+            }
+        }
+
+        return Digests.sha256(text.toString());
+    }
+
+    private static boolean isRange(final Dependency dependency)
+    {
+        String version = dependency.getVersion();
+        return version != null && (version.startsWith("[") || version.startsWith("("));
+    }
+
+    private static String dependencyKey(final Dependency dependency)
+    {
+        String exclusions = dependency.getExclusions()
+                                      .stream()
+                                      .map(exclusion -> exclusion.getGroupId() + ":" + exclusion.getArtifactId())
+                                      .collect(Collectors.joining(","));
+        return String.join(":",
+                           dependency.getManagementKey(),
+                           String.valueOf(dependency.getVersion()),
+                           String.valueOf(dependency.getScope()),
+                           String.valueOf(dependency.isOptional()),
+                           exclusions);
+    }
+
+    private static String projectKey(final MavenProject project)
+    {
+        return project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+    }
+
+    private File getCacheFile(final MavenProject project)
+    {
+        return new File(new File(project.getBuild().getDirectory(), CACHE_DIRECTORY), cacheFile);
+    }
+}
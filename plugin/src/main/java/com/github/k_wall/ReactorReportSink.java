@@ -0,0 +1,251 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.SessionData;
+
+import com.github.k_wall.core.ReportSink;
+
+/**
+ * Collects the reports of the modules of a parallel build that share an output file, and writes them to the file in
+ * reactor order.
+ *
+ * <p>Each report is encoded, and compressed if need be, into a buffer of its own, and set down under its module's
+ * position in the reactor, so each module counts the bytes its report adds to the file.  A module whose executions
+ * share the output file sets down a report for each, in the order they ran.  No module waits for another: once the
+ * session ends, {@link ReportSessionParticipant} {@linkplain #close() writes out} whatever reports were collected, in
+ * reactor order, however the build ended.  A module that is skipped, fails or writes no report simply adds
+ * nothing.</p>
+ *
+ * <p>The participant is only loaded when the plugin is declared with <code>&lt;extensions&gt;true&lt;/extensions&gt;
+ * </code>.  Without it, nothing would write the collected reports, so each report is instead appended to the file as
+ * it is handed over, in the order the modules finish, with a warning.</p>
+ */
+final class ReactorReportSink implements Closeable
+{
+    /** The key in the session data of the sinks to be written out once the session ends, by output file. */
+    static final String SINKS = ReactorReportSink.class.getName() + ".sinks";
+
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final File file;
+    private final boolean append;
+    private final boolean compress;
+    /** Per reactor position, the reports collected, in the order they were; null if not collecting. */
+    private final List<List<byte[]>> reports;
+    /** Whether the file has been written to.  Guarded by this sink. */
+    private boolean opened;
+
+    /**
+     * @param projects the modules of the reactor, in reactor order
+     * @param file the output file
+     * @param append whether to append to the file rather than overwrite it
+     * @param compress whether to compress the file with gzip
+     * @param collect whether to collect the reports to be written out when the sink is closed, rather than append
+     * each to the file as it is handed over
+     */
+    ReactorReportSink(final List<MavenProject> projects, final File file, final boolean append,
+                      final boolean compress, final boolean collect)
+    {
+        this.file = file;
+        this.append = append;
+        this.compress = compress;
+        for (MavenProject project : projects)
+        {
+            positions.put(project.getId(), positions.size());
+        }
+        if (collect)
+        {
+            reports = new ArrayList<>(projects.size());
+            for (int position = 0; position < projects.size(); position++)
+            {
+                reports.add(Collections.synchronizedList(new ArrayList<>()));
+            }
+        }
+        else
+        {
+            reports = null;
+        }
+    }
+
+    /**
+     * Returns the sink for the given output file, creating it for the first module to ask.
+     *
+     * @param session the session
+     * @param file the output file
+     * @param append whether to append to the file rather than overwrite it
+     * @param compress whether to compress the file with gzip
+     * @param log the log to warn to, if the reports cannot be written out at the end of the session
+     * @return the sink
+     */
+    static ReactorReportSink forSession(final MavenSession session, final File file, final boolean append,
+                                        final boolean compress, final Log log)
+    {
+        SessionData data = session.getRepositorySession().getData();
+        String key = file.getAbsolutePath();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Closeable> sinks = (Map<String, Closeable>) data.get(SINKS);
+        if (sinks != null)
+        {
+            return (ReactorReportSink) sinks.computeIfAbsent(
+                    key, k -> new ReactorReportSink(session.getProjects(), file, append, compress, true));
+        }
+
+        key = ReactorReportSink.class.getName() + ":" + key;
+        Object existing = data.get(key);
+        if (existing == null)
+        {
+            ReactorReportSink sink = new ReactorReportSink(session.getProjects(), file, append, compress, false);
+            if (data.set(key, null, sink))
+            {
+                log.warn(String.format("The reports are appended to %s in the order the modules finish; declare the"
+                                       + " plugin with <extensions>true</extensions> to write them in reactor order",
+                                       file));
+                return sink;
+            }
+            existing = data.get(key);
+        }
+        return (ReactorReportSink) existing;
+    }
+
+    /**
+     * Marks the session as one whose sinks are written out when it ends.
+     *
+     * @param data the session data
+     */
+    static void collectFor(final SessionData data)
+    {
+        data.set(SINKS, new ConcurrentHashMap<String, Closeable>());
+    }
+
+    /**
+     * @param project the module
+     * @param metrics the module's metrics, to which the bytes of its report are counted
+     * @return a sink buffering the module's report, which is handed over once the sink is closed
+     * @throws IOException if the gzip header cannot be written
+     */
+    ReportSink open(final MavenProject project, final ReportMetrics metrics) throws IOException
+    {
+        Integer position = positions.get(project.getId());
+        if (position == null)
+        {
+            throw new IOException(String.format("Project %s is not part of the reactor", project.getId()));
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Writer writer = ReportSink.encode(metrics.countingBytes(buffer), compress);
+        ReportSink sink = ReportSink.toWriter(writer);
+        return new ReportSink()
+        {
+            private boolean empty = true;
+
+            @Override
+            public void println(final String line) throws IOException
+            {
+                sink.println(line);
+                empty = false;
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                sink.close();
+                // a module that wrote nothing adds nothing to the file, not even an empty gzip member
+                if (empty)
+                {
+                    return;
+                }
+                if (reports != null)
+                {
+                    reports.get(position).add(buffer.toByteArray());
+                }
+                else
+                {
+                    write(buffer.toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes out the reports collected, in reactor order.  Called once the session has ended, when every module has
+     * handed over its reports or never will.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (reports == null)
+        {
+            return;
+        }
+        OutputStream out = null;
+        try
+        {
+            for (List<byte[]> moduleReports : reports)
+            {
+                synchronized (moduleReports)
+                {
+                    for (byte[] report : moduleReports)
+                    {
+                        if (out == null)
+                        {
+                            out = ReportSink.openFile(file, append);
+                        }
+                        out.write(report);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (out != null)
+            {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Appends a report to the file, the first overwriting it unless appending.
+     */
+    private synchronized void write(final byte[] report) throws IOException
+    {
+        try (OutputStream out = ReportSink.openFile(file, append || opened))
+        {
+            opened = true;
+            out.write(report);
+        }
+    }
+}
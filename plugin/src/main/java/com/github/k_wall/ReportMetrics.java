@@ -0,0 +1,295 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.k_wall.core.Json;
+import com.github.k_wall.core.ReportSink;
+
+/**
+ * Times the phases of a report and counts the work done in them, for writing as JSON.
+ *
+ * <p>Safe for concurrent use, so that modules resolved in parallel can record into the same metrics.</p>
+ */
+final class ReportMetrics
+{
+    enum Phase
+    {
+        /** Building or collecting a module's dependency graph, or reading a partial result. */
+        RESOLVE("resolve"),
+        /** Picking a module's direct dependencies out of its dependency graph. */
+        DIRECT_DEPENDENCIES("directDependencies"),
+        /** Interning a module's dependency graph. */
+        INTERN("intern"),
+        /** Reading and writing the module and subtree caches. */
+        CACHE("cache"),
+        /** Merging the module graphs of an aggregate report. */
+        MERGE("merge"),
+        /** Classifying the artifacts and partitioning the direct dependencies. */
+        CLASSIFY("classify"),
+        /** Finding the aligned direct dependencies with unaligned transitive dependencies. */
+        SUMMARY("summary"),
+        /** Listing the paths to the unaligned transitive dependencies. */
+        DETAIL("detail"),
+        /** Indexing the unaligned transitive dependencies by the direct dependencies reaching them. */
+        OFFENDERS("offenders"),
+        /** Taking the snapshot of the report, and reading and saving the baseline. */
+        BASELINE("baseline"),
+        /** Writing the report, or the partial result. */
+        WRITE("write");
+
+        private final String key;
+
+        Phase(final String key)
+        {
+            this.key = key;
+        }
+    }
+
+    enum Counter
+    {
+        /** The reactor modules whose dependency graphs were built or read from the cache. */
+        MODULES("modules"),
+        /** The dependency nodes visited whilst interning dependency graphs. */
+        NODES_VISITED("nodesVisited"),
+        /** The distinct artifacts in the graph reported upon. */
+        DISTINCT_ARTIFACTS("distinctArtifacts"),
+        /** The versions matched against the alignment pattern. */
+        PATTERN_EVALUATIONS("patternEvaluations"),
+        /** The paths listed in the detail sections. */
+        PATHS_EMITTED("pathsEmitted"),
+        /** The distinct nodes making up the paths listed in the detail sections, each shared node counted once. */
+        PATH_NODES_EMITTED("pathNodesEmitted"),
+        /** The bytes of report written to the output file, or of the lines of report logged. */
+        BYTES_WRITTEN("bytesWritten");
+
+        private final String key;
+
+        Counter(final String key)
+        {
+            this.key = key;
+        }
+    }
+
+    private final long started = System.nanoTime();
+    private final LongAdder[] phaseNanos = newAdders(Phase.values().length);
+    private final LongAdder[] phaseCounts = newAdders(Phase.values().length);
+    private final LongAdder[] counters = newAdders(Counter.values().length);
+    private final List<ModuleTiming> modules = new ArrayList<>();
+
+    /**
+     * Records a phase as having run from the given time until now.
+     *
+     * @param phase the phase
+     * @param startNanos the {@link System#nanoTime()} at which the phase started
+     * @return the duration of the phase, in nanoseconds
+     */
+    long record(final Phase phase, final long startNanos)
+    {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseNanos[phase.ordinal()].add(elapsed);
+        phaseCounts[phase.ordinal()].increment();
+        return elapsed;
+    }
+
+    void add(final Counter counter, final long delta)
+    {
+        counters[counter.ordinal()].add(delta);
+    }
+
+    /**
+     * Records the time taken to obtain a module's dependency graph.
+     *
+     * @param module the module
+     * @param nanos the time taken, in nanoseconds
+     * @param cached whether the graph was read from the cache
+     */
+    void recordModule(final String module, final long nanos, final boolean cached)
+    {
+        add(Counter.MODULES, 1);
+        synchronized (modules)
+        {
+            modules.add(new ModuleTiming(module, nanos, cached));
+        }
+    }
+
+    /**
+     * @param out the stream to count the bytes written to
+     * @return a stream counting the bytes written through it, as they reach the stream: compressed, if the report is
+     */
+    OutputStream countingBytes(final OutputStream out)
+    {
+        return new FilterOutputStream(out)
+        {
+            @Override
+            public void write(final int b) throws IOException
+            {
+                out.write(b);
+                add(Counter.BYTES_WRITTEN, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException
+            {
+                out.write(b, off, len);
+                add(Counter.BYTES_WRITTEN, len);
+            }
+        };
+    }
+
+    /**
+     * @param sink the sink to count the bytes logged through, there being no stream to count them at
+     * @return a sink counting the bytes of the lines, encoded as UTF-8, written through it
+     */
+    ReportSink countingBytes(final ReportSink sink)
+    {
+        int separatorLength = System.lineSeparator().length();
+        return new ReportSink()
+        {
+            @Override
+            public void println(final String line) throws IOException
+            {
+                sink.println(line);
+                add(Counter.BYTES_WRITTEN, line.getBytes(StandardCharsets.UTF_8).length + separatorLength);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                sink.close();
+            }
+        };
+    }
+
+    /**
+     * Names the metrics file of a module reporting to the given output file.  Modules sharing an output file have
+     * metrics files of their own, so that neither a serial build nor a parallel one overwrites the metrics of one
+     * module with another's, even where modules of different groups share an artifact id.
+     *
+     * @param outputFile the report's output file
+     * @param groupId the group id of the module reported upon
+     * @param artifactId the artifact id of the module reported upon
+     * @return the file beside the output file, <code>report.txt</code> giving
+     * <code>report-org.example_module-metrics.json</code>
+     */
+    static File fileBeside(final File outputFile, final String groupId, final String artifactId)
+    {
+        String name = outputFile.getName();
+        int extension = name.lastIndexOf('.');
+        return new File(outputFile.getAbsoluteFile().getParentFile(),
+                        String.format("%s-%s_%s-metrics.json", extension > 0 ? name.substring(0, extension) : name,
+                                      groupId, artifactId));
+    }
+
+    /**
+     * Writes the metrics as a JSON object.
+     *
+     * @param file the file to write to
+     * @param project the project reported upon
+     * @param goal the goal that produced the report
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(final File file, final String project, final String goal) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        try (Writer out = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8)))
+        {
+            out.write("{\n");
+            out.write(String.format("  \"project\": %s,%n", Json.quote(project)));
+            out.write(String.format("  \"goal\": %s,%n", Json.quote(goal)));
+            out.write(String.format("  \"totalNanos\": %d,%n", System.nanoTime() - started));
+
+            out.write("  \"phases\": {");
+            Phase[] phases = Phase.values();
+            for (int i = 0; i < phases.length; i++)
+            {
+                out.write(String.format("%s%n    %s: {\"count\": %d, \"nanos\": %d}",
+                                        i == 0 ? "" : ",",
+                                        Json.quote(phases[i].key),
+                                        phaseCounts[i].sum(),
+                                        phaseNanos[i].sum()));
+            }
+            out.write(String.format("%n  },%n"));
+
+            out.write("  \"counters\": {");
+            Counter[] counterValues = Counter.values();
+            for (int i = 0; i < counterValues.length; i++)
+            {
+                out.write(String.format("%s%n    %s: %d",
+                                        i == 0 ? "" : ",",
+                                        Json.quote(counterValues[i].key),
+                                        counters[i].sum()));
+            }
+            out.write(String.format("%n  },%n"));
+
+            out.write("  \"modules\": [");
+            List<ModuleTiming> sorted;
+            synchronized (modules)
+            {
+                sorted = new ArrayList<>(modules);
+            }
+            sorted.sort(Comparator.comparing(timing -> timing.module));
+            for (int i = 0; i < sorted.size(); i++)
+            {
+                ModuleTiming timing = sorted.get(i);
+                out.write(String.format("%s%n    {\"module\": %s, \"nanos\": %d, \"cached\": %b}",
+                                        i == 0 ? "" : ",",
+                                        Json.quote(timing.module),
+                                        timing.nanos,
+                                        timing.cached));
+            }
+            out.write(String.format("%s]%n}%n", sorted.isEmpty() ? "" : String.format("%n  ")));
+        }
+    }
+
+    private static LongAdder[] newAdders(final int count)
+    {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++)
+        {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static final class ModuleTiming
+    {
+        private final String module;
+        private final long nanos;
+        private final boolean cached;
+
+        private ModuleTiming(final String module, final long nanos, final boolean cached)
+        {
+            this.module = module;
+            this.nanos = nanos;
+            this.cached = cached;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Writes out the reports a parallel build collected in {@link ReactorReportSink}s once the session ends, whether the
+ * build succeeded or not.  Maven loads it only from a plugin declared with
+ * <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>, so it is public, as Maven instantiates it.
+ */
+public final class ReportSessionParticipant extends AbstractMavenLifecycleParticipant
+{
+    @Override
+    public void afterProjectsRead(final MavenSession session)
+    {
+        ReactorReportSink.collectFor(session.getRepositorySession().getData());
+    }
+
+    @Override
+    public void afterSessionEnd(final MavenSession session) throws MavenExecutionException
+    {
+        @SuppressWarnings("unchecked")
+        Map<String, Closeable> sinks = (Map<String, Closeable>) session.getRepositorySession().getData()
+                                                                       .get(ReactorReportSink.SINKS);
+        if (sinks == null)
+        {
+            return;
+        }
+        IOException failure = null;
+        for (Map.Entry<String, Closeable> sink : sinks.entrySet())
+        {
+            try
+            {
+                sink.getValue().close();
+            }
+            catch (IOException e)
+            {
+                // the other reports are still written
+                if (failure == null)
+                {
+                    failure = new IOException(String.format("Cannot write alignment report to %s: %s",
+                                                            sink.getKey(), e.getMessage()), e);
+                }
+                else
+                {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        sinks.clear();
+        if (failure != null)
+        {
+            throw new MavenExecutionException(failure.getMessage(), failure);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AggregateAlignmentReporterMojoTest
+{
+    private static final String[] MODULES = {"parent", "a", "b", "c", "d"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reportsTheSameWhetherTheModulesAreResolvedInParallelOrNot() throws Exception
+    {
+        File serial = new File(folder.getRoot(), "serial.txt");
+        execute(modules(), 1, serial);
+
+        // each module finishes only once the module after it has, so they finish in reverse order
+        MojoFixture fixture = modules();
+        CountDownLatch[] finished = new CountDownLatch[MODULES.length];
+        for (int i = 0; i < MODULES.length; i++)
+        {
+            finished[i] = new CountDownLatch(1);
+        }
+        for (int i = 0; i < MODULES.length; i++)
+        {
+            int position = i;
+            fixture.whenResolving(MODULES[i], () -> {
+                if (position + 1 < MODULES.length)
+                {
+                    assertTrue(finished[position + 1].await(10, TimeUnit.SECONDS));
+                }
+                finished[position].countDown();
+            });
+        }
+        File parallel = new File(folder.getRoot(), "parallel.txt");
+        execute(fixture, MODULES.length, parallel);
+
+        assertEquals(read(serial), read(parallel));
+    }
+
+    @Test
+    public void cancelsTheModulesInFlightWhenOneFails() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        MojoFixture fixture = modules()
+                .whenResolving("b", () -> {
+                    // fail only once c is under way
+                    assertTrue(started.await(10, TimeUnit.SECONDS));
+                    throw new IllegalStateException("b cannot be resolved");
+                })
+                .whenResolving("c", () -> {
+                    started.countDown();
+                    try
+                    {
+                        new CountDownLatch(1).await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                });
+
+        File outputFile = new File(folder.getRoot(), "report.txt");
+        try
+        {
+            execute(fixture, 3, outputFile);
+            fail("The failure to resolve b was not reported");
+        }
+        catch (MojoExecutionException e)
+        {
+            assertEquals("Cannot build project dependency graph", e.getMessage());
+            assertEquals("b cannot be resolved", e.getCause().getMessage());
+        }
+        assertTrue("c was left running", interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * @return modules sharing direct dependencies, some with different transitive dependencies beneath them, so that
+     * the report depends upon the order in which the modules' graphs are merged
+     */
+    private static MojoFixture modules()
+    {
+        return new MojoFixture(MODULES)
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1", node("org.example:y:1.0")),
+                              node("org.example:u:1.0"))
+                .dependencies("b",
+                              node("org.example:w:1.0.redhat-1", node("org.example:v:1.0.redhat-1")))
+                .dependencies("c",
+                              node("org.example:x:1.0.redhat-1", node("org.example:z:1.0")),
+                              node("org.example:w:1.0.redhat-1", node("org.example:t:1.0")))
+                .dependencies("d",
+                              node("org.example:u:1.0"),
+                              node("org.example:s:1.0.redhat-1", node("org.example:y:1.0")));
+    }
+
+    private static void execute(final MojoFixture fixture, final int resolutionThreads, final File outputFile)
+            throws Exception
+    {
+        AggregateAlignmentReporterMojo mojo = fixture.configure(new AggregateAlignmentReporterMojo(), "parent");
+        MojoFixture.set(mojo, "resolutionThreads", resolutionThreads);
+        MojoFixture.set(mojo, "showContributors", true);
+        MojoFixture.set(mojo, "outputFile", outputFile);
+        mojo.execute();
+    }
+
+    private static String read(final File file) throws Exception
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,321 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorRequest;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
+import org.eclipse.aether.util.graph.selector.ScopeDependencySelector;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+import org.eclipse.aether.util.graph.transformer.JavaScopeDeriver;
+import org.eclipse.aether.util.graph.transformer.JavaScopeSelector;
+import org.eclipse.aether.util.graph.transformer.NearestVersionSelector;
+import org.eclipse.aether.util.graph.transformer.SimpleOptionalitySelector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlignmentReporterMojoTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> debug = new ArrayList<>();
+
+    @Test
+    public void gateOnlyStopsAtTheFirstUnalignedDirectDependency() throws Exception
+    {
+        MojoFixture fixture = new MojoFixture("a")
+                .dependencies("a",
+                              node("org.example:u:1.0"),
+                              node("org.example:x:1.0.redhat-1", node("org.example:y:1.0")))
+                .localRepository(folder.getRoot());
+
+        assertGateFailure(gate(fixture, false), "There is at least one unaligned direct dependency");
+        // no subtree was walked
+        assertTrue(debug.toString(), debug.contains("+ Subtree cache: 0 hits, 0 misses"));
+    }
+
+    @Test
+    public void gateOnlyStopsAtTheFirstIncompletelyAlignedDirectDependency() throws Exception
+    {
+        assertGateFailure(gate(incompletelyAligned(), false),
+                          "There is at least one aligned direct dependency with at least one unaligned transitive "
+                          + "dependency");
+        // only the subtree of x was walked
+        assertTrue(debug.toString(), debug.contains("+ Subtree cache: 0 hits, 1 misses"));
+    }
+
+    @Test
+    public void gateCountsWalksEverySubtree() throws Exception
+    {
+        assertGateFailure(gate(incompletelyAligned(), true),
+                          "There is 1 aligned direct dependency with at least one unaligned transitive dependency");
+        // x, and w with both of its transitive dependencies
+        assertTrue(debug.toString(), debug.contains("+ Subtree cache: 0 hits, 4 misses"));
+    }
+
+    @Test
+    public void gateOnlyPassesWhenEveryDependencyIsAligned() throws Exception
+    {
+        MojoFixture fixture = new MojoFixture("a")
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1", node("org.example:y:1.0.redhat-1")),
+                              node("org.example:w:1.0.redhat-1"))
+                .localRepository(folder.getRoot());
+
+        gate(fixture, false).execute();
+        assertTrue(debug.toString(), debug.contains("+ Subtree cache: 0 hits, 3 misses"));
+    }
+
+    @Test
+    public void collectOnlyCollectsTheGraphThatResolutionWouldBuild() throws Exception
+    {
+        File resolved = new File(folder.getRoot(), "resolved.txt");
+        MojoFixture resolving = filtered();
+        report(resolving, false, resolved);
+        assertEquals(1, resolving.getResolvedFilters().size());
+        assertTrue(resolving.getCollectorRequests().isEmpty());
+
+        File collected = new File(folder.getRoot(), "collected.txt");
+        MojoFixture collecting = filtered();
+        DefaultRepositorySystemSession repositorySession =
+                (DefaultRepositorySystemSession) collecting.getSession().getRepositorySession();
+        repositorySession.setDependencySelector(new ScopeDependencySelector(Artifact.SCOPE_TEST));
+        repositorySession.setDependencyGraphTransformer(new ConflictResolver(
+                new NearestVersionSelector(), new JavaScopeSelector(), new SimpleOptionalitySelector(),
+                new JavaScopeDeriver()));
+        report(collecting, true, collected);
+        assertTrue(collecting.getResolvedFilters().isEmpty());
+        assertEquals(1, collecting.getCollectorRequests().size());
+
+        DependencyCollectorRequest request = collecting.getCollectorRequests().get(0);
+        assertSame(repositorySession.getDependencySelector(), request.getDependencySelector());
+        assertSame(repositorySession.getDependencyGraphTransformer(), request.getDependencyGraphTransformer());
+        assertEquals(false, request.getConfigProperties().get(ConflictResolver.CONFIG_PROP_VERBOSE));
+        assertEquals(false, request.getConfigProperties().get(DependencyManagerUtils.CONFIG_PROP_VERBOSE));
+
+        // the same scope filter and excludes
+        ArtifactFilter resolvingFilter = resolving.getResolvedFilters().get(0);
+        for (String coordinate : Arrays.asList("org.example:x:1.0", "org.example:x:1.0:runtime",
+                                               "org.example:x:1.0:provided", "org.example:x:1.0:test",
+                                               "org.example:excluded:1.0"))
+        {
+            Artifact artifact = node(coordinate).getArtifact();
+            assertEquals(coordinate, resolvingFilter.include(artifact), request.getFilter().include(artifact));
+        }
+
+        assertEquals(read(resolved), read(collected));
+    }
+
+    @Test
+    public void reportsEachOfSeveralScopesAsOnItsOwn() throws Exception
+    {
+        File multiple = new File(folder.getRoot(), "scopes.txt");
+        AlignmentReporterMojo mojo = scoped().configure(new AlignmentReporterMojo(), "a");
+        MojoFixture.set(mojo, "scopes", "compile,runtime,test");
+        MojoFixture.set(mojo, "outputFile", multiple);
+        mojo.execute();
+
+        List<String> lines = Files.readAllLines(multiple.toPath(), StandardCharsets.UTF_8);
+        List<String> titles = Arrays.asList("Scope - compile", "Scope - runtime", "Scope - test");
+        assertEquals(titles, lines.stream().filter(line -> line.startsWith("Scope - ")).collect(Collectors.toList()));
+        for (int i = 0; i < titles.size(); i++)
+        {
+            // the section runs from beneath its title to the next
+            int start = lines.indexOf(titles.get(i)) + 3;
+            int end = i + 1 < titles.size() ? lines.indexOf(titles.get(i + 1)) : lines.size();
+
+            File single = new File(folder.getRoot(), "scope.txt");
+            AlignmentReporterMojo singleScope = scoped().configure(new AlignmentReporterMojo(), "a");
+            MojoFixture.set(singleScope, "scope", titles.get(i).substring("Scope - ".length()));
+            MojoFixture.set(singleScope, "outputFile", single);
+            singleScope.execute();
+
+            // beneath the project's title
+            List<String> expected = Files.readAllLines(single.toPath(), StandardCharsets.UTF_8);
+            assertEquals(titles.get(i), expected.subList(4, expected.size()), lines.subList(start, end));
+        }
+    }
+
+    @Test
+    public void countsADependencyOnceWhateverTheScopesItIsReportedIn() throws Exception
+    {
+        AlignmentReporterMojo mojo = scoped().configure(new AlignmentReporterMojo(), "a");
+        MojoFixture.set(mojo, "scopes", "compile,runtime,test");
+        MojoFixture.set(mojo, "outputFile", new File(folder.getRoot(), "scopes.txt"));
+        MojoFixture.set(mojo, "failOnUnalignedDependencies", true);
+
+        // u and v are unaligned, and x, w and t incompletely aligned, in up to all three scopes
+        assertGateFailure(mojo, "There are 2 unaligned direct dependencies and there are 3 aligned direct "
+                                + "dependencies with at least one unaligned transitive dependency");
+    }
+
+    @Test
+    public void remembersTheSubtreeOfEachScopeApart() throws Exception
+    {
+        // x is aligned beneath in compile scope, but not in runtime scope, where y is reached
+        MojoFixture fixture = new MojoFixture("d")
+                .dependencies("d", node("org.example:x:1.0.redhat-1", node("org.example:y:1.0:runtime")))
+                .localRepository(folder.getRoot());
+
+        // the first build fills the cache, the second reads it
+        List<String> reports = new ArrayList<>();
+        for (int build = 0; build < 2; build++)
+        {
+            File outputFile = new File(folder.getRoot(), "scopes-" + build + ".txt");
+            AlignmentReporterMojo mojo = captureDebug(fixture.configure(new AlignmentReporterMojo(), "d"));
+            MojoFixture.set(mojo, "scopes", "compile,runtime");
+            MojoFixture.set(mojo, "useSubtreeCache", true);
+            MojoFixture.set(mojo, "failOnUnalignedDependencies", true);
+            MojoFixture.set(mojo, "outputFile", outputFile);
+            assertGateFailure(mojo, "There is 1 aligned direct dependency with at least one unaligned transitive "
+                                    + "dependency");
+            reports.add(read(outputFile));
+        }
+
+        assertTrue(reports.get(0), reports.get(0).contains("org.example:y"));
+        assertEquals(reports.get(0), reports.get(1));
+        // x of each scope was remembered apart, and found
+        List<String> lookups = debug.stream().filter(line -> line.startsWith("+ Subtree cache")).collect(
+                Collectors.toList());
+        assertEquals(2, lookups.size());
+        assertTrue(lookups.get(0), lookups.get(0).startsWith("+ Subtree cache: 0 hits"));
+        assertTrue(lookups.get(1), lookups.get(1).endsWith(" 0 misses"));
+    }
+
+    /**
+     * @return a module with unaligned and incompletely aligned dependencies of each scope
+     */
+    private static MojoFixture scoped()
+    {
+        return new MojoFixture("a")
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1", node("org.example:y:1.0")),
+                              node("org.example:u:1.0"),
+                              node("org.example:w:1.0.redhat-1:runtime", node("org.example:r:1.0:runtime")),
+                              node("org.example:v:1.0:provided"),
+                              node("org.example:t:1.0.redhat-1:test", node("org.example:q:1.0:test")));
+    }
+
+    /**
+     * @return a module with dependencies of several scopes, one of them excluded
+     */
+    private MojoFixture filtered()
+    {
+        return new MojoFixture("a")
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1",
+                                   node("org.example:y:1.0"),
+                                   node("org.example:excluded:1.0")),
+                              node("org.example:w:1.0:runtime"),
+                              node("org.example:v:1.0:provided"),
+                              node("org.example:t:1.0:test"));
+    }
+
+    private void report(final MojoFixture fixture, final boolean collectOnly, final File outputFile)
+            throws Exception
+    {
+        AlignmentReporterMojo mojo = fixture.configure(new AlignmentReporterMojo(), "a");
+        MojoFixture.set(mojo, "scope", Artifact.SCOPE_RUNTIME);
+        MojoFixture.set(mojo, "excludes", "org.example:excluded");
+        MojoFixture.set(mojo, "collectOnly", collectOnly);
+        MojoFixture.set(mojo, "outputFile", outputFile);
+        mojo.execute();
+    }
+
+    private MojoFixture incompletelyAligned() throws Exception
+    {
+        return new MojoFixture("a")
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1", node("org.example:y:1.0")),
+                              node("org.example:w:1.0.redhat-1",
+                                   node("org.example:v:1.0.redhat-1", node("org.example:t:1.0.redhat-1"))))
+                .localRepository(folder.getRoot());
+    }
+
+    /**
+     * @return the report mojo, only gating, and counting the subtrees walked as lookups of the subtree cache
+     */
+    private AlignmentReporterMojo gate(final MojoFixture fixture, final boolean gateCounts)
+    {
+        AlignmentReporterMojo mojo = fixture.configure(new AlignmentReporterMojo(), "a");
+        MojoFixture.set(mojo, "gateOnly", true);
+        MojoFixture.set(mojo, "gateCounts", gateCounts);
+        MojoFixture.set(mojo, "useSubtreeCache", true);
+        return captureDebug(mojo);
+    }
+
+    /**
+     * @return the mojo, its debug output captured in {@link #debug}
+     */
+    private AlignmentReporterMojo captureDebug(final AlignmentReporterMojo mojo)
+    {
+        mojo.setLog(new SystemStreamLog()
+        {
+            @Override
+            public boolean isDebugEnabled()
+            {
+                return true;
+            }
+
+            @Override
+            public void debug(final CharSequence content)
+            {
+                debug.add(content.toString());
+            }
+        });
+        return mojo;
+    }
+
+    private static String read(final File file) throws Exception
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void assertGateFailure(final AlignmentReporterMojo mojo, final String message) throws Exception
+    {
+        try
+        {
+            mojo.execute();
+            fail("The build passed");
+        }
+        catch (MojoFailureException e)
+        {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MergeAlignmentReportsMojoTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MojoFixture fixture;
+
+    @Before
+    public void setUp()
+    {
+        fixture = new MojoFixture("parent", "a", "b")
+                .dependencies("a",
+                              node("org.example:x:1.0.redhat-1",
+                                   node("org.example:y:1.0"),
+                                   node("org.example:r:1.0:runtime")),
+                              node("org.example:z:1.0:runtime"))
+                .dependencies("b",
+                              node("org.example:x:1.0.redhat-1",
+                                   node("org.example:y:1.0"),
+                                   node("org.example:r:1.0:runtime")),
+                              node("org.example:w:2.0.redhat-1"));
+    }
+
+    @Test
+    public void mergesPartialsIntoTheAggregateReport() throws Exception
+    {
+        File partial = new File(folder.getRoot(), "partial.bin");
+        AggregateAlignmentReporterMojo shard = aggregate("compile");
+        MojoFixture.set(shard, "partialOutputFile", partial);
+        shard.execute();
+
+        File merged = new File(folder.getRoot(), "merged.txt");
+        MergeAlignmentReportsMojo merge = merge(partial, merged);
+        MojoFixture.set(merge, "scope", "compile");
+        merge.execute();
+
+        File aggregated = new File(folder.getRoot(), "aggregate.txt");
+        AggregateAlignmentReporterMojo aggregate = aggregate("compile");
+        MojoFixture.set(aggregate, "outputFile", aggregated);
+        aggregate.execute();
+
+        assertEquals(read(aggregated), read(merged));
+    }
+
+    @Test
+    public void refusesSettingsOtherThanThePartials() throws Exception
+    {
+        File partial = new File(folder.getRoot(), "partial.bin");
+        AggregateAlignmentReporterMojo shard = aggregate("compile");
+        MojoFixture.set(shard, "partialOutputFile", partial);
+        shard.execute();
+
+        File merged = new File(folder.getRoot(), "merged.txt");
+        MergeAlignmentReportsMojo merge = merge(partial, merged);
+        MojoFixture.set(merge, "scope", "runtime");
+        MojoFixture.set(merge, "collectOnly", true);
+        try
+        {
+            merge.execute();
+            fail("The merge was given another scope than the partial's");
+        }
+        catch (MojoExecutionException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("but the merge was given scope=runtime, "
+                                                               + "collectOnly=true"));
+        }
+        assertFalse(merged.exists());
+    }
+
+    private AggregateAlignmentReporterMojo aggregate(final String scope)
+    {
+        AggregateAlignmentReporterMojo mojo = fixture.configure(new AggregateAlignmentReporterMojo(), "parent");
+        MojoFixture.set(mojo, "reactorProjects", Arrays.asList(fixture.getProject("a"), fixture.getProject("b")));
+        MojoFixture.set(mojo, "scope", scope);
+        return mojo;
+    }
+
+    private MergeAlignmentReportsMojo merge(final File partial, final File outputFile)
+    {
+        MergeAlignmentReportsMojo mojo = fixture.configure(new MergeAlignmentReportsMojo(), "parent");
+        MojoFixture.set(mojo, "partialFiles", Arrays.asList(partial));
+        MojoFixture.set(mojo, "outputFile", outputFile);
+        return mojo;
+    }
+
+    private static String read(final File file) throws Exception
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.github.k_wall.core.TestGraphs.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.k_wall.core.AlignmentMatcher;
+import com.github.k_wall.core.AlignmentResult;
+import com.github.k_wall.core.AlignmentVerdictCache;
+import com.github.k_wall.core.ArtifactGraph;
+import com.github.k_wall.core.DetailMode;
+import com.github.k_wall.core.TestGraphs;
+
+public class ModuleResultCacheTest
+{
+    private static final String EXCLUDES = "org.excluded:*";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadsTheStoredGraph()
+    {
+        TestGraphs.forEachRandom(10, 5, 4, 3, (seed, directDependencies) -> {
+            MavenProject project = project("module-" + seed, dependency("org.example:lib:1.0"));
+            ArtifactGraph graph = ArtifactGraph.of(directDependencies, node -> true);
+            cache(Collections.singletonList(project), null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN)
+                    .store(project, graph, TestGraphs.verdicts());
+
+            // verdicts of no pattern at all, so that every verdict reported is one the cache seeded
+            AlignmentVerdictCache seeded = new AlignmentVerdictCache(AlignmentMatcher.compile(Collections.emptyList()));
+            ArtifactGraph loaded = cache(Collections.singletonList(project), null, EXCLUDES,
+                                         TestGraphs.ALIGNMENT_PATTERN).load(project, seeded);
+            for (DetailMode mode : DetailMode.values())
+            {
+                assertEquals(mode.toString(),
+                             TestGraphs.render(TestGraphs.analyse(graph), mode),
+                             TestGraphs.render(new AlignmentResult(loaded, seeded, null, null), mode));
+            }
+        });
+    }
+
+    @Test
+    public void loadsAStoredEmptyGraph() throws IOException
+    {
+        MavenProject project = project("module");
+        store(project, ArtifactGraph.of(Collections.emptyList(), node -> true));
+
+        ArtifactGraph loaded = load(project);
+        assertEquals(0, loaded.size());
+        assertEquals(0, loaded.getDirectDependencies().length);
+    }
+
+    @Test
+    public void missesWhenADependencyChanges() throws IOException
+    {
+        MavenProject project = storedProject();
+        project.getDependencies().get(0).setVersion("2.0");
+        assertNull(load(project));
+    }
+
+    @Test
+    public void missesWhenTheScopeOfADependencyChanges() throws IOException
+    {
+        MavenProject project = storedProject();
+        project.getDependencies().get(0).setScope(Artifact.SCOPE_TEST);
+        assertNull(load(project));
+    }
+
+    @Test
+    public void missesWhenADependencyIsManaged() throws IOException
+    {
+        MavenProject project = storedProject();
+        DependencyManagement dependencyManagement = new DependencyManagement();
+        dependencyManagement.addDependency(dependency("org.other:util:2.0"));
+        project.getModel().setDependencyManagement(dependencyManagement);
+        assertNull(load(project));
+    }
+
+    @Test
+    public void missesWhenTheDependenciesOfAReactorDependencyChange() throws IOException
+    {
+        MavenProject upstream = project("upstream", dependency("org.other:util:1.0"));
+        MavenProject downstream = project("downstream", dependency("org.example:upstream:1.0"));
+        List<MavenProject> reactor = Arrays.asList(upstream, downstream);
+        cache(reactor, null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN).store(downstream, graph(),
+                                                                           TestGraphs.verdicts());
+        assertNotNull(cache(reactor, null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN)
+                              .load(downstream, TestGraphs.verdicts()));
+
+        // a new build, with a new cache, as the fingerprints are worked out once a build
+        upstream.getDependencies().get(0).setVersion("2.0");
+        assertNull(cache(reactor, null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN)
+                           .load(downstream, TestGraphs.verdicts()));
+    }
+
+    @Test
+    public void missesWhenTheResolutionScopeChanges() throws IOException
+    {
+        MavenProject project = storedProject();
+        assertNull(cache(Collections.singletonList(project), Artifact.SCOPE_COMPILE, EXCLUDES,
+                         TestGraphs.ALIGNMENT_PATTERN).load(project, TestGraphs.verdicts()));
+    }
+
+    @Test
+    public void missesWhenTheExcludesChange() throws IOException
+    {
+        MavenProject project = storedProject();
+        assertNull(cache(Collections.singletonList(project), null, "org.other:*", TestGraphs.ALIGNMENT_PATTERN)
+                           .load(project, TestGraphs.verdicts()));
+    }
+
+    @Test
+    public void missesWhenTheAlignmentPatternChanges() throws IOException
+    {
+        MavenProject project = storedProject();
+        assertNull(cache(Collections.singletonList(project), null, EXCLUDES, "redhat-\\d+")
+                           .load(project, TestGraphs.verdicts()));
+    }
+
+    @Test
+    public void neverStoresAGraphWithSnapshots() throws IOException
+    {
+        MavenProject project = project("module", dependency("org.example:lib:1.0"));
+        store(project, ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.other:util:1.0-SNAPSHOT"))), node -> true));
+        assertNull(load(project));
+    }
+
+    @Test
+    public void neverStoresAGraphWithATimestampedSnapshot() throws IOException
+    {
+        MavenProject project = project("module", dependency("org.example:lib:1.0"));
+        store(project, ArtifactGraph.of(Collections.singletonList(
+                node("org.example:lib:1.0", node("org.other:util:1.0-20200101.123456-1"))), node -> true));
+        assertNull(load(project));
+    }
+
+    @Test
+    public void neverStoresAGraphWithAVersionFromARange() throws IOException
+    {
+        MavenProject project = project("module", dependency("org.example:lib:1.0"));
+        DefaultDependencyNode ranged = new DefaultDependencyNode(null, node("org.other:util:1.5").getArtifact(), null,
+                                                                 null, "[1.0,2.0)");
+        ranged.setChildren(Collections.emptyList());
+        store(project, ArtifactGraph.of(Collections.singletonList(node("org.example:lib:1.0", ranged)),
+                                        node -> true));
+        assertNull(load(project));
+    }
+
+    @Test
+    public void neverStoresTheGraphOfAModuleDeclaringARange() throws IOException
+    {
+        MavenProject project = project("module", dependency("org.example:lib:[1.0,2.0)"));
+        store(project, graph());
+        assertNull(load(project));
+    }
+
+    private MavenProject storedProject() throws IOException
+    {
+        MavenProject project = project("module", dependency("org.example:lib:1.0"));
+        store(project, graph());
+        assertNotNull(load(project));
+        return project;
+    }
+
+    private static ArtifactGraph graph()
+    {
+        return ArtifactGraph.of(Collections.singletonList(node("org.example:lib:1.0", node("org.other:util:1.0"))),
+                                node -> true);
+    }
+
+    private static void store(final MavenProject project, final ArtifactGraph graph) throws IOException
+    {
+        cache(Collections.singletonList(project), null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN)
+                .store(project, graph, TestGraphs.verdicts());
+    }
+
+    private static ArtifactGraph load(final MavenProject project) throws IOException
+    {
+        return cache(Collections.singletonList(project), null, EXCLUDES, TestGraphs.ALIGNMENT_PATTERN)
+                .load(project, TestGraphs.verdicts());
+    }
+
+    private static ModuleResultCache cache(final List<MavenProject> reactor, final String scope,
+                                           final String excludes, final String alignmentPattern)
+    {
+        return new ModuleResultCache(reactor, scope, excludes,
+                                     AlignmentMatcher.compileSources(Collections.singletonList(alignmentPattern)));
+    }
+
+    private MavenProject project(final String artifactId, final Dependency... dependencies) throws IOException
+    {
+        MavenProject project = new MavenProject();
+        project.setGroupId("org.example");
+        project.setArtifactId(artifactId);
+        project.setVersion("1.0");
+        project.getBuild().setDirectory(folder.newFolder().getPath());
+        Arrays.stream(dependencies).forEach(project.getModel()::addDependency);
+        return project;
+    }
+
+    private static Dependency dependency(final String coordinate)
+    {
+        String[] fields = coordinate.split(":");
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(fields[0]);
+        dependency.setArtifactId(fields[1]);
+        dependency.setVersion(fields[2]);
+        dependency.setScope(Artifact.SCOPE_COMPILE);
+        return dependency;
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.project.artifact.ProjectArtifact;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorBuilderException;
+import org.apache.maven.shared.dependency.graph.DependencyCollectorRequest;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.internal.impl.SimpleLocalRepositoryManagerFactory;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.NoLocalRepositoryManagerException;
+
+import com.github.k_wall.core.DetailMode;
+import com.github.k_wall.core.OutputFormat;
+import com.github.k_wall.core.TestGraphs;
+
+/**
+ * Configures mojos as Maven would, resolving the dependencies of each project from graphs given up front rather than
+ * from a repository.  The stub resolves as Maven does in the respects the mojos rely upon: the artifact filter prunes
+ * the artifacts it excludes, with their subtrees, and the graph of a proxy project holds the project itself, with its
+ * dependencies other than those of test scope beneath it.
+ */
+final class MojoFixture implements DependencyGraphBuilder, DependencyCollectorBuilder
+{
+    private final MavenSession session;
+    private final Map<String, List<DependencyNode>> dependencies = new ConcurrentHashMap<>();
+    private final Map<String, Hook> hooks = new ConcurrentHashMap<>();
+    private final List<ArtifactFilter> resolvedFilters = Collections.synchronizedList(new ArrayList<>());
+    private final List<DependencyCollectorRequest> collectorRequests = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Runs as a project's dependencies are resolved, before its graph is returned.
+     */
+    interface Hook
+    {
+        void run() throws Exception;
+    }
+
+    /**
+     * @param artifactIds the artifact ids of the projects of the reactor, in order, all of group
+     * <code>org.example</code> and version <code>1.0</code>
+     */
+    MojoFixture(final String... artifactIds)
+    {
+        List<MavenProject> projects = new ArrayList<>();
+        for (String artifactId : artifactIds)
+        {
+            projects.add(project(artifactId));
+        }
+        @SuppressWarnings("deprecation")
+        MavenSession mavenSession = new MavenSession(null, new DefaultRepositorySystemSession(),
+                                                     new DefaultMavenExecutionRequest(),
+                                                     new DefaultMavenExecutionResult());
+        session = mavenSession;
+        session.setProjects(projects);
+        session.setCurrentProject(projects.get(0));
+    }
+
+    /**
+     * @param directory the local repository of the session, in which the subtree cache is kept
+     * @return this fixture
+     */
+    MojoFixture localRepository(final File directory) throws NoLocalRepositoryManagerException
+    {
+        DefaultRepositorySystemSession repositorySession =
+                (DefaultRepositorySystemSession) session.getRepositorySession();
+        repositorySession.setLocalRepositoryManager(new SimpleLocalRepositoryManagerFactory().newInstance(
+                repositorySession, new LocalRepository(directory)));
+        return this;
+    }
+
+    MavenSession getSession()
+    {
+        return session;
+    }
+
+    /**
+     * @return the project of the reactor with the given artifact id
+     */
+    MavenProject getProject(final String artifactId)
+    {
+        return session.getProjects()
+                      .stream()
+                      .filter(project -> project.getArtifactId().equals(artifactId))
+                      .findFirst()
+                      .orElseThrow(() -> new IllegalArgumentException(artifactId));
+    }
+
+    /**
+     * @param artifactId the project
+     * @param directDependencies the project's direct dependencies, as built by {@link TestGraphs#node}
+     * @return this fixture
+     */
+    MojoFixture dependencies(final String artifactId, final DependencyNode... directDependencies)
+    {
+        dependencies.put(artifactId, Arrays.asList(directDependencies));
+        return this;
+    }
+
+    /**
+     * @param artifactId the project
+     * @param hook run whenever the project's dependencies are resolved or collected
+     * @return this fixture
+     */
+    MojoFixture whenResolving(final String artifactId, final Hook hook)
+    {
+        hooks.put(artifactId, hook);
+        return this;
+    }
+
+    /**
+     * @return the artifact filters with which dependencies were resolved, in the order they were
+     */
+    List<ArtifactFilter> getResolvedFilters()
+    {
+        return resolvedFilters;
+    }
+
+    /**
+     * @return the requests with which dependencies were collected, in the order they were
+     */
+    List<DependencyCollectorRequest> getCollectorRequests()
+    {
+        return collectorRequests;
+    }
+
+    /**
+     * Configures a mojo with its defaults, to report upon the project of the given artifact id, with the alignment
+     * pattern of {@link TestGraphs#ALIGNMENT_PATTERN}.
+     */
+    <T extends AbstractAlignmentReporterMojo> T configure(final T mojo, final String artifactId)
+    {
+        // the goals other than report are aggregators
+        MojoDescriptor descriptor = new MojoDescriptor();
+        descriptor.setAggregator(!(mojo instanceof AlignmentReporterMojo));
+
+        set(mojo, "project", getProject(artifactId));
+        set(mojo, "session", session);
+        set(mojo, "mojoExecution", new MojoExecution(descriptor));
+        set(mojo, "reactorProjects", session.getProjects());
+        set(mojo, "dependencyGraphBuilder", this);
+        set(mojo, "dependencyCollectorBuilder", this);
+        set(mojo, "outputFormat", OutputFormat.TEXT);
+        set(mojo, "detailMode", DetailMode.SHORTEST_PATH);
+        set(mojo, "traversalThreads", 1);
+        mojo.setAlignmentPattern(TestGraphs.ALIGNMENT_PATTERN);
+        return mojo;
+    }
+
+    /**
+     * Sets a parameter of a mojo, as Maven would inject it.
+     */
+    static void set(final Object mojo, final String name, final Object value)
+    {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass())
+        {
+            try
+            {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            }
+            catch (NoSuchFieldException e)
+            {
+                // declared further up
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException(String.format("%s has no parameter %s", mojo.getClass(), name));
+    }
+
+    @Override
+    public DependencyNode buildDependencyGraph(final ProjectBuildingRequest buildingRequest,
+                                               final ArtifactFilter filter) throws DependencyGraphBuilderException
+    {
+        if (!buildingRequest.isResolveDependencies())
+        {
+            throw new DependencyGraphBuilderException("Dependencies are to be resolved");
+        }
+        resolvedFilters.add(filter);
+        try
+        {
+            return graph(buildingRequest.getProject(), filter);
+        }
+        catch (DependencyGraphBuilderException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new DependencyGraphBuilderException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public DependencyNode collectDependencyGraph(final DependencyCollectorRequest request)
+            throws DependencyCollectorBuilderException
+    {
+        collectorRequests.add(request);
+        try
+        {
+            return graph(request.getBuildingRequest().getProject(), request.getFilter());
+        }
+        catch (Exception e)
+        {
+            throw new DependencyCollectorBuilderException(e.getMessage(), e);
+        }
+    }
+
+    private DependencyNode graph(final MavenProject project, final ArtifactFilter filter) throws Exception
+    {
+        // a proxy project declares nothing but the project of its artifact
+        String artifactId = project.getArtifact().getArtifactId();
+        List<Dependency> declared = project.getDependencies();
+        boolean proxy = declared.size() == 1 && declared.get(0).getArtifactId().equals(artifactId);
+
+        Hook hook = hooks.get(artifactId);
+        if (hook != null)
+        {
+            hook.run();
+        }
+
+        List<DependencyNode> children = new ArrayList<>();
+        for (DependencyNode dependency : dependencies.getOrDefault(artifactId, Collections.emptyList()))
+        {
+            if (!proxy || !Artifact.SCOPE_TEST.equals(dependency.getArtifact().getScope()))
+            {
+                copy(dependency, filter, children);
+            }
+        }
+
+        DefaultDependencyNode root = new DefaultDependencyNode(project.getArtifact());
+        if (proxy)
+        {
+            DefaultDependencyNode projectNode = new DefaultDependencyNode(project.getArtifact());
+            projectNode.setChildren(children);
+            root.setChildren(new ArrayList<>(Collections.singletonList(projectNode)));
+        }
+        else
+        {
+            root.setChildren(children);
+        }
+        return root;
+    }
+
+    private static void copy(final DependencyNode node, final ArtifactFilter filter, final List<DependencyNode> to)
+    {
+        if (filter != null && !filter.include(node.getArtifact()))
+        {
+            return;
+        }
+        List<DependencyNode> children = new ArrayList<>();
+        for (DependencyNode child : node.getChildren())
+        {
+            copy(child, filter, children);
+        }
+        DefaultDependencyNode copy = new DefaultDependencyNode(node.getArtifact());
+        copy.setChildren(children);
+        to.add(copy);
+    }
+
+    private static MavenProject project(final String artifactId)
+    {
+        MavenProject project = new MavenProject();
+        project.setGroupId("org.example");
+        project.setArtifactId(artifactId);
+        project.setVersion("1.0");
+        project.setName(artifactId);
+        project.setArtifact(new ProjectArtifact(project));
+        return project;
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.k_wall.core.ReportSink;
+
+public class ReactorReportSinkTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheReportsCollectedInReactorOrderOnceTheSessionEnds() throws Exception
+    {
+        MavenSession session = session("a", "b", "c");
+        new ReportSessionParticipant().afterProjectsRead(session);
+        File file = new File(folder.getRoot(), "report.txt");
+        ReactorReportSink sink = sink(session, file);
+
+        // the modules finish in the reverse order, none waiting for another
+        report(sink, session.getProjects().get(2));
+        report(sink, session.getProjects().get(1));
+        report(sink, session.getProjects().get(0));
+        assertFalse(file.exists());
+
+        new ReportSessionParticipant().afterSessionEnd(session);
+        assertEquals("report of a\nreport of b\nreport of c\n", read(file));
+    }
+
+    @Test
+    public void leavesOutTheModulesThatDidNotReport() throws Exception
+    {
+        MavenSession session = session("a", "b", "c");
+        new ReportSessionParticipant().afterProjectsRead(session);
+        File file = new File(folder.getRoot(), "report.txt");
+        Files.write(file.toPath(), "earlier\n".getBytes(StandardCharsets.UTF_8));
+        ReactorReportSink sink = sink(session, file);
+
+        // b fails, or is skipped, before reporting; c opens its report but writes nothing
+        report(sink, session.getProjects().get(0));
+        sink.open(session.getProjects().get(2), new ReportMetrics()).close();
+
+        new ReportSessionParticipant().afterSessionEnd(session);
+        assertEquals("report of a\n", read(file));
+    }
+
+    @Test
+    public void writesTheReportOfEachExecutionOfAModule() throws Exception
+    {
+        MavenSession session = session("a", "b");
+        new ReportSessionParticipant().afterProjectsRead(session);
+        File file = new File(folder.getRoot(), "report.txt");
+        ReactorReportSink sink = sink(session, file);
+
+        // b reports first; a then runs two executions sharing the output file, one after the other
+        report(sink, session.getProjects().get(1));
+        report(sink, session.getProjects().get(0), "compile");
+        report(sink, session.getProjects().get(0), "runtime");
+
+        new ReportSessionParticipant().afterSessionEnd(session);
+        assertEquals("compile report of a\nruntime report of a\nreport of b\n", read(file));
+    }
+
+    @Test
+    public void appendsCompressedReportsInReactorOrder() throws Exception
+    {
+        MavenSession session = session("a", "b");
+        new ReportSessionParticipant().afterProjectsRead(session);
+        File file = new File(folder.getRoot(), "report.txt.gz");
+        try (ReportSink earlier = ReportSink.toWriter(ReportSink.encode(ReportSink.openFile(file, false), true)))
+        {
+            earlier.println("earlier");
+        }
+        ReactorReportSink sink = ReactorReportSink.forSession(session, file, true, true, new SystemStreamLog());
+
+        report(sink, session.getProjects().get(1));
+        report(sink, session.getProjects().get(0));
+        new ReportSessionParticipant().afterSessionEnd(session);
+
+        // each report is a gzip member of its own, read as one stream
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath())))
+        {
+            assertEquals("earlier\nreport of a\nreport of b\n",
+                         new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void appendsEachReportAsItsModuleFinishesWithoutTheParticipant() throws Exception
+    {
+        MavenSession session = session("a", "b", "c");
+        File file = new File(folder.getRoot(), "report.txt");
+        Files.write(file.toPath(), "earlier\n".getBytes(StandardCharsets.UTF_8));
+        ReactorReportSink sink = sink(session, file);
+
+        report(sink, session.getProjects().get(2));
+        report(sink, session.getProjects().get(0));
+        assertEquals("report of c\nreport of a\n", read(file));
+
+        // nothing is left to write out at the end
+        new ReportSessionParticipant().afterSessionEnd(session);
+        assertEquals("report of c\nreport of a\n", read(file));
+    }
+
+    @Test
+    public void sharesOneSinkForEachOutputFile()
+    {
+        MavenSession session = session("a", "b");
+        new ReportSessionParticipant().afterProjectsRead(session);
+        File file = new File(folder.getRoot(), "report.txt");
+
+        assertSame(sink(session, file), sink(session, file));
+        assertNotSame(sink(session, file), sink(session, new File(folder.getRoot(), "other.txt")));
+    }
+
+    private static ReactorReportSink sink(final MavenSession session, final File file)
+    {
+        return ReactorReportSink.forSession(session, file, false, false, new SystemStreamLog());
+    }
+
+    private static void report(final ReactorReportSink sink, final MavenProject project) throws IOException
+    {
+        report(sink, project, null);
+    }
+
+    private static void report(final ReactorReportSink sink, final MavenProject project, final String execution)
+            throws IOException
+    {
+        try (ReportSink reportSink = sink.open(project, new ReportMetrics()))
+        {
+            reportSink.println((execution != null ? execution + " " : "") + "report of " + project.getArtifactId());
+        }
+    }
+
+    private static MavenSession session(final String... artifactIds)
+    {
+        List<MavenProject> projects = new ArrayList<>();
+        for (String artifactId : artifactIds)
+        {
+            MavenProject project = new MavenProject();
+            project.setGroupId("org.example");
+            project.setArtifactId(artifactId);
+            project.setVersion("1.0");
+            projects.add(project);
+        }
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setReactorFailureBehavior(MavenExecutionRequest.REACTOR_FAIL_AT_END);
+        @SuppressWarnings("deprecation")
+        MavenSession session = new MavenSession(null, new DefaultRepositorySystemSession(), request,
+                                                new DefaultMavenExecutionResult());
+        session.setProjects(projects);
+        return session;
+    }
+
+    private static String read(final File file) throws IOException
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
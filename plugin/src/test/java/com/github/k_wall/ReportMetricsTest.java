@@ -0,0 +1,108 @@
+package com.github.k_wall;/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportMetricsTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void namesTheMetricsFileAfterTheReportAndTheModule()
+    {
+        File outputFile = new File(folder.getRoot(), "report.txt");
+        assertEquals(new File(folder.getRoot(), "report-org.example_module-a-metrics.json"),
+                     ReportMetrics.fileBeside(outputFile, "org.example", "module-a"));
+        assertEquals(new File(folder.getRoot(), "report-org.example_module-a-metrics.json"),
+                     ReportMetrics.fileBeside(new File(folder.getRoot(), "report"), "org.example", "module-a"));
+    }
+
+    @Test
+    public void modulesSharingAnOutputFileWriteMetricsOfTheirOwn() throws Exception
+    {
+        File outputFile = new File(folder.getRoot(), "report.txt");
+        // modules of different groups may share an artifact id
+        List<String> groups = Arrays.asList("org.example", "org.other");
+
+        // as in a parallel build, both modules write their metrics at once
+        CyclicBarrier barrier = new CyclicBarrier(groups.size());
+        ExecutorService executor = Executors.newFixedThreadPool(groups.size());
+        try
+        {
+            List<Future<File>> written = groups.stream().map(group -> executor.submit(() -> {
+                ReportMetrics metrics = new ReportMetrics();
+                metrics.add(ReportMetrics.Counter.DISTINCT_ARTIFACTS, group.length());
+                File file = ReportMetrics.fileBeside(outputFile, group, "module");
+                barrier.await();
+                metrics.writeTo(file, group + ":module:jar:1.0", "report");
+                return file;
+            })).collect(Collectors.toList());
+
+            File first = written.get(0).get();
+            File second = written.get(1).get();
+            assertNotEquals(first, second);
+            assertTrue(read(first).contains("\"project\": \"org.example:module:jar:1.0\""));
+            assertTrue(read(second).contains("\"project\": \"org.other:module:jar:1.0\""));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void writesEachCounterUnderItsName() throws IOException
+    {
+        ReportMetrics metrics = new ReportMetrics();
+        metrics.add(ReportMetrics.Counter.PATTERN_EVALUATIONS, 3);
+        metrics.add(ReportMetrics.Counter.PATH_NODES_EMITTED, 5);
+        metrics.add(ReportMetrics.Counter.PATH_NODES_EMITTED, 2);
+        File file = new File(folder.getRoot(), "metrics.json");
+        metrics.writeTo(file, "org.example:module-a:jar:1.0", "report");
+
+        String json = read(file);
+        assertTrue(json, json.contains("\"patternEvaluations\": 3,"));
+        assertTrue(json, json.contains("\"pathNodesEmitted\": 7,"));
+        assertTrue(json, json.contains("\"bytesWritten\": 0" + System.lineSeparator() + "  },"));
+    }
+
+    private static String read(final File file) throws IOException
+    {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}